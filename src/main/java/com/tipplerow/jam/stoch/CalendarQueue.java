@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.Arrays;
+
+import com.tipplerow.jam.lang.JamException;
+
+/**
+ * Maintains the next event times for a fixed set of processes in a
+ * <em>calendar queue</em> [Brown, Commun. ACM (1988) 31, 1220-1227].
+ *
+ * <p>Event times are hashed into an array of buckets ("days") of
+ * fixed width, which wraps around after one "year".  The earliest
+ * event is found by scanning forward from the current day for an
+ * event that falls within the current year, so adding, updating, and
+ * removing an event take constant time and locating the earliest
+ * event takes constant expected time when the bucket width matches
+ * the spacing of the earliest events.  The number of buckets doubles
+ * or halves as the number of (finite) events grows or shrinks, and
+ * the bucket width is re-estimated from a sample of the event times
+ * whenever the buckets are resized or the scan becomes inefficient.
+ *
+ * <p>Calendar queues outperform heaps for large systems whose event
+ * times are spread smoothly; heaps are more robust for highly skewed
+ * or clustered event time distributions.
+ *
+ * @author Scott Shaffer
+ */
+public final class CalendarQueue implements TimeQueue {
+    // The event time of each slot...
+    private final double[] times;
+
+    // The bucket holding each slot (or ABSENT or INFINITE) and the
+    // links to the adjacent slots in the same bucket...
+    private final int[] buckets;
+    private final int[] next;
+    private final int[] prev;
+
+    // The first slot in each bucket and in the list of slots with
+    // infinite event times...
+    private int[] heads;
+    private int infiniteHead = NONE;
+
+    private int bucketCount;
+    private double width = 1.0;
+
+    private int size = 0;
+    private int finiteCount = 0;
+
+    // The absolute index of the current day: every finite event time
+    // falls on or after the current day...
+    private long currentDay = 0L;
+
+    // The slot with the earliest event time (or NONE if it must be
+    // located again)...
+    private int minSlot = NONE;
+
+    // The number of operations since the buckets were last resized...
+    private int opCount = 0;
+
+    private static final int NONE = -1;
+    private static final int ABSENT = -1;
+    private static final int INFINITE = -2;
+
+    private static final int MIN_BUCKET_COUNT = 16;
+    private static final int SAMPLE_COUNT = 64;
+    private static final int SCAN_LIMIT = 32;
+    private static final double WIDTH_FACTOR = 3.0;
+
+    private CalendarQueue(int capacity) {
+        this.times = new double[capacity];
+        this.buckets = new int[capacity];
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+
+        Arrays.fill(buckets, ABSENT);
+        allocateBuckets(MIN_BUCKET_COUNT);
+    }
+
+    /**
+     * Creates an empty calendar queue for slots {@code 0} through
+     * {@code capacity - 1}.
+     *
+     * @param capacity the number of slots that the queue may hold.
+     *
+     * @return a new empty calendar queue with the specified capacity.
+     */
+    public static CalendarQueue create(int capacity) {
+        return new CalendarQueue(capacity);
+    }
+
+    /**
+     * Returns the number of buckets in this queue.
+     *
+     * @return the number of buckets in this queue.
+     */
+    public int countBuckets() {
+        return bucketCount;
+    }
+
+    /**
+     * Returns the current width of the buckets in this queue.
+     *
+     * @return the current width of the buckets in this queue.
+     */
+    public double getBucketWidth() {
+        return width;
+    }
+
+    // ---------------
+    // List management
+    // ---------------
+
+    private void allocateBuckets(int count) {
+        bucketCount = count;
+        heads = new int[count];
+        Arrays.fill(heads, NONE);
+    }
+
+    private long dayOf(double time) {
+        return (long) Math.floor(time / width);
+    }
+
+    private int bucketOf(long day) {
+        return (int) (day & (bucketCount - 1));
+    }
+
+    private void link(int slot) {
+        int head;
+
+        if (Double.isInfinite(times[slot])) {
+            buckets[slot] = INFINITE;
+            head = infiniteHead;
+            infiniteHead = slot;
+        }
+        else {
+            long day = dayOf(times[slot]);
+            int bucket = bucketOf(day);
+
+            buckets[slot] = bucket;
+            head = heads[bucket];
+            heads[bucket] = slot;
+
+            if (finiteCount == 0 || day < currentDay)
+                currentDay = day;
+
+            ++finiteCount;
+        }
+
+        prev[slot] = NONE;
+        next[slot] = head;
+
+        if (head != NONE)
+            prev[head] = slot;
+    }
+
+    private void unlink(int slot) {
+        int bucket = buckets[slot];
+
+        if (prev[slot] != NONE)
+            next[prev[slot]] = next[slot];
+        else if (bucket == INFINITE)
+            infiniteHead = next[slot];
+        else
+            heads[bucket] = next[slot];
+
+        if (next[slot] != NONE)
+            prev[next[slot]] = prev[slot];
+
+        if (bucket != INFINITE)
+            --finiteCount;
+
+        buckets[slot] = ABSENT;
+    }
+
+    // -----------------
+    // Queue management
+    // -----------------
+
+    private int findMin() {
+        if (finiteCount == 0)
+            return infiniteHead;
+
+        //
+        // Scan forward one year from the current day for the earliest
+        // event on each day...
+        //
+        int scanned = 0;
+
+        for (int dayCount = 0; dayCount < bucketCount; ++dayCount) {
+            long day = currentDay + dayCount;
+            int best = NONE;
+
+            for (int slot = heads[bucketOf(day)]; slot != NONE; slot = next[slot]) {
+                ++scanned;
+
+                if (dayOf(times[slot]) <= day && (best == NONE || times[slot] < times[best]))
+                    best = slot;
+            }
+
+            if (best != NONE) {
+                currentDay = day;
+
+                if (scanned > SCAN_LIMIT && opCount >= bucketCount)
+                    return resize(bucketCount);
+                else
+                    return best;
+            }
+        }
+
+        //
+        // The next event is more than one year away: the buckets are
+        // too narrow...
+        //
+        if (opCount >= bucketCount)
+            return resize(bucketCount);
+        else
+            return searchAll();
+    }
+
+    private int searchAll() {
+        int best = NONE;
+
+        for (int bucket = 0; bucket < bucketCount; ++bucket)
+            for (int slot = heads[bucket]; slot != NONE; slot = next[slot])
+                if (best == NONE || times[slot] < times[best])
+                    best = slot;
+
+        currentDay = dayOf(times[best]);
+        return best;
+    }
+
+    private int resize(int count) {
+        //
+        // Gather the finite slots, estimate the spacing of the earliest
+        // events from a sample, and re-link the slots...
+        //
+        int[] finite = new int[finiteCount];
+        int index = 0;
+
+        for (int bucket = 0; bucket < bucketCount; ++bucket)
+            for (int slot = heads[bucket]; slot != NONE; slot = next[slot])
+                finite[index++] = slot;
+
+        width = estimateWidth(finite);
+        allocateBuckets(count);
+
+        finiteCount = 0;
+        opCount = 0;
+
+        for (int slot : finite)
+            link(slot);
+
+        return (finite.length > 0) ? searchAll() : infiniteHead;
+    }
+
+    private double estimateWidth(int[] finite) {
+        if (finite.length < 2)
+            return width;
+
+        int sampleCount = Math.min(SAMPLE_COUNT, finite.length);
+        double[] sample = new double[sampleCount];
+
+        for (int index = 0; index < sampleCount; ++index)
+            sample[index] = times[finite[(int) ((long) index * finite.length / sampleCount)]];
+
+        Arrays.sort(sample);
+
+        //
+        // About one-half of all events lie between the earliest and
+        // the median sample...
+        //
+        double spacing = (sample[sampleCount / 2] - sample[0]) / (0.5 * finite.length);
+
+        if (spacing > 0.0 && Double.isFinite(spacing))
+            return WIDTH_FACTOR * spacing;
+        else
+            return width;
+    }
+
+    private void checkCapacity() {
+        if (finiteCount > 2 * bucketCount)
+            minSlot = resize(2 * bucketCount);
+        else if (finiteCount < bucketCount / 2 && bucketCount > MIN_BUCKET_COUNT)
+            minSlot = resize(bucketCount / 2);
+    }
+
+    private void require(int slot) {
+        if (!containsSlot(slot))
+            throw JamException.runtime("Queue does not contain slot [%d].", slot);
+    }
+
+    private int min() {
+        if (size == 0)
+            throw JamException.runtime("Queue is empty.");
+
+        if (minSlot == NONE)
+            minSlot = findMin();
+
+        return minSlot;
+    }
+
+    @Override public void addEvent(int slot, double time) {
+        if (containsSlot(slot))
+            throw JamException.runtime("Queue already contains slot [%d].", slot);
+
+        times[slot] = time;
+        link(slot);
+
+        ++size;
+        ++opCount;
+
+        if (minSlot != NONE && time < times[minSlot])
+            minSlot = slot;
+
+        checkCapacity();
+    }
+
+    @Override public boolean containsSlot(int slot) {
+        return buckets[slot] != ABSENT;
+    }
+
+    @Override public double findTime(int slot) {
+        require(slot);
+        return times[slot];
+    }
+
+    @Override public int nextSlot() {
+        return min();
+    }
+
+    @Override public double nextTime() {
+        return times[min()];
+    }
+
+    @Override public void removeSlot(int slot) {
+        require(slot);
+        unlink(slot);
+
+        --size;
+        ++opCount;
+
+        if (slot == minSlot)
+            minSlot = NONE;
+
+        checkCapacity();
+    }
+
+    @Override public int size() {
+        return size;
+    }
+
+    @Override public void updateEvent(int slot, double time) {
+        require(slot);
+
+        double prevTime = times[slot];
+        unlink(slot);
+
+        times[slot] = time;
+        link(slot);
+
+        ++opCount;
+
+        if (slot == minSlot) {
+            if (time > prevTime)
+                minSlot = NONE;
+        }
+        else if (minSlot != NONE && time < times[minSlot]) {
+            minSlot = slot;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import com.tipplerow.jam.lang.JamException;
+import com.tipplerow.jam.math.JamRandom;
+
+/**
+ * Simulates the connected components of a stochastic system in
+ * parallel on a fork-join pool.
+ *
+ * <p>Processes in separate components never affect one another's
+ * rates (see {@link ProcComponents}), so the components may advance
+ * through a common time window independently; a system composed
+ * entirely of independent processes (such as a decay system) scales
+ * with the number of threads.  The system must support component
+ * simulation ({@link StochSystem#supportsComponentSimulation()}).
+ *
+ * <p>The components are grouped into a fixed number of <em>bins</em>
+ * with similar numbers of processes, and each bin is simulated as one
+ * subsystem with its own simulation algorithm and random number source,
+ * so that systems with many small components do not require one
+ * algorithm (and one fork-join task) per component.  Each bin takes a
+ * contiguous run of components in order of their smallest process
+ * ordinal, so the slot map of each subsystem spans a narrow range of
+ * ordinals rather than the range of the entire system.  The random number
+ * source for each bin is seeded from the master seed and the bin index
+ * exactly as {@link EnsembleRunner} seeds its replicates; the bins and
+ * seeds depend only on the system and the bin count, so the trajectory
+ * does not depend on the number of threads in the pool.
+ *
+ * <p>Observers that require the events in global time order may pass
+ * an event consumer to {@code advanceUntil}: each bin then records its
+ * events in the window and the records are merged by time (through a
+ * {@link TimeHeap} keyed by bin) after the window completes.  The
+ * records for a window are held in memory until they are merged, so
+ * the window length bounds the memory required.
+ *
+ * @author Scott Shaffer
+ */
+public final class ComponentRunner {
+    private final StochSystem system;
+    private final ProcComponents components;
+    private final ComponentSystem[] subsystems;
+    private final StochAlgo[] algos;
+    private final ForkJoinPool pool;
+
+    /**
+     * The default number of bins into which the components are grouped.
+     */
+    public static final int DEFAULT_BIN_COUNT = 64;
+
+    private ComponentRunner(StochSystem system,
+                            long masterSeed,
+                            BiFunction<JamRandom, StochSystem, ? extends StochAlgo> algoFactory,
+                            int binCount,
+                            ForkJoinPool pool) {
+        if (!system.supportsComponentSimulation())
+            throw JamException.runtime("System does not support component simulation.");
+
+        if (binCount < 1)
+            throw JamException.runtime("Bin count must be positive.");
+
+        this.system = system;
+        this.components = ProcComponents.create(system);
+        this.subsystems = new ComponentSystem[Math.min(binCount, components.countComponents())];
+        this.algos = new StochAlgo[subsystems.length];
+        this.pool = pool;
+
+        List<List<StochProc>> bins = assignBins(subsystems.length);
+        EnsembleRunner seeder = EnsembleRunner.create(masterSeed, subsystems.length);
+
+        for (int index = 0; index < subsystems.length; ++index) {
+            subsystems[index] = ComponentSystem.create(system, bins.get(index));
+            algos[index] = algoFactory.apply(seeder.replicateRandom(index), subsystems[index]);
+        }
+    }
+
+    private List<List<StochProc>> assignBins(int binCount) {
+        //
+        // Sort the components by their smallest process ordinal and cut
+        // the sorted sequence into contiguous runs with similar numbers
+        // of processes, leaving at least one component for each of the
+        // remaining bins...
+        //
+        int componentCount = components.countComponents();
+        Integer[] order = new Integer[componentCount];
+
+        for (int index = 0; index < order.length; ++index)
+            order[index] = index;
+
+        Arrays.sort(order, Comparator.comparingInt(index -> minProcIndex(components.viewComponent(index))));
+
+        long procCount = 0L;
+
+        for (int index = 0; index < componentCount; ++index)
+            procCount += components.viewComponent(index).size();
+
+        List<List<StochProc>> bins = new ArrayList<>(binCount);
+        List<StochProc> procs = new ArrayList<>();
+        long assigned = 0L;
+
+        bins.add(procs);
+
+        for (int position = 0; position < componentCount; ++position) {
+            int remaining = componentCount - position;
+
+            if (!procs.isEmpty() && bins.size() < binCount
+                && (assigned >= procCount * bins.size() / binCount || remaining <= binCount - bins.size())) {
+                procs = new ArrayList<>();
+                bins.add(procs);
+            }
+
+            List<StochProc> component = components.viewComponent(order[position]);
+
+            procs.addAll(component);
+            assigned += component.size();
+        }
+
+        return bins;
+    }
+
+    private static int minProcIndex(List<StochProc> component) {
+        int result = Integer.MAX_VALUE;
+
+        for (StochProc proc : component)
+            result = Math.min(result, proc.getProcIndex());
+
+        return result;
+    }
+
+    /**
+     * Creates a new component runner that simulates components in the
+     * common fork-join pool, grouped into the default number of bins.
+     *
+     * @param system the system to simulate.
+     *
+     * @param masterSeed the seed from which the random number sources
+     * for all bins are derived.
+     *
+     * @param algoFactory the function that creates the simulation
+     * algorithm for each bin from its random number source and
+     * component system (a method reference like
+     * {@code NextReactionAlgo::create}, for example).
+     *
+     * @return a new component runner with the specified parameters.
+     *
+     * @throws RuntimeException unless the system supports component
+     * simulation.
+     */
+    public static ComponentRunner create(StochSystem system,
+                                         long masterSeed,
+                                         BiFunction<JamRandom, StochSystem, ? extends StochAlgo> algoFactory) {
+        return create(system, masterSeed, algoFactory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new component runner that simulates components in a
+     * dedicated fork-join pool, grouped into the default number of bins.
+     *
+     * @param system the system to simulate.
+     *
+     * @param masterSeed the seed from which the random number sources
+     * for all bins are derived.
+     *
+     * @param algoFactory the function that creates the simulation
+     * algorithm for each bin.
+     *
+     * @param pool the pool that executes the bins.
+     *
+     * @return a new component runner with the specified parameters.
+     *
+     * @throws RuntimeException unless the system supports component
+     * simulation.
+     */
+    public static ComponentRunner create(StochSystem system,
+                                         long masterSeed,
+                                         BiFunction<JamRandom, StochSystem, ? extends StochAlgo> algoFactory,
+                                         ForkJoinPool pool) {
+        return create(system, masterSeed, algoFactory, DEFAULT_BIN_COUNT, pool);
+    }
+
+    /**
+     * Creates a new component runner that simulates components in a
+     * dedicated fork-join pool, grouped into a fixed number of bins.
+     *
+     * @param system the system to simulate.
+     *
+     * @param masterSeed the seed from which the random number sources
+     * for all bins are derived.
+     *
+     * @param algoFactory the function that creates the simulation
+     * algorithm for each bin.
+     *
+     * @param binCount the maximum number of bins (there are never more
+     * bins than components).
+     *
+     * @param pool the pool that executes the bins.
+     *
+     * @return a new component runner with the specified parameters.
+     *
+     * @throws RuntimeException unless the system supports component
+     * simulation and the bin count is positive.
+     */
+    public static ComponentRunner create(StochSystem system,
+                                         long masterSeed,
+                                         BiFunction<JamRandom, StochSystem, ? extends StochAlgo> algoFactory,
+                                         int binCount,
+                                         ForkJoinPool pool) {
+        return new ComponentRunner(system, masterSeed, algoFactory, binCount, pool);
+    }
+
+    /**
+     * Advances every component through all events that occur at or
+     * before a time horizon; the clock of the simulated system is then
+     * advanced to the horizon (so its {@code lastEvent()} returns
+     * {@code null}) and its event count includes the events from every
+     * component.
+     *
+     * @param horizon the (absolute) time horizon.
+     *
+     * @return the total number of events that occurred.
+     *
+     * @throws RuntimeException unless the horizon is finite and later
+     * than the clock of the simulated system.
+     */
+    public long advanceUntil(double horizon) {
+        validateHorizon(horizon);
+
+        long eventCount = advanceComponents(horizon);
+        system.recordLeap(StochTime.of(horizon), eventCount);
+
+        return eventCount;
+    }
+
+    /**
+     * Advances every component through all events that occur at or
+     * before a time horizon (as {@link ComponentRunner#advanceUntil(double)})
+     * and then passes the events to an observer in global time order.
+     *
+     * @param horizon the (absolute) time horizon.
+     *
+     * @param observer the consumer of the merged events.
+     *
+     * @return the total number of events that occurred.
+     *
+     * @throws RuntimeException unless the horizon is finite and later
+     * than the clock of the simulated system.
+     */
+    public long advanceUntil(double horizon, Consumer<? super StochEvent> observer) {
+        validateHorizon(horizon);
+
+        for (ComponentSystem subsystem : subsystems)
+            subsystem.setRecording(true);
+
+        long eventCount;
+
+        try {
+            eventCount = advanceComponents(horizon);
+            mergeEvents(observer);
+        }
+        finally {
+            for (ComponentSystem subsystem : subsystems) {
+                subsystem.setRecording(false);
+                subsystem.clearRecord();
+            }
+        }
+
+        system.recordLeap(StochTime.of(horizon), eventCount);
+        return eventCount;
+    }
+
+    private void validateHorizon(double horizon) {
+        if (!Double.isFinite(horizon))
+            throw JamException.runtime("Time horizon must be finite.");
+
+        if (horizon <= system.lastEventTimeValue())
+            throw JamException.runtime("Time horizon must be later than the system clock.");
+    }
+
+    private long advanceComponents(double horizon) {
+        long[] eventCounts = new long[subsystems.length];
+        pool.invoke(new AdvanceAction(horizon, eventCounts, 0, subsystems.length));
+
+        long eventCount = 0L;
+
+        for (long count : eventCounts)
+            eventCount += count;
+
+        return eventCount;
+    }
+
+    private void mergeEvents(Consumer<? super StochEvent> observer) {
+        //
+        // A k-way merge: the heap holds the time of the next unmerged
+        // event from each bin...
+        //
+        int[] cursors = new int[subsystems.length];
+        TimeHeap heap = TimeHeap.create(subsystems.length);
+
+        for (int index = 0; index < subsystems.length; ++index)
+            if (subsystems[index].countRecorded() > 0)
+                heap.addEvent(index, subsystems[index].recordedTime(0));
+
+        while (heap.size() > 0) {
+            int index = heap.nextSlot();
+            ComponentSystem subsystem = subsystems[index];
+
+            observer.accept(subsystem.recordedEvent(cursors[index]));
+            ++cursors[index];
+
+            if (cursors[index] < subsystem.countRecorded())
+                heap.updateEvent(index, subsystem.recordedTime(cursors[index]));
+            else
+                heap.removeSlot(index);
+        }
+    }
+
+    /**
+     * Returns the number of connected components.
+     *
+     * @return the number of connected components.
+     */
+    public int countComponents() {
+        return components.countComponents();
+    }
+
+    /**
+     * Returns the number of bins (subsystems simulated as a unit).
+     *
+     * @return the number of bins.
+     */
+    public int countBins() {
+        return subsystems.length;
+    }
+
+    /**
+     * Returns the subsystem simulated for a bin.
+     *
+     * @param index the index of the bin.
+     *
+     * @return the subsystem simulated for the specified bin.
+     */
+    ComponentSystem getSubsystem(int index) {
+        return subsystems[index];
+    }
+
+    /**
+     * Returns the connected components of the simulated system.
+     *
+     * @return the connected components of the simulated system.
+     */
+    public ProcComponents getComponents() {
+        return components;
+    }
+
+    private final class AdvanceAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double horizon;
+        private final long[] eventCounts;
+        private final int lower;
+        private final int upper;
+
+        private AdvanceAction(double horizon, long[] eventCounts, int lower, int upper) {
+            this.horizon = horizon;
+            this.eventCounts = eventCounts;
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        @Override protected void compute() {
+            if (upper - lower == 1) {
+                eventCounts[lower] = algos[lower].advanceUntil(horizon);
+            }
+            else {
+                int middle = (lower + upper) >>> 1;
+                invokeAll(new AdvanceAction(horizon, eventCounts, lower, middle),
+                          new AdvanceAction(horizon, eventCounts, middle, upper));
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Represents one or more connected components of a larger stochastic
+ * system, which delegates its state updates to the enclosing system
+ * and may record its events for a merged global view.  The clock of
+ * the component system starts at the clock of the enclosing system.
+ *
+ * @author Scott Shaffer
+ */
+final class ComponentSystem extends StochSystem {
+    private final StochSystem parent;
+
+    // The recorded events (in time order) and whether events are being
+    // recorded...
+    private boolean recording = false;
+    private int recordCount = 0;
+    private StochProc[] recordProcs = new StochProc[16];
+    private double[] recordRates = new double[16];
+    private double[] recordTimes = new double[16];
+
+    private ComponentSystem(StochSystem parent, Collection<? extends StochProc> procs) {
+        super(procs, collectLinks(parent, procs));
+        this.parent = parent;
+    }
+
+    private static List<RateLink> collectLinks(StochSystem parent, Collection<? extends StochProc> procs) {
+        List<RateLink> links = new ArrayList<>();
+
+        for (StochProc proc : procs)
+            for (StochProc successor : parent.viewDependents(proc))
+                links.add(RateLink.link(proc, successor));
+
+        return links;
+    }
+
+    static ComponentSystem create(StochSystem parent, Collection<? extends StochProc> procs) {
+        ComponentSystem system = new ComponentSystem(parent, procs);
+
+        //
+        // The component clock starts at the parent clock, so the first
+        // events are sampled after any events that have already occurred
+        // in the parent...
+        //
+        if (parent.lastEventTimeValue() > 0.0)
+            system.advanceTime(parent.lastEventTimeValue());
+
+        return system;
+    }
+
+    @Override protected void updateState() {
+        StochProc proc = lastEventProcess();
+
+        if (recording)
+            record(proc, proc.getRateValue(), lastEventTimeValue());
+
+        parent.updateComponentState(proc);
+    }
+
+    private void record(StochProc proc, double rate, double time) {
+        if (recordCount == recordProcs.length) {
+            int capacity = 2 * recordCount;
+
+            recordProcs = Arrays.copyOf(recordProcs, capacity);
+            recordRates = Arrays.copyOf(recordRates, capacity);
+            recordTimes = Arrays.copyOf(recordTimes, capacity);
+        }
+
+        recordProcs[recordCount] = proc;
+        recordRates[recordCount] = rate;
+        recordTimes[recordCount] = time;
+        ++recordCount;
+    }
+
+    void clearRecord() {
+        Arrays.fill(recordProcs, 0, recordCount, null);
+        recordCount = 0;
+    }
+
+    int countRecorded() {
+        return recordCount;
+    }
+
+    StochEvent recordedEvent(int index) {
+        return StochEvent.mark(recordProcs[index], recordRates[index], recordTimes[index]);
+    }
+
+    double recordedTime(int index) {
+        return recordTimes[index];
+    }
+
+    void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.tipplerow.jam.lang.JamException;
+import com.tipplerow.jam.math.JamRandom;
+
+/**
+ * Implements the <em>composition-rejection</em> stochastic simulation
+ * method of Slepoy, Thompson, and Plimpton [J. Chem. Phys. (2008) 128,
+ * 205101].
+ *
+ * <p>Processes are binned into groups whose rates fall within the
+ * same power-of-two interval {@code [2^g, 2^(g+1))}.  A group is first
+ * selected with a probability proportional to its total rate (the
+ * composition step, whose cost scales with the number of non-empty
+ * groups rather than the number of processes); a process is then
+ * selected uniformly from the group and accepted with probability
+ * {@code r(k) / 2^(g+1)} (the rejection step, which succeeds with
+ * probability at least one-half).  Moving a process between groups
+ * after its rate changes takes constant time, so the cost per event
+ * is independent of the number of processes in the system.
+ *
+ * <p>If the system has been frozen, the rates of the dependent
+ * processes are updated by traversing its compiled graph; otherwise,
+ * the dependents are found through the mutable dependency graph after
+ * each event.  Creating the algorithm does not freeze the system.
+ *
+ * @author Scott Shaffer
+ */
+public final class CompositionRejectionAlgo extends StochAlgo {
+    private final ProcSlotMap slotMap;
+    private final SlotGraph slotGraph;
+
+    // The instantaneous rate of each process, indexed by slot...
+    private final double[] rates;
+
+    // The group containing each process (NO_GROUP for processes with
+    // zero rate) and its position within the group member array...
+    private final int[] groupIndex;
+    private final int[] groupPos;
+
+    // All possible groups, indexed by the binary exponent of their
+    // lower rate bound offset by EXPONENT_OFFSET (allocated lazily)...
+    private final RateGroup[] groups = new RateGroup[GROUP_COUNT];
+
+    // The indexes of the non-empty groups...
+    private final int[] activeGroups = new int[GROUP_COUNT];
+    private int activeCount = 0;
+
+    private final int ageThreshold;
+
+    private int rateAge;
+    private double totalRate;
+
+    private static final int NO_GROUP = -1;
+    private static final int EXPONENT_OFFSET = -Double.MIN_EXPONENT + 1;
+    private static final int GROUP_COUNT = Double.MAX_EXPONENT + EXPONENT_OFFSET + 1;
+    private static final int MAX_AGE_THRESHOLD = 1000000;
+
+    private static final class RateGroup {
+        private final int index;
+        private final double upperBound;
+
+        private int[] members = new int[4];
+        private int size = 0;
+        private int activePos = -1;
+        private double totalRate = 0.0;
+
+        private RateGroup(int index) {
+            //
+            // The upper bound of the top group (2^1024) overflows, so it
+            // is capped at the largest finite value, which still bounds
+            // every finite rate in the group...
+            //
+            this.index = index;
+            this.upperBound = Math.min(Math.scalb(1.0, index - EXPONENT_OFFSET + 1), Double.MAX_VALUE);
+        }
+    }
+
+    private CompositionRejectionAlgo(JamRandom random, StochSystem system) {
+        super(random, system);
+
+        this.slotMap = system.getSlotMap();
+        this.slotGraph = system.isFrozen() ? system.getSlotGraph() : null;
+        this.rates = new double[slotMap.size()];
+        this.groupIndex = new int[slotMap.size()];
+        this.groupPos = new int[slotMap.size()];
+        this.ageThreshold = Math.min(MAX_AGE_THRESHOLD, 100 * slotMap.size());
+
+        for (int slot = 0; slot < slotMap.size(); ++slot) {
+            groupIndex[slot] = NO_GROUP;
+            insert(slot, validateRate(slotMap.getProc(slot).getRateValue()));
+        }
+
+        recomputeTotals();
+    }
+
+    /**
+     * Creates a new stochastic simulation algorithm that implements
+     * the <em>composition-rejection</em> method of Slepoy, Thompson,
+     * and Plimpton [J. Chem. Phys. (2008) 128, 205101].
+     *
+     * @param random the random number source.
+     *
+     * @param system the stochastic system to simulate.
+     *
+     * @return a composition-rejection simulation algorithm for the
+     * specified system.
+     */
+    public static CompositionRejectionAlgo create(JamRandom random, StochSystem system) {
+        return new CompositionRejectionAlgo(random, system);
+    }
+
+    private static double validateRate(double rate) {
+        //
+        // Infinite (or NaN) rates have no group and would never be
+        // accepted by the rejection step...
+        //
+        if (!Double.isFinite(rate))
+            throw JamException.runtime("Transition rates must be finite.");
+
+        return rate;
+    }
+
+    private static int computeGroupIndex(double rate) {
+        //
+        // Math.getExponent() returns MIN_EXPONENT - 1 for subnormal
+        // rates, which then share the lowest group...
+        //
+        return Math.getExponent(rate) + EXPONENT_OFFSET;
+    }
+
+    private RateGroup getGroup(int index) {
+        RateGroup group = groups[index];
+
+        if (group == null) {
+            group = new RateGroup(index);
+            groups[index] = group;
+        }
+
+        return group;
+    }
+
+    private void insert(int slot, double rate) {
+        rates[slot] = rate;
+
+        if (rate <= 0.0)
+            return;
+
+        RateGroup group = getGroup(computeGroupIndex(rate));
+
+        if (group.size == group.members.length)
+            group.members = Arrays.copyOf(group.members, 2 * group.size);
+
+        if (group.size == 0)
+            activate(group);
+
+        groupIndex[slot] = group.index;
+        groupPos[slot] = group.size;
+
+        group.members[group.size++] = slot;
+        group.totalRate += rate;
+    }
+
+    private void remove(int slot) {
+        if (groupIndex[slot] == NO_GROUP)
+            return;
+
+        RateGroup group = groups[groupIndex[slot]];
+
+        // Move the last member into the vacated position...
+        int pos = groupPos[slot];
+        int last = group.members[--group.size];
+
+        group.members[pos] = last;
+        groupPos[last] = pos;
+        group.totalRate -= rates[slot];
+
+        groupIndex[slot] = NO_GROUP;
+
+        if (group.size == 0)
+            deactivate(group);
+    }
+
+    private void activate(RateGroup group) {
+        group.activePos = activeCount;
+        group.totalRate = 0.0;
+        activeGroups[activeCount++] = group.index;
+    }
+
+    private void deactivate(RateGroup group) {
+        RateGroup last = groups[activeGroups[--activeCount]];
+
+        activeGroups[group.activePos] = last.index;
+        last.activePos = group.activePos;
+
+        group.activePos = -1;
+        group.totalRate = 0.0;
+    }
+
+    private void recomputeTotals() {
+        rateAge = 0;
+        totalRate = 0.0;
+
+        for (int k = 0; k < activeCount; ++k) {
+            RateGroup group = groups[activeGroups[k]];
+            group.totalRate = 0.0;
+
+            for (int pos = 0; pos < group.size; ++pos)
+                group.totalRate += rates[group.members[pos]];
+
+            totalRate += group.totalRate;
+        }
+    }
+
+    private void updateProc(StochProc proc) {
+        updateSlot(slotMap.getSlot(proc));
+    }
+
+    private void updateSlot(int slot) {
+        double oldRate = rates[slot];
+        double newRate = validateRate(slotMap.getProc(slot).getRateValue());
+
+        if (newRate == oldRate)
+            return;
+
+        if (newRate > 0.0 && groupIndex[slot] == computeGroupIndex(newRate)) {
+            //
+            // The process remains in the same group...
+            //
+            groups[groupIndex[slot]].totalRate += (newRate - oldRate);
+            rates[slot] = newRate;
+        }
+        else {
+            remove(slot);
+            insert(slot, newRate);
+        }
+
+        totalRate += (newRate - oldRate);
+    }
+
+    private RateGroup selectGroup() {
+        //
+        // Select a group with probability proportional to its total
+        // rate; round-off error in the running sum favors the last
+        // active group...
+        //
+        double threshold = random.nextDouble() * totalRate;
+        RateGroup group = null;
+
+        for (int k = 0; k < activeCount; ++k) {
+            group = groups[activeGroups[k]];
+            threshold -= group.totalRate;
+
+            if (threshold < 0.0)
+                break;
+        }
+
+        return group;
+    }
+
+    private int selectSlot(RateGroup group) {
+        //
+        // Every member rate is at least one-half the group upper
+        // bound, so the expected number of trials is at most two...
+        //
+        while (true) {
+            int slot = group.members[(int) (random.nextDouble() * group.size)];
+
+            if (random.nextDouble() * group.upperBound < rates[slot])
+                return slot;
+        }
+    }
+
+    @Override protected StochEvent nextEvent() {
+        if (activeCount == 0 || totalRate <= 0.0)
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        StochRate rate = StochRate.of(totalRate);
+        StochTime time = rate.sampleTime(system.lastEventTime(), random);
+
+        return StochEvent.mark(slotMap.getProc(selectSlot(selectGroup())), time);
+    }
+
+    @Override protected void updateState(StochEvent event, Collection<? extends StochProc> dependents) {
+        updateRates(event.getProc(), dependents);
+    }
+
+    private void updateRates(StochProc proc, Collection<? extends StochProc> dependents) {
+        ++rateAge;
+        updateProc(proc);
+
+        for (StochProc dependent : dependents)
+            updateProc(dependent);
+
+        if (rateAge >= ageThreshold)
+            recomputeTotals();
+    }
+
+
+    @Override public void advance() {
+        //
+        // Select the next event and update the system with primitive
+        // rates and times, so that no event objects are created...
+        //
+        if (activeCount == 0 || totalRate <= 0.0)
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        fire(StochRate.sampleTime(totalRate, system.lastEventTimeValue(), random));
+    }
+
+    @Override protected void advanceBefore(double horizon) {
+        while (activeCount > 0 && totalRate > 0.0) {
+            double time = StochRate.sampleTime(totalRate, system.lastEventTimeValue(), random);
+
+            //
+            // The waiting time is memoryless, so an event sampled past
+            // the horizon may be discarded and resampled later...
+            //
+            if (time > horizon)
+                return;
+
+            fire(time);
+        }
+    }
+
+    private void fire(double time) {
+        int slot = selectSlot(selectGroup());
+        StochProc proc = slotMap.getProc(slot);
+
+        system.updateState(proc, time);
+
+        if (slotGraph == null) {
+            updateRates(proc, system.viewDependents(proc));
+            return;
+        }
+
+        ++rateAge;
+        updateSlot(slot);
+
+        for (int edge = slotGraph.edgeStart(slot); edge < slotGraph.edgeEnd(slot); ++edge)
+            updateSlot(slotGraph.successor(edge));
+
+        if (rateAge >= ageThreshold)
+            recomputeTotals();
+    }
+}
@@ -23,17 +23,29 @@ import com.tipplerow.jam.math.JamRandom;
  * Implements the direct stochastic simulation method of Gillespie
  * with a few performance optimizations.
  *
+ * <p>If the system has been frozen, the rates of the dependent
+ * processes are updated by traversing its compiled graph; otherwise,
+ * the dependents are found through the mutable dependency graph after
+ * each event.  Creating the algorithm does not freeze the system.
+ * Processes whose rates fall to zero are parked outside the selection
+ * scan of the priority list until a predecessor gives them a positive
+ * rate again.
+ *
  * @author Scott Shaffer
  */
 public final class DirectAlgo extends StochAlgo {
+    private final ProcSlotMap slotMap;
+    private final SlotGraph slotGraph;
     private final RateManager rateManager;
     private final PriorityList priorityList;
 
     private DirectAlgo(JamRandom random, StochSystem system) {
         super(random, system);
 
+        this.slotMap = system.getSlotMap();
+        this.slotGraph = system.isFrozen() ? system.getSlotGraph() : null;
         this.rateManager = RateManager.create(system);
-        this.priorityList = PriorityList.create(system);
+        this.priorityList = PriorityList.createParking(system);
     }
 
     /**
@@ -68,6 +80,61 @@ public final class DirectAlgo extends StochAlgo {
     }
 
     @Override protected void updateState(StochEvent event, Collection<? extends StochProc> dependents) {
-        rateManager.updateTotalRate(event.getProc(), dependents);
+        updateRates(event.getProc(), dependents);
+    }
+
+    private void updateRates(StochProc proc, Collection<? extends StochProc> dependents) {
+        rateManager.updateTotalRate(proc, dependents);
+        priorityList.updateRate(proc);
+
+        for (StochProc dependent : dependents)
+            priorityList.updateRate(dependent);
+    }
+
+    @Override public void advance() {
+        //
+        // Select the next event and update the system with primitive
+        // rates and times, so that no event objects are created...
+        //
+        double totalRate = rateManager.getTotalRateValue();
+        double time = StochRate.sampleTime(totalRate, system.lastEventTimeValue(), random);
+
+        fire(totalRate, time);
+    }
+
+    @Override protected void advanceBefore(double horizon) {
+        while (true) {
+            double totalRate = rateManager.getTotalRateValue();
+            double time = StochRate.sampleTime(totalRate, system.lastEventTimeValue(), random);
+
+            //
+            // The waiting time is memoryless, so an event sampled past
+            // the horizon (or never, if the total rate is zero) may be
+            // discarded and resampled when the simulation continues...
+            //
+            if (Double.isInfinite(time) || time > horizon)
+                return;
+
+            fire(totalRate, time);
+        }
+    }
+
+    private void fire(double totalRate, double time) {
+        StochProc proc = priorityList.select(random, totalRate);
+
+        system.updateState(proc, time);
+
+        if (slotGraph == null) {
+            updateRates(proc, system.viewDependents(proc));
+            return;
+        }
+
+        rateManager.updateTotalRate(proc);
+        priorityList.updateRate(proc);
+
+        int slot = slotMap.getSlot(proc);
+
+        for (int edge = slotGraph.edgeStart(slot); edge < slotGraph.edgeEnd(slot); ++edge)
+            priorityList.updateRate(slotMap.getProc(slotGraph.successor(edge)));
     }
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+import com.tipplerow.jam.lang.JamException;
+import com.tipplerow.jam.math.JamRandom;
+
+/**
+ * Runs an ensemble of independent simulation replicates in parallel
+ * on a fork-join pool.
+ *
+ * <p>The random number source for each replicate is seeded from the
+ * master seed and the replicate index alone (by the SplitMix64 mixing
+ * function), and the replicate results are combined in a fixed binary
+ * tree over the replicate indexes, so the results are bit-identical
+ * regardless of the number of threads in the pool or the order in
+ * which the replicates complete.
+ *
+ * @author Scott Shaffer
+ */
+public final class EnsembleRunner {
+    private final long masterSeed;
+    private final int replicateCount;
+    private final ForkJoinPool pool;
+
+    // The golden-ratio increment of the SplitMix64 generator...
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private EnsembleRunner(long masterSeed, int replicateCount, ForkJoinPool pool) {
+        if (replicateCount < 1)
+            throw JamException.runtime("Replicate count must be positive.");
+
+        this.masterSeed = masterSeed;
+        this.replicateCount = replicateCount;
+        this.pool = pool;
+    }
+
+    /**
+     * Creates a new ensemble runner that executes replicates in the
+     * common fork-join pool.
+     *
+     * @param masterSeed the seed from which the random number sources
+     * for all replicates are derived.
+     *
+     * @param replicateCount the number of replicates in the ensemble.
+     *
+     * @return a new ensemble runner with the specified parameters.
+     *
+     * @throws RuntimeException unless the replicate count is positive.
+     */
+    public static EnsembleRunner create(long masterSeed, int replicateCount) {
+        return create(masterSeed, replicateCount, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new ensemble runner that executes replicates in a
+     * specific fork-join pool.
+     *
+     * @param masterSeed the seed from which the random number sources
+     * for all replicates are derived.
+     *
+     * @param replicateCount the number of replicates in the ensemble.
+     *
+     * @param pool the pool that executes the replicates.
+     *
+     * @return a new ensemble runner with the specified parameters.
+     *
+     * @throws RuntimeException unless the replicate count is positive.
+     */
+    public static EnsembleRunner create(long masterSeed, int replicateCount, ForkJoinPool pool) {
+        return new EnsembleRunner(masterSeed, replicateCount, pool);
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns the number of replicates in the ensemble.
+     *
+     * @return the number of replicates in the ensemble.
+     */
+    public int countReplicates() {
+        return replicateCount;
+    }
+
+    /**
+     * Returns the seed for the random number source of a replicate,
+     * which depends only on the master seed and replicate index.
+     *
+     * @param replicate the zero-based index of the replicate.
+     *
+     * @return the seed for the specified replicate.
+     */
+    public long replicateSeed(int replicate) {
+        return mix64(masterSeed + (replicate + 1L) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Creates the random number source for a replicate.
+     *
+     * @param replicate the zero-based index of the replicate.
+     *
+     * @return the random number source for the specified replicate.
+     */
+    public JamRandom replicateRandom(int replicate) {
+        return JamRandom.generator(replicateSeed(replicate));
+    }
+
+    /**
+     * Runs every replicate in the ensemble and collects the results.
+     *
+     * @param <R> the type of the replicate result.
+     *
+     * @param task the replicate simulation.
+     *
+     * @return the replicate results, in replicate order.
+     */
+    @SuppressWarnings("unchecked")
+    public <R> List<R> run(ReplicateTask<? extends R> task) {
+        Object[] results = new Object[replicateCount];
+        pool.invoke(new RunAction(task, results, 0, replicateCount));
+        return (List<R>) Arrays.asList(results);
+    }
+
+    /**
+     * Runs every replicate in the ensemble and combines the results as
+     * the replicates complete, so that no more than a few results are
+     * held in memory at once.  The results are combined in a binary
+     * tree fixed by the replicate indexes, so the combined result does
+     * not depend on the number of threads even if the combination is
+     * not associative (as with floating-point sums).
+     *
+     * @param <R> the type of the replicate result.
+     *
+     * @param task the replicate simulation.
+     *
+     * @param combiner the function that combines two results.
+     *
+     * @return the combined result of all replicates.
+     */
+    public <R> R reduce(ReplicateTask<? extends R> task, BinaryOperator<R> combiner) {
+        return pool.invoke(new ReduceTask<>(task, combiner, 0, replicateCount));
+    }
+
+    private final class RunAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ReplicateTask<?> task;
+        private final Object[] results;
+        private final int lower;
+        private final int upper;
+
+        private RunAction(ReplicateTask<?> task, Object[] results, int lower, int upper) {
+            this.task = task;
+            this.results = results;
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        @Override protected void compute() {
+            if (upper - lower == 1) {
+                results[lower] = task.run(lower, replicateRandom(lower));
+            }
+            else {
+                int middle = (lower + upper) >>> 1;
+                invokeAll(new RunAction(task, results, lower, middle),
+                          new RunAction(task, results, middle, upper));
+            }
+        }
+    }
+
+    private final class ReduceTask<R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final ReplicateTask<? extends R> task;
+        private final BinaryOperator<R> combiner;
+        private final int lower;
+        private final int upper;
+
+        private ReduceTask(ReplicateTask<? extends R> task, BinaryOperator<R> combiner, int lower, int upper) {
+            this.task = task;
+            this.combiner = combiner;
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        @Override protected R compute() {
+            if (upper - lower == 1)
+                return task.run(lower, replicateRandom(lower));
+
+            int middle = (lower + upper) >>> 1;
+
+            ReduceTask<R> left = new ReduceTask<>(task, combiner, lower, middle);
+            ReduceTask<R> right = new ReduceTask<>(task, combiner, middle, upper);
+
+            left.fork();
+            R rightResult = right.compute();
+
+            return combiner.apply(left.join(), rightResult);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.Collection;
+
+import com.tipplerow.jam.math.JamRandom;
+
+/**
+ * Implements the <em>logarithmic direct</em> stochastic simulation
+ * method: the direct method of Gillespie with the process rates held
+ * in a binary sum tree, so that process selection and rate updates
+ * scale with the logarithm of the number of processes.
+ *
+ * <p>If the system has been frozen, the rates of the dependent
+ * processes are updated by traversing its compiled graph; otherwise,
+ * the dependents are found through the mutable dependency graph after
+ * each event.  Creating the algorithm does not freeze the system.
+ *
+ * @author Scott Shaffer
+ */
+public final class LogDirectAlgo extends StochAlgo {
+    private final RateTree rateTree;
+    private final ProcSlotMap slotMap;
+    private final SlotGraph slotGraph;
+
+    private LogDirectAlgo(JamRandom random, StochSystem system) {
+        super(random, system);
+
+        this.slotMap = system.getSlotMap();
+        this.slotGraph = system.isFrozen() ? system.getSlotGraph() : null;
+        this.rateTree = RateTree.create(system);
+    }
+
+    /**
+     * Creates a new stochastic simulation algorithm that implements
+     * the <em>logarithmic direct</em> method.
+     *
+     * @param random the random number source.
+     *
+     * @param system the stochastic system to simulate.
+     *
+     * @return a logarithmic direct simulation algorithm for the
+     * specified system.
+     */
+    public static LogDirectAlgo create(JamRandom random, StochSystem system) {
+        return new LogDirectAlgo(random, system);
+    }
+
+    @Override protected StochEvent nextEvent() {
+        StochRate totalRate =
+            rateTree.getTotalRate();
+
+        return StochEvent.mark(nextProc(),
+                               nextTime(totalRate));
+    }
+
+    private StochProc nextProc() {
+        return rateTree.select(random);
+    }
+
+    private StochTime nextTime(StochRate totalRate) {
+        return totalRate.sampleTime(system.lastEventTime(), random);
+    }
+
+    @Override protected void updateState(StochEvent event, Collection<? extends StochProc> dependents) {
+        rateTree.updateRates(event.getProc(), dependents);
+    }
+
+    @Override public void advance() {
+        //
+        // Select the next event and update the system with primitive
+        // rates and times, so that no event objects are created...
+        //
+        fire(StochRate.sampleTime(rateTree.getTotalRateValue(), system.lastEventTimeValue(), random));
+    }
+
+    @Override protected void advanceBefore(double horizon) {
+        while (true) {
+            double time = StochRate.sampleTime(rateTree.getTotalRateValue(), system.lastEventTimeValue(), random);
+
+            //
+            // The waiting time is memoryless, so an event sampled past
+            // the horizon may be discarded and resampled later...
+            //
+            if (Double.isInfinite(time) || time > horizon)
+                return;
+
+            fire(time);
+        }
+    }
+
+    private void fire(double time) {
+        StochProc proc = nextProc();
+
+        system.updateState(proc, time);
+
+        if (slotGraph == null) {
+            rateTree.updateRates(proc, system.viewDependents(proc));
+            return;
+        }
+
+        rateTree.updateRate(proc);
+
+        int slot = slotMap.getSlot(proc);
+
+        for (int edge = slotGraph.edgeStart(slot); edge < slotGraph.edgeEnd(slot); ++edge)
+            rateTree.updateRate(slotMap.getProc(slotGraph.successor(edge)));
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.Collection;
+
+import com.tipplerow.jam.dist.ExponentialDistribution;
+import com.tipplerow.jam.lang.JamException;
+import com.tipplerow.jam.math.JamRandom;
+
+/**
+ * Implements the <em>modified next reaction</em> stochastic simulation
+ * method of Anderson [J. Chem. Phys. (2007) 127, 214107].
+ *
+ * <p>Each process {@code k} carries an <em>internal clock</em>
+ * {@code T(k)}, the integral of its rate since the start of the
+ * simulation, and the internal time {@code P(k)} of its next firing.
+ * The next absolute firing time of every process follows from the
+ * two clocks and its rate; the earliest firing time is maintained in
+ * a {@link TimeHeap}.  When process {@code k} fires, only {@code P(k)}
+ * advances by a unit exponential deviate (one random draw per event),
+ * and the absolute firing times of the dependent processes are
+ * recomputed from their clocks without rescaling or random draws.
+ *
+ * <p>The clocks are advanced lazily: the internal time of a process
+ * is brought up to date only when its rate changes.  Processes that
+ * implement {@link TimeVaryingProc} have their rates integrated over
+ * time, so rates that vary continuously between events are simulated
+ * exactly.  The clocks of the dependent processes are advanced to the
+ * event time <em>before</em> the event is applied to the system, so
+ * each interval is integrated with the state that held during it; the
+ * per-event path therefore advances them in {@code nextEvent}.
+ *
+ * <p>Each step updates the clocks of the dependent processes in place,
+ * without creating any event objects.  If the system has been frozen,
+ * the dependents are read from its compiled graph; otherwise, they are
+ * found through the mutable dependency graph after each event (creating
+ * the algorithm does not freeze the system).  The new firing times of
+ * the dependent processes are applied to the heap in one batch, so the
+ * heap may be rebuilt in linear time when an event changes the rates of
+ * a large fraction of the processes.
+ *
+ * <p>Processes that will never fire at their current rates (those with
+ * infinite firing times) are <em>dormant</em>: they are removed from the
+ * heap, so the heap size tracks the number of live processes, and they
+ * re-enter the heap when an event in one of their predecessors gives
+ * them a finite firing time.
+ *
+ * @author Scott Shaffer
+ */
+public final class ModifiedNextReactionAlgo extends StochAlgo {
+    private final ProcSlotMap slotMap;
+    private final SlotGraph slotGraph;
+    private final TimeHeap timeHeap;
+
+    // The rate of each process (as of its last update), its internal
+    // time at its last update, the absolute time of its last update,
+    // and the internal time of its next firing...
+    private final double[] rates;
+    private final double[] internal;
+    private final double[] updated;
+    private final double[] target;
+
+    // The slots of the dependent processes of the next event, whose
+    // clocks have been advanced to its time...
+    private final int[] dependentSlots;
+    private int dependentCount = 0;
+
+    // The slots and new firing times of dependent processes that are
+    // waiting to be applied to the heap...
+    private final int[] updateSlots;
+    private final double[] updateTimes;
+    private int updateCount = 0;
+
+    private ModifiedNextReactionAlgo(JamRandom random, StochSystem system) {
+        super(random, system);
+
+        this.slotMap = ProcSlotMap.create(system);
+        this.slotGraph = system.isFrozen() ? system.getSlotGraph() : null;
+        this.timeHeap = TimeHeap.create(slotMap.size());
+
+        this.rates = new double[slotMap.size()];
+        this.internal = new double[slotMap.size()];
+        this.updated = new double[slotMap.size()];
+        this.target = new double[slotMap.size()];
+        this.dependentSlots = new int[slotMap.size()];
+        this.updateSlots = new int[slotMap.size()];
+        this.updateTimes = new double[slotMap.size()];
+
+        double time = system.lastEventTime().doubleValue();
+
+        for (int slot = 0; slot < slotMap.size(); ++slot) {
+            rates[slot] = slotMap.getProc(slot).getRateValue();
+            updated[slot] = time;
+            target[slot] = ExponentialDistribution.sample(1.0, random);
+
+            double firingTime = computeFiringTime(slot);
+
+            if (Double.isFinite(firingTime))
+                timeHeap.addEvent(slot, firingTime);
+        }
+    }
+
+    /**
+     * Creates a new stochastic simulation algorithm that implements
+     * the <em>modified next reaction</em> method of Anderson [J. Chem.
+     * Phys. (2007) 127, 214107].
+     *
+     * @param random the random number source.
+     *
+     * @param system the stochastic system to simulate.
+     *
+     * @return a modified next-reaction simulation algorithm for the
+     * specified system.
+     */
+    public static ModifiedNextReactionAlgo create(JamRandom random, StochSystem system) {
+        return new ModifiedNextReactionAlgo(random, system);
+    }
+
+    private double computeFiringTime(int slot) {
+        double remaining = target[slot] - internal[slot];
+        StochProc proc = slotMap.getProc(slot);
+
+        if (proc instanceof TimeVaryingProc)
+            return ((TimeVaryingProc) proc).solveIntegral(updated[slot], remaining);
+
+        if (rates[slot] > 0.0)
+            return updated[slot] + remaining / rates[slot];
+        else
+            return Double.POSITIVE_INFINITY;
+    }
+
+    private void advanceClock(int slot, double time) {
+        StochProc proc = slotMap.getProc(slot);
+
+        if (proc instanceof TimeVaryingProc)
+            internal[slot] += ((TimeVaryingProc) proc).integrateRate(updated[slot], time);
+        else
+            internal[slot] += rates[slot] * (time - updated[slot]);
+
+        updated[slot] = time;
+    }
+
+    /**
+     * Returns the number of live processes (those with finite firing
+     * times) held in the event heap; dormant processes are excluded.
+     *
+     * @return the number of live processes held in the event heap.
+     */
+    public int countLive() {
+        return timeHeap.size();
+    }
+
+    private void applyDependents() {
+        timeHeap.updateEvents(updateSlots, updateTimes, updateCount);
+        updateCount = 0;
+    }
+
+    private void advanceDependents(int slot, double time) {
+        //
+        // Collect the dependents of the process that will fire and
+        // integrate their clocks up to the event time while the system
+        // still holds the state before the event...
+        //
+        dependentCount = 0;
+
+        if (slotGraph != null) {
+            for (int edge = slotGraph.edgeStart(slot); edge < slotGraph.edgeEnd(slot); ++edge)
+                dependentSlots[dependentCount++] = slotGraph.successor(edge);
+        }
+        else {
+            for (StochProc dependent : system.viewDependents(slotMap.getProc(slot)))
+                dependentSlots[dependentCount++] = slotMap.getSlot(dependent);
+        }
+
+        for (int index = 0; index < dependentCount; ++index)
+            advanceClock(dependentSlots[index], time);
+    }
+
+    private void stageDependent(int slot) {
+        rates[slot] = slotMap.getProc(slot).getRateValue();
+
+        double firingTime = computeFiringTime(slot);
+
+        if (!timeHeap.containsSlot(slot)) {
+            if (Double.isFinite(firingTime))
+                timeHeap.addEvent(slot, firingTime);
+        }
+        else if (Double.isInfinite(firingTime)) {
+            timeHeap.removeSlot(slot);
+        }
+        else {
+            updateSlots[updateCount] = slot;
+            updateTimes[updateCount] = firingTime;
+            ++updateCount;
+        }
+    }
+
+    private void updateFired(int slot, double time) {
+        //
+        // The process that fired has reached its target internal time
+        // exactly (up to round-off)...
+        //
+        internal[slot] = target[slot];
+        updated[slot] = time;
+        target[slot] += ExponentialDistribution.sample(1.0, random);
+
+        rates[slot] = slotMap.getProc(slot).getRateValue();
+
+        double firingTime = computeFiringTime(slot);
+
+        if (Double.isFinite(firingTime))
+            timeHeap.updateEvent(slot, firingTime);
+        else
+            timeHeap.removeSlot(slot);
+    }
+
+    @Override public void advance() {
+        if (timeHeap.size() == 0)
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        fire(timeHeap.nextSlot(), timeHeap.nextTime());
+    }
+
+    @Override protected void advanceBefore(double horizon) {
+        //
+        // The next event remains in the heap (uncommitted) if it
+        // would occur after the horizon...
+        //
+        while (timeHeap.size() > 0 && timeHeap.nextTime() <= horizon)
+            fire(timeHeap.nextSlot(), timeHeap.nextTime());
+    }
+
+    private void fire(int slot, double time) {
+        advanceDependents(slot, time);
+        system.updateState(slotMap.getProc(slot), time);
+        updateEvents(slot, time);
+    }
+
+    private void updateEvents(int slot, double time) {
+        //
+        // The dependent clocks were advanced before the event, so only
+        // their rates and firing times change now...
+        //
+        updateFired(slot, time);
+
+        for (int index = 0; index < dependentCount; ++index)
+            stageDependent(dependentSlots[index]);
+
+        dependentCount = 0;
+        applyDependents();
+    }
+
+    @Override protected StochEvent nextEvent() {
+        if (timeHeap.size() == 0)
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        int slot = timeHeap.nextSlot();
+        double time = timeHeap.nextTime();
+
+        //
+        // The caller applies the event to the system before calling
+        // updateState, so the dependent clocks must be advanced now...
+        //
+        advanceDependents(slot, time);
+
+        return StochEvent.mark(slotMap.getProc(slot), StochTime.of(time));
+    }
+
+    @Override protected void updateState(StochEvent event, Collection<? extends StochProc> dependents) {
+        updateEvents(slotMap.getSlot(event.getProc()), event.getTime().doubleValue());
+    }
+}
@@ -16,21 +16,76 @@
 package com.tipplerow.jam.stoch;
 
 import java.util.Collection;
+import java.util.function.IntFunction;
 
+import com.tipplerow.jam.dist.ExponentialDistribution;
+import com.tipplerow.jam.lang.JamException;
 import com.tipplerow.jam.math.JamRandom;
 
 /**
  * Implements the <em>next reaction</em> stochastic simulation method
  * of Gibson and Bruck [J. Phys. Chem. A (2000) 104, 1876-1889].
  *
+ * <p>The next event time and the rate of each process (as of its last
+ * update) are stored in primitive arrays indexed by process slot, with
+ * the event times organized in a {@link TimeQueue}; updating the event
+ * times of the dependent processes after each event requires no object
+ * allocation.  The event times are held in a {@link TimeHeap} by default
+ * or in a {@link CalendarQueue}, which is faster for large systems with
+ * smoothly distributed event times.
+ *
+ * <p>Each step reads the earliest slot and time from the queue, records
+ * the event in the system with primitive values, and updates the event
+ * records of the dependent processes in place, so no {@link StochEvent}
+ * is created unless a caller requests {@code lastEvent()} from the
+ * system.  If the system has been frozen, the dependents are read from
+ * its compiled graph; otherwise, they are found through the mutable
+ * dependency graph after each event.  Creating the algorithm does not
+ * freeze the system.  The new event times of the dependent processes
+ * are applied to the queue in one batch, so that a heap may be rebuilt
+ * in linear time when an event changes the rates of a large fraction of
+ * the processes.
+ *
+ * <p>Processes with zero rate are <em>dormant</em>: they are removed
+ * from the queue (rather than held there with infinite event times),
+ * so the queue size tracks the number of live processes.  A dormant
+ * process re-enters the queue when an event in one of its predecessors
+ * gives it a positive rate.
+ *
  * @author Scott Shaffer
  */
 public final class NextReactionAlgo extends StochAlgo {
-    private final EventQueue eventQueue;
+    private final ProcSlotMap slotMap;
+    private final SlotGraph slotGraph;
+    private final TimeQueue timeQueue;
+
+    // The rate of each process when its event time was last computed...
+    private final double[] rates;
+
+    // The slots and new event times of dependent processes that are
+    // waiting to be applied to the queue...
+    private final int[] updateSlots;
+    private final double[] updateTimes;
+    private int updateCount = 0;
 
-    private NextReactionAlgo(JamRandom random, StochSystem system) {
+    private NextReactionAlgo(JamRandom random, StochSystem system, IntFunction<TimeQueue> queueFactory) {
         super(random, system);
-        this.eventQueue = EventQueue.create(StochEvent.first(system, random));
+
+        this.slotMap = ProcSlotMap.create(system);
+        this.slotGraph = system.isFrozen() ? system.getSlotGraph() : null;
+        this.timeQueue = queueFactory.apply(slotMap.size());
+        this.rates = new double[slotMap.size()];
+        this.updateSlots = new int[slotMap.size()];
+        this.updateTimes = new double[slotMap.size()];
+
+        double time = system.lastEventTime().doubleValue();
+
+        for (int slot = 0; slot < slotMap.size(); ++slot) {
+            rates[slot] = slotMap.getProc(slot).getRateValue();
+
+            if (rates[slot] > 0.0)
+                timeQueue.addEvent(slot, sampleTime(time, rates[slot]));
+        }
     }
 
     /**
@@ -46,21 +101,156 @@ public final class NextReactionAlgo extends StochAlgo {
      * system.
      */
     public static NextReactionAlgo create(JamRandom random, StochSystem system) {
-        return new NextReactionAlgo(random, system);
+        return create(random, system, TimeHeap.DEFAULT_ARITY);
     }
 
-    @Override protected StochEvent nextEvent() {
-        return eventQueue.nextEvent();
+    /**
+     * Creates a new stochastic simulation algorithm that implements
+     * the <em>next reaction</em> method of Gibson and Bruck with a
+     * specific event heap layout.
+     *
+     * @param random the random number source.
+     *
+     * @param system the stochastic system to simulate.
+     *
+     * @param arity the number of children of each node in the event
+     * heap (two, four, or eight).
+     *
+     * @return a next-reaction simulation algorithm for the specified
+     * system.
+     *
+     * @throws RuntimeException unless the arity is two, four, or eight.
+     */
+    public static NextReactionAlgo create(JamRandom random, StochSystem system, int arity) {
+        return new NextReactionAlgo(random, system, capacity -> TimeHeap.create(capacity, arity));
     }
 
-    @Override protected void updateState(StochEvent event, Collection<? extends StochProc> dependents) {
-        eventQueue.updateEvent(event.next(random));
+    /**
+     * Creates a new stochastic simulation algorithm that implements
+     * the <em>next reaction</em> method of Gibson and Bruck with the
+     * event times held in a calendar queue.
+     *
+     * @param random the random number source.
+     *
+     * @param system the stochastic system to simulate.
+     *
+     * @return a next-reaction simulation algorithm for the specified
+     * system.
+     */
+    public static NextReactionAlgo createCalendar(JamRandom random, StochSystem system) {
+        return new NextReactionAlgo(random, system, CalendarQueue::create);
+    }
 
-        for (StochProc dependent : dependents) {
-            StochEvent prevEvent = eventQueue.findEvent(dependent);
-            StochEvent nextEvent = prevEvent.update(event, random);
+    private double sampleTime(double prevTime, double rate) {
+        if (rate > 0.0)
+            return prevTime + ExponentialDistribution.sample(rate, random);
+        else
+            return Double.POSITIVE_INFINITY;
+    }
 
-            eventQueue.updateEvent(nextEvent);
+    /**
+     * Returns the number of live processes (those with positive rates)
+     * held in the event queue; dormant processes are excluded.
+     *
+     * @return the number of live processes held in the event queue.
+     */
+    public int countLive() {
+        return timeQueue.size();
+    }
+
+    private void applyDependents() {
+        timeQueue.updateEvents(updateSlots, updateTimes, updateCount);
+        updateCount = 0;
+    }
+
+    private void stageDependent(int slot, double linkedTime) {
+        double oldRate = rates[slot];
+        double newRate = slotMap.getProc(slot).getRateValue();
+
+        if (newRate == oldRate)
+            return;
+
+        rates[slot] = newRate;
+
+        if (newRate <= 0.0) {
+            //
+            // Until the new rate changes, the process will never
+            // occur, so it becomes dormant...
+            //
+            timeQueue.removeSlot(slot);
+        }
+        else if (oldRate <= 0.0) {
+            //
+            // The process was dormant, so we must sample a new waiting
+            // time using the new rate...
+            //
+            timeQueue.addEvent(slot, sampleTime(linkedTime, newRate));
+        }
+        else {
+            //
+            // Gibson and Bruck show that the waiting time to the next
+            // event is equal to the previously unelapsed waiting time
+            // scaled by the ratio of the old to new rates...
+            //
+            updateSlots[updateCount] = slot;
+            updateTimes[updateCount] = linkedTime + (oldRate / newRate) * (timeQueue.findTime(slot) - linkedTime);
+            ++updateCount;
         }
     }
+
+    private void updateFired(int slot, double time) {
+        rates[slot] = slotMap.getProc(slot).getRateValue();
+
+        if (rates[slot] > 0.0)
+            timeQueue.updateEvent(slot, sampleTime(time, rates[slot]));
+        else
+            timeQueue.removeSlot(slot);
+    }
+
+    @Override public void advance() {
+        if (timeQueue.size() == 0)
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        fire(timeQueue.nextSlot(), timeQueue.nextTime());
+    }
+
+    @Override protected void advanceBefore(double horizon) {
+        //
+        // The next event remains in the queue (uncommitted) if it
+        // would occur after the horizon...
+        //
+        while (timeQueue.size() > 0 && timeQueue.nextTime() <= horizon)
+            fire(timeQueue.nextSlot(), timeQueue.nextTime());
+    }
+
+    private void fire(int slot, double time) {
+        system.updateState(slotMap.getProc(slot), time);
+        updateEvents(slot, time);
+    }
+
+    private void updateEvents(int slot, double time) {
+        updateFired(slot, time);
+
+        if (slotGraph != null) {
+            for (int edge = slotGraph.edgeStart(slot); edge < slotGraph.edgeEnd(slot); ++edge)
+                stageDependent(slotGraph.successor(edge), time);
+        }
+        else {
+            for (StochProc dependent : system.viewDependents(slotMap.getProc(slot)))
+                stageDependent(slotMap.getSlot(dependent), time);
+        }
+
+        applyDependents();
+    }
+
+    @Override protected StochEvent nextEvent() {
+        if (timeQueue.size() == 0)
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        return StochEvent.mark(slotMap.getProc(timeQueue.nextSlot()), StochTime.of(timeQueue.nextTime()));
+    }
+
+    @Override protected void updateState(StochEvent event, Collection<? extends StochProc> dependents) {
+        updateEvents(slotMap.getSlot(event.getProc()), event.getTime().doubleValue());
+    }
 }
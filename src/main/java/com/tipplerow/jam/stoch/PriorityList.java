@@ -15,10 +15,7 @@
  */
 package com.tipplerow.jam.stoch;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
 
 import com.tipplerow.jam.lang.JamException;
 import com.tipplerow.jam.math.DoubleComparator;
@@ -30,13 +27,47 @@ import com.tipplerow.jam.math.JamRandom;
  * allowing for more efficient process selection by direct simulation
  * algorithms.
  *
+ * <p>Lists created by {@code createParking} may also park processes
+ * with zero rate: such <em>dormant</em> processes are moved to the tail
+ * of the list, beyond the live processes that are scanned during
+ * selection, so they cost nothing per event.  Owners of a parking list
+ * must call {@code updateRate} whenever the rate of a process changes,
+ * which parks processes whose rates fall to zero and reactivates dormant
+ * processes whose rates become positive.  Lists created by
+ * {@code create} scan every process and never park any, so callers need
+ * not report rate changes.
+ *
  * @author Scott Shaffer
  */
 public final class PriorityList {
-    private final List<StochProc> procList;
+    private final ProcSlotMap slotMap;
+
+    // The processes and their slots, ordered by priority: the live
+    // processes occupy elements 0 through liveCount - 1 and the dormant
+    // processes follow...
+    private final StochProc[] procArray;
+    private final int[] slotArray;
+    private int liveCount;
+
+    // The position in procArray of the process in each slot...
+    private final int[] positions;
+
+    // Whether processes with zero rate are parked...
+    private final boolean parking;
+
+    private PriorityList(ProcSlotMap slotMap, boolean parking) {
+        this.slotMap = slotMap;
+        this.parking = parking;
+        this.procArray = new StochProc[slotMap.size()];
+        this.slotArray = new int[slotMap.size()];
+        this.positions = new int[slotMap.size()];
+        this.liveCount = parking ? 0 : slotMap.size();
 
-    private PriorityList(Collection<? extends StochProc> procs) {
-        this.procList = new ArrayList<>(procs);
+        for (int slot = 0; slot < slotMap.size(); ++slot)
+            assign(slot, slot);
+
+        for (int slot = 0; slot < slotMap.size(); ++slot)
+            updateRate(slotMap.getProc(slot));
     }
 
     /**
@@ -50,7 +81,7 @@ public final class PriorityList {
      * processes.
      */
     public static PriorityList create(Collection<? extends StochProc> procs) {
-        return new PriorityList(procs);
+        return new PriorityList(ProcSlotMap.create(procs), false);
     }
 
     /**
@@ -64,7 +95,102 @@ public final class PriorityList {
      * system.
      */
     public static PriorityList create(StochSystem system) {
-        return create(system.viewProcesses());
+        return new PriorityList(ProcSlotMap.create(system), false);
+    }
+
+    /**
+     * Creates a new priority list for a fixed collection of stochastic
+     * processes that parks processes with zero rate; the owner must call
+     * {@code updateRate} whenever the rate of a process changes.
+     *
+     * @param procs the stochastic processes to include in the
+     * list.
+     *
+     * @return a new parking priority list for the specified stochastic
+     * processes.
+     */
+    public static PriorityList createParking(Collection<? extends StochProc> procs) {
+        return new PriorityList(ProcSlotMap.create(procs), true);
+    }
+
+    /**
+     * Creates a new priority list for the processes in a stochastic
+     * system that parks processes with zero rate; the owner must call
+     * {@code updateRate} whenever the rate of a process changes.
+     *
+     * @param system the system of stochastic processes to include in
+     * the list.
+     *
+     * @return a new parking priority list for the specified stochastic
+     * system.
+     */
+    public static PriorityList createParking(StochSystem system) {
+        return new PriorityList(ProcSlotMap.create(system), true);
+    }
+
+    private void assign(int position, int slot) {
+        procArray[position] = slotMap.getProc(slot);
+        slotArray[position] = slot;
+        positions[slot] = position;
+    }
+
+    private void swap(int position1, int position2) {
+        int slot1 = slotArray[position1];
+        int slot2 = slotArray[position2];
+
+        assign(position1, slot2);
+        assign(position2, slot1);
+    }
+
+    /**
+     * Returns the number of live processes (those with positive rates
+     * as of their last update) in this list; every process is live in
+     * a list that does not park processes.
+     *
+     * @return the number of live processes in this list.
+     */
+    public int countLive() {
+        return liveCount;
+    }
+
+    /**
+     * Determines whether a process is dormant (parked with zero rate).
+     *
+     * @param proc the process in question.
+     *
+     * @return {@code true} iff the specified process is dormant.
+     *
+     * @throws RuntimeException unless this list contains the process.
+     */
+    public boolean isDormant(StochProc proc) {
+        return positions[slotMap.getSlot(proc)] >= liveCount;
+    }
+
+    /**
+     * Updates the status of a process after its rate has changed,
+     * parking the process if its rate has fallen to zero or
+     * reactivating it if its rate has become positive.  This method
+     * has no effect on a list that does not park processes.
+     *
+     * @param proc the process whose rate has changed.
+     *
+     * @throws RuntimeException unless this list contains the process.
+     */
+    public void updateRate(StochProc proc) {
+        if (!parking)
+            return;
+
+        int position = positions[slotMap.getSlot(proc)];
+        boolean live = proc.getRateValue() > 0.0;
+
+        if (live && position >= liveCount) {
+            swap(position, liveCount);
+            ++liveCount;
+        }
+        else if (!live && position < liveCount) {
+            --liveCount;
+            swap(position, liveCount);
+        }
     }
 
     /**
@@ -84,15 +210,35 @@ public final class PriorityList {
      * @throws RuntimeException unless the total rate is positive.
      */
     public StochProc select(JamRandom random, StochRate totalRate) {
-        if (!totalRate.isPositive())
+        return select(random, totalRate.doubleValue());
+    }
+
+    /**
+     * Selects a process {@code k} at random from this list with a
+     * probability equal to {@code r(k) / rT}, where {@code r(k)} is
+     * the instantaneous rate of process {@code k} and {@code rT} is
+     * the total rate of all processes in this list.
+     *
+     * @param random a random number source.
+     *
+     * @param totalRate the total instantaneous transition rate over
+     * all processes in this list.
+     *
+     * @return a process {@code k} chosen randomly with probability
+     * {@code r(k) / rT}.
+     *
+     * @throws RuntimeException unless the total rate is positive.
+     */
+    public StochProc select(JamRandom random, double totalRate) {
+        if (!DoubleComparator.DEFAULT.isPositive(totalRate))
             throw JamException.runtime("Total transition rate must be positive.");
         
         double rateTotal = 0.0;
-        double threshold = random.nextDouble() * totalRate.doubleValue();
+        double threshold = random.nextDouble() * totalRate;
 
-        for (int procIndex = 0; procIndex < procList.size(); ++procIndex) {
-            StochProc process = procList.get(procIndex);
-            rateTotal += process.getStochRate().doubleValue();
+        for (int procIndex = 0; procIndex < liveCount; ++procIndex) {
+            StochProc process = procArray[procIndex];
+            rateTotal += process.getRateValue();
 
             if (DoubleComparator.DEFAULT.GE(rateTotal, threshold)) {
                 //
@@ -101,7 +247,7 @@ public final class PriorityList {
                 // "bubble up" to the head of the list...
                 //
                 if (procIndex > 0)
-                    Collections.swap(procList, procIndex, procIndex - 1);
+                    swap(procIndex, procIndex - 1);
 
                 return process;
             }
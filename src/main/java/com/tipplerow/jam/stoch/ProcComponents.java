@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Partitions the processes in a stochastic system into the connected
+ * components of its dependency graph (with the direction of the rate
+ * links ignored).  Processes in separate components never affect one
+ * another's rates, so the components may be simulated independently.
+ *
+ * <p>The components are identified by a union-find pass over the rate
+ * links.  The components are ordered by their first process and the
+ * processes within each component keep the system order, so the
+ * partition depends only on the system.
+ *
+ * @author Scott Shaffer
+ */
+public final class ProcComponents {
+    private final ProcSlotMap slotMap;
+
+    // The index of the component containing the process in each slot...
+    private final int[] componentIndex;
+
+    private final List<List<StochProc>> components;
+
+    private ProcComponents(StochSystem system) {
+        this.slotMap = system.getSlotMap();
+        this.componentIndex = new int[slotMap.size()];
+        this.components = new ArrayList<>();
+
+        int[] parents = unite(system);
+
+        // The component index assigned to each root slot...
+        int[] rootIndex = new int[slotMap.size()];
+        Arrays.fill(rootIndex, -1);
+
+        for (int slot = 0; slot < slotMap.size(); ++slot) {
+            int root = findRoot(parents, slot);
+
+            if (rootIndex[root] < 0) {
+                rootIndex[root] = components.size();
+                components.add(new ArrayList<>());
+            }
+
+            componentIndex[slot] = rootIndex[root];
+            components.get(rootIndex[root]).add(slotMap.getProc(slot));
+        }
+    }
+
+    private int[] unite(StochSystem system) {
+        int[] parents = new int[slotMap.size()];
+
+        for (int slot = 0; slot < parents.length; ++slot)
+            parents[slot] = slot;
+
+        for (int slot = 0; slot < parents.length; ++slot) {
+            for (StochProc successor : system.viewDependents(slotMap.getProc(slot))) {
+                int root1 = findRoot(parents, slot);
+                int root2 = findRoot(parents, slotMap.getSlot(successor));
+
+                //
+                // Attach the later root to the earlier root, so that
+                // every root is the first slot in its component...
+                //
+                if (root1 < root2)
+                    parents[root2] = root1;
+                else if (root2 < root1)
+                    parents[root1] = root2;
+            }
+        }
+
+        return parents;
+    }
+
+    private static int findRoot(int[] parents, int slot) {
+        while (parents[slot] != slot) {
+            //
+            // Path halving...
+            //
+            parents[slot] = parents[parents[slot]];
+            slot = parents[slot];
+        }
+
+        return slot;
+    }
+
+    /**
+     * Partitions the processes in a stochastic system into connected
+     * components.
+     *
+     * @param system the system to partition.
+     *
+     * @return the connected components of the specified system.
+     */
+    public static ProcComponents create(StochSystem system) {
+        return new ProcComponents(system);
+    }
+
+    /**
+     * Returns the number of connected components.
+     *
+     * @return the number of connected components.
+     */
+    public int countComponents() {
+        return components.size();
+    }
+
+    /**
+     * Returns the index of the component that contains a process.
+     *
+     * @param proc a process in the partitioned system.
+     *
+     * @return the zero-based index of the component that contains the
+     * specified process.
+     *
+     * @throws RuntimeException unless the partitioned system contains
+     * the process.
+     */
+    public int getComponentIndex(StochProc proc) {
+        return componentIndex[slotMap.getSlot(proc)];
+    }
+
+    /**
+     * Returns a read-only view of the processes in one component.
+     *
+     * @param index the zero-based index of the component.
+     *
+     * @return a read-only view of the processes in the specified
+     * component, in system order.
+     *
+     * @throws IndexOutOfBoundsException unless the index is valid.
+     */
+    public List<StochProc> viewComponent(int index) {
+        return Collections.unmodifiableList(components.get(index));
+    }
+}
@@ -104,6 +104,15 @@ public final class ProcGraph {
             link(predecessor, successor);
     }
 
+    /**
+     * Returns the total number of edges in this graph.
+     *
+     * @return the total number of edges in this graph.
+     */
+    public int countEdges() {
+        return forward.size();
+    }
+
     /**
      * Returns all direct successor processes to a given predecessor
      * process.
@@ -114,7 +123,14 @@ public final class ProcGraph {
      * specified process.
      */
     public Set<? extends StochProc> get(StochProc predecessor) {
-        return Collections.unmodifiableSet(forward.get(predecessor));
+        //
+        // Avoid creating a new view for processes without successors,
+        // which are common in sparsely coupled systems...
+        //
+        if (forward.containsKey(predecessor))
+            return Collections.unmodifiableSet(forward.get(predecessor));
+        else
+            return Collections.emptySet();
     }
 
     /**
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.tipplerow.jam.lang.JamException;
+
+/**
+ * Assigns dense, zero-based <em>slot</em> indexes to the processes in
+ * a <em>fixed</em> stochastic system, so that simulation algorithms
+ * may store per-process state in primitive arrays.
+ *
+ * <p>Process ordinal indexes are unique across the entire JVM, so they
+ * are not suitable array indexes on their own.  The slot map resolves
+ * an ordinal index to its slot through a direct lookup table spanning
+ * the range of ordinal indexes in the system; no hashing or boxing is
+ * required.
+ *
+ * @author Scott Shaffer
+ */
+public final class ProcSlotMap {
+    // The processes indexed by their slot...
+    private final StochProc[] procs;
+
+    // The smallest process ordinal index in the map...
+    private final int minIndex;
+
+    // The slot for each process, indexed by the process ordinal
+    // index offset by "minIndex" (NO_SLOT for missing ordinals)...
+    private final int[] slots;
+
+    private static final int NO_SLOT = -1;
+
+    private ProcSlotMap(Collection<? extends StochProc> procs) {
+        this.procs = procs.toArray(new StochProc[0]);
+        this.minIndex = findMinIndex(this.procs);
+        this.slots = new int[findMaxIndex(this.procs) - minIndex + 1];
+
+        Arrays.fill(slots, NO_SLOT);
+
+        for (int slot = 0; slot < this.procs.length; ++slot) {
+            int offset = this.procs[slot].getProcIndex() - minIndex;
+
+            if (slots[offset] != NO_SLOT)
+                throw JamException.runtime("Duplicate process index: [%d].", this.procs[slot].getProcIndex());
+
+            slots[offset] = slot;
+        }
+    }
+
+    private static int findMinIndex(StochProc[] procs) {
+        int result = Integer.MAX_VALUE;
+
+        for (StochProc proc : procs)
+            result = Math.min(result, proc.getProcIndex());
+
+        return procs.length > 0 ? result : 0;
+    }
+
+    private static int findMaxIndex(StochProc[] procs) {
+        int result = Integer.MIN_VALUE;
+
+        for (StochProc proc : procs)
+            result = Math.max(result, proc.getProcIndex());
+
+        return procs.length > 0 ? result : -1;
+    }
+
+    /**
+     * Creates a new slot map for a fixed collection of processes; the
+     * slots are assigned in the iteration order of the collection.
+     *
+     * @param procs the processes to include in the map.
+     *
+     * @return a new slot map for the specified processes.
+     *
+     * @throws RuntimeException if any processes share the same index.
+     */
+    public static ProcSlotMap create(Collection<? extends StochProc> procs) {
+        return new ProcSlotMap(procs);
+    }
+
+    /**
+     * Creates a slot map for the processes in a stochastic system.  The
+     * slot map for a frozen system is shared, so its slots agree with
+     * those of the compiled dependency graph.
+     *
+     * @param system the stochastic system to map.
+     *
+     * @return a slot map for the processes in the specified system.
+     */
+    public static ProcSlotMap create(StochSystem system) {
+        if (system.isFrozen())
+            return system.getSlotMap();
+        else
+            return create(system.viewProcesses());
+    }
+
+    /**
+     * Identifies processes contained in this map.
+     *
+     * @param proc the process in question.
+     *
+     * @return {@code true} iff this map contains the specified
+     * process.
+     */
+    public boolean contains(StochProc proc) {
+        int offset = proc.getProcIndex() - minIndex;
+        return 0 <= offset && offset < slots.length && slots[offset] != NO_SLOT;
+    }
+
+    /**
+     * Returns the process assigned to a given slot.
+     *
+     * @param slot the slot of interest.
+     *
+     * @return the process assigned to the specified slot.
+     *
+     * @throws IndexOutOfBoundsException unless the slot is valid.
+     */
+    public StochProc getProc(int slot) {
+        return procs[slot];
+    }
+
+    /**
+     * Returns the slot assigned to a given process.
+     *
+     * @param proc the process of interest.
+     *
+     * @return the slot assigned to the specified process.
+     *
+     * @throws RuntimeException unless this map contains the specified
+     * process.
+     */
+    public int getSlot(StochProc proc) {
+        if (contains(proc))
+            return slots[proc.getProcIndex() - minIndex];
+        else
+            throw StochSystem.invalidProcessException(proc);
+    }
+
+    /**
+     * Returns the number of processes (and slots) in this map.
+     *
+     * @return the number of processes (and slots) in this map.
+     */
+    public int size() {
+        return procs.length;
+    }
+}
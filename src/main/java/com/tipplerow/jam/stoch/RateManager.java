@@ -16,8 +16,8 @@
 package com.tipplerow.jam.stoch;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+
+import com.tipplerow.jam.lang.JamException;
 
 /**
  * Efficiently maintains the total instantaneous transition rate for a
@@ -28,8 +28,14 @@ import java.util.Map;
  * @author Scott Shaffer
  */
 public final class RateManager {
-    private final StochSystem system;
-    private final Map<StochProc, StochRate> rateMap;
+    private final ProcSlotMap slotMap;
+
+    // The compiled dependency graph (null unless the system was frozen
+    // when this manager was created)...
+    private final SlotGraph slotGraph;
+
+    // The rate of each process at its last update, indexed by slot...
+    private final double[] rates;
 
     private final int ageThreshold;
     private final int procThreshold;
@@ -40,8 +46,9 @@ public final class RateManager {
     private static final int MAX_AGE_THRESHOLD = 1000000;
 
     private RateManager(StochSystem system) {
-        this.system = system;
-        this.rateMap = new HashMap<>();
+        this.slotMap = ProcSlotMap.create(system);
+        this.slotGraph = system.isFrozen() ? system.getSlotGraph() : null;
+        this.rates = new double[slotMap.size()];
 
         this.ageThreshold = computeAgeThreshold(system);
         this.procThreshold = computeProcThreshold(system);
@@ -74,11 +81,9 @@ public final class RateManager {
         rateAge = 0;
         totalRate = 0.0;
 
-        for (StochProc proc : system.viewProcesses()) {
-            StochRate rate = proc.getStochRate();
-
-            rateMap.put(proc, rate);
-            totalRate += rate.doubleValue();
+        for (int slot = 0; slot < rates.length; ++slot) {
+            rates[slot] = slotMap.getProc(slot).getRateValue();
+            totalRate += rates[slot];
         }
     }
 
@@ -90,12 +95,24 @@ public final class RateManager {
             updateProc(dependent);
     }
 
+    private void updatePartial(int eventSlot) {
+        ++rateAge;
+        updateSlot(eventSlot);
+
+        for (int edge = slotGraph.edgeStart(eventSlot); edge < slotGraph.edgeEnd(eventSlot); ++edge)
+            updateSlot(slotGraph.successor(edge));
+    }
+
     private void updateProc(StochProc proc) {
-        StochRate oldRate = rateMap.get(proc);
-        StochRate newRate = proc.getStochRate();
+        updateSlot(slotMap.getSlot(proc));
+    }
+
+    private void updateSlot(int slot) {
+        double oldRate = rates[slot];
+        double newRate = slotMap.getProc(slot).getRateValue();
 
-        rateMap.put(proc, newRate);
-        totalRate += (newRate.doubleValue() - oldRate.doubleValue());
+        rates[slot] = newRate;
+        totalRate += (newRate - oldRate);
     }
 
     /**
@@ -120,6 +137,17 @@ public final class RateManager {
         return StochRate.of(totalRate);
     }
 
+    /**
+     * Returns the total instantaneous transition rate for the
+     * stochastic system as a primitive value.
+     *
+     * @return the total instantaneous transition rate for the
+     * stochastic system.
+     */
+    public double getTotalRateValue() {
+        return totalRate;
+    }
+
     /**
      * Updates the total instantaneous transition rate after an event
      * occurs.
@@ -135,5 +163,27 @@ public final class RateManager {
             updatePartial(eventProc, dependents);
         else
             updateFull();
-   }
+    }
+
+    /**
+     * Updates the total instantaneous transition rate after an event
+     * occurs by traversing the compiled dependency graph of a frozen
+     * system.
+     *
+     * @param eventProc the stochastic processes that occurred.
+     *
+     * @throws RuntimeException unless the system was frozen when this
+     * manager was created.
+     */
+    public void updateTotalRate(StochProc eventProc) {
+        if (slotGraph == null)
+            throw JamException.runtime("The system is not frozen.");
+
+        int eventSlot = slotMap.getSlot(eventProc);
+
+        if (rateAge < ageThreshold && slotGraph.countSuccessors(eventSlot) < procThreshold)
+            updatePartial(eventSlot);
+        else
+            updateFull();
+    }
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.Collection;
+
+import com.tipplerow.jam.lang.JamException;
+import com.tipplerow.jam.math.JamRandom;
+
+/**
+ * Maintains the instantaneous rates of a <em>fixed</em> collection of
+ * stochastic processes in a complete binary sum tree, allowing direct
+ * simulation algorithms to select processes and update rates in time
+ * proportional to the logarithm of the number of processes.
+ *
+ * <p>The process rates are stored in the leaves of the tree and every
+ * internal node holds the sum of its two children.  The root therefore
+ * holds the total rate of all processes.  Each internal node on the
+ * path from an updated leaf to the root is recomputed from its children
+ * (rather than adjusted by the change in rate), so round-off error does
+ * not accumulate and the total rate never requires a full recomputation.
+ *
+ * @author Scott Shaffer
+ */
+public final class RateTree {
+    private final ProcSlotMap slotMap;
+
+    // The number of leaf nodes (a power of two no smaller than the
+    // number of processes); the leaf for the process in slot "k" is
+    // stored at node "leafCount + k"...
+    private final int leafCount;
+
+    // Element 1 is the root; the children of node "n" are located at
+    // "2n" and "2n + 1"; element 0 is unused...
+    private final double[] tree;
+
+    private static final int ROOT_NODE = 1;
+
+    private RateTree(Collection<? extends StochProc> procs) {
+        this.slotMap = ProcSlotMap.create(procs);
+        this.leafCount = computeLeafCount(slotMap.size());
+        this.tree = new double[2 * leafCount];
+
+        for (int slot = 0; slot < slotMap.size(); ++slot)
+            tree[leafCount + slot] = slotMap.getProc(slot).getRateValue();
+
+        for (int node = leafCount - 1; node >= ROOT_NODE; --node)
+            tree[node] = tree[2 * node] + tree[2 * node + 1];
+    }
+
+    private static int computeLeafCount(int procCount) {
+        int leafCount = 1;
+
+        while (leafCount < procCount)
+            leafCount *= 2;
+
+        return leafCount;
+    }
+
+    /**
+     * Creates a new rate tree for a fixed collection of stochastic
+     * processes.
+     *
+     * @param procs the stochastic processes to include in the tree.
+     *
+     * @return a new rate tree for the specified stochastic processes.
+     */
+    public static RateTree create(Collection<? extends StochProc> procs) {
+        return new RateTree(procs);
+    }
+
+    /**
+     * Creates a new rate tree for the processes in a stochastic
+     * system.
+     *
+     * @param system the system of stochastic processes to include in
+     * the tree.
+     *
+     * @return a new rate tree for the specified stochastic system.
+     */
+    public static RateTree create(StochSystem system) {
+        return create(system.viewProcesses());
+    }
+
+    /**
+     * Returns the instantaneous rate of a process as recorded in this
+     * tree (at the time of its last update).
+     *
+     * @param proc the process of interest.
+     *
+     * @return the recorded rate of the specified process.
+     *
+     * @throws RuntimeException unless this tree contains the process.
+     */
+    public StochRate getStochRate(StochProc proc) {
+        return StochRate.of(tree[leafCount + slotMap.getSlot(proc)]);
+    }
+
+    /**
+     * Returns the total instantaneous transition rate over all
+     * processes in this tree.
+     *
+     * @return the total instantaneous transition rate over all
+     * processes in this tree.
+     */
+    public StochRate getTotalRate() {
+        return StochRate.of(tree[ROOT_NODE]);
+    }
+
+    /**
+     * Returns the total instantaneous transition rate over all
+     * processes in this tree as a primitive value.
+     *
+     * @return the total instantaneous transition rate over all
+     * processes in this tree.
+     */
+    public double getTotalRateValue() {
+        return tree[ROOT_NODE];
+    }
+
+    /**
+     * Selects a process {@code k} at random from this tree with a
+     * probability equal to {@code r(k) / rT}, where {@code r(k)} is
+     * the instantaneous rate of process {@code k} and {@code rT} is
+     * the total rate of all processes in this tree.
+     *
+     * @param random a random number source.
+     *
+     * @return a process {@code k} chosen randomly with probability
+     * {@code r(k) / rT}.
+     *
+     * @throws RuntimeException unless the total rate is positive.
+     */
+    public StochProc select(JamRandom random) {
+        if (tree[ROOT_NODE] <= 0.0)
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        int node = ROOT_NODE;
+        double threshold = random.nextDouble() * tree[ROOT_NODE];
+
+        while (node < leafCount) {
+            int left = 2 * node;
+            int right = left + 1;
+
+            //
+            // Never descend into an empty subtree, which could
+            // otherwise occur through round-off error when the
+            // threshold lies very close to a subtree boundary...
+            //
+            if ((threshold < tree[left] && tree[left] > 0.0) || tree[right] <= 0.0) {
+                node = left;
+            }
+            else {
+                threshold -= tree[left];
+                node = right;
+            }
+        }
+
+        return slotMap.getProc(node - leafCount);
+    }
+
+    /**
+     * Updates the rate of a process in this tree after its rate has
+     * changed.
+     *
+     * @param proc the process whose rate has changed.
+     *
+     * @throws RuntimeException unless this tree contains the process.
+     */
+    public void updateRate(StochProc proc) {
+        updateRate(proc, proc.getRateValue());
+    }
+
+    /**
+     * Assigns an explicit rate to a process in this tree, which need
+     * not be the current rate of the process: simulation algorithms
+     * may store rate bounds in the tree, for example.
+     *
+     * @param proc the process to update.
+     *
+     * @param rate the rate to assign.
+     *
+     * @throws RuntimeException unless this tree contains the process.
+     */
+    public void updateRate(StochProc proc, double rate) {
+        int node = leafCount + slotMap.getSlot(proc);
+
+        if (tree[node] == rate)
+            return;
+
+        tree[node] = rate;
+
+        for (node /= 2; node >= ROOT_NODE; node /= 2)
+            tree[node] = tree[2 * node] + tree[2 * node + 1];
+    }
+
+    /**
+     * Updates the rates in this tree after an event occurs.
+     *
+     * @param eventProc the stochastic processes that occurred.
+     *
+     * @param dependents the stochastic processes whose rates have
+     * changed as a result of the latest event (excluding the process
+     * that occurred).
+     */
+    public void updateRates(StochProc eventProc, Collection<? extends StochProc> dependents) {
+        updateRate(eventProc);
+
+        for (StochProc dependent : dependents)
+            updateRate(dependent);
+    }
+}
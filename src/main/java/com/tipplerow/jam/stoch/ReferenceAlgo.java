@@ -56,7 +56,37 @@ public final class ReferenceAlgo extends StochAlgo {
 
     @Override protected StochEvent nextEvent() {
         StochRate totalRate = StochProc.computeTotalRate(system.viewProcesses());
-        return StochEvent.mark(nextProc(totalRate), nextTime(totalRate));
+        return StochEvent.mark(nextProc(totalRate.doubleValue()), nextTime(totalRate));
+    }
+
+    @Override public void advance() {
+        //
+        // Select the next event and update the system with primitive
+        // rates and times, so that no event objects are created...
+        //
+        double totalRate = 0.0;
+
+        for (StochProc proc : system.viewProcesses())
+            totalRate += proc.getRateValue();
+
+        double time = StochRate.sampleTime(totalRate, system.lastEventTimeValue(), random);
+        system.updateState(nextProc(totalRate), time);
+    }
+
+    @Override protected void advanceBefore(double horizon) {
+        while (true) {
+            double totalRate = 0.0;
+
+            for (StochProc proc : system.viewProcesses())
+                totalRate += proc.getRateValue();
+
+            double time = StochRate.sampleTime(totalRate, system.lastEventTimeValue(), random);
+
+            if (Double.isInfinite(time) || time > horizon)
+                return;
+
+            system.updateState(nextProc(totalRate), time);
+        }
     }
 
     @Override protected void updateState(StochEvent event, Collection<? extends StochProc> dependents) {
@@ -67,16 +97,16 @@ public final class ReferenceAlgo extends StochAlgo {
         //
     }
 
-    private StochProc nextProc(StochRate totalRate) {
+    private StochProc nextProc(double totalRate) {
         //
         // Accumulate the process rates until we find one greater than
         // U * totalRate, where U is a uniform random deviate on [0, 1]...
         //
         double procTotal = 0.0;
-        double threshold = random.nextDouble() * totalRate.doubleValue();
+        double threshold = random.nextDouble() * totalRate;
 
         for (StochProc proc : system.viewProcesses()) {
-            procTotal += proc.getStochRate().doubleValue();
+            procTotal += proc.getRateValue();
 
             if (DoubleComparator.DEFAULT.GE(procTotal, threshold))
                 return proc;
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import com.tipplerow.jam.math.JamRandom;
+
+/**
+ * Simulates one replicate in an ensemble of independent simulations
+ * and reduces its trajectory to a summary result.
+ *
+ * <p>Each replicate must create its own stochastic system and
+ * simulation algorithm (processes and systems are mutable), draw
+ * random numbers only from the source that it is given, and reduce
+ * the trajectory as it proceeds (so that the trajectory need not be
+ * retained in memory).
+ *
+ * @param <R> the type of the replicate result.
+ *
+ * @author Scott Shaffer
+ */
+@FunctionalInterface
+public interface ReplicateTask<R> {
+    /**
+     * Simulates one replicate.
+     *
+     * @param replicate the zero-based index of the replicate.
+     *
+     * @param random the random number source dedicated to the
+     * replicate.
+     *
+     * @return the summary result for the replicate.
+     */
+    R run(int replicate, JamRandom random);
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Represents an immutable directed dependency graph for a fixed system
+ * of stochastic processes in <em>compressed sparse row</em> form.
+ *
+ * <p>The processes are identified by their slots in a {@link ProcSlotMap}.
+ * The direct successors of the process in slot {@code k} occupy edges
+ * {@code edgeStart(k)} (inclusive) through {@code edgeEnd(k)} (exclusive)
+ * of a single integer array, in ascending slot order, so each edge
+ * occupies four bytes and the successors are traversed sequentially:
+ * <pre>
+ *     for (int edge = graph.edgeStart(slot); edge &lt; graph.edgeEnd(slot); ++edge)
+ *         update(graph.successor(edge));
+ * </pre>
+ *
+ * @author Scott Shaffer
+ */
+public final class SlotGraph {
+    private final ProcSlotMap slotMap;
+
+    // The successors of slot "k" are stored in elements offsets[k]
+    // through offsets[k + 1] - 1 of the successor array...
+    private final int[] offsets;
+    private final int[] successors;
+
+    private SlotGraph(ProcSlotMap slotMap, ProcGraph procGraph) {
+        this.slotMap = slotMap;
+        this.offsets = new int[slotMap.size() + 1];
+
+        for (int slot = 0; slot < slotMap.size(); ++slot)
+            offsets[slot + 1] = offsets[slot] + procGraph.get(slotMap.getProc(slot)).size();
+
+        this.successors = new int[offsets[slotMap.size()]];
+
+        for (int slot = 0; slot < slotMap.size(); ++slot) {
+            int edge = offsets[slot];
+            Set<? extends StochProc> procs = procGraph.get(slotMap.getProc(slot));
+
+            for (StochProc proc : procs)
+                successors[edge++] = slotMap.getSlot(proc);
+
+            Arrays.sort(successors, offsets[slot], offsets[slot + 1]);
+        }
+    }
+
+    /**
+     * Compiles a dependency graph into compressed sparse row form.
+     *
+     * @param slotMap the slot assignments for the processes.
+     *
+     * @param procGraph the dependency graph to compile.
+     *
+     * @return the compiled form of the specified dependency graph.
+     *
+     * @throws RuntimeException unless the slot map contains every
+     * process in the dependency graph.
+     */
+    public static SlotGraph create(ProcSlotMap slotMap, ProcGraph procGraph) {
+        return new SlotGraph(slotMap, procGraph);
+    }
+
+    /**
+     * Returns the total number of edges in this graph.
+     *
+     * @return the total number of edges in this graph.
+     */
+    public int countEdges() {
+        return successors.length;
+    }
+
+    /**
+     * Returns the number of direct successors of a process.
+     *
+     * @param slot the slot of the process of interest.
+     *
+     * @return the number of direct successors of the process in the
+     * specified slot.
+     */
+    public int countSuccessors(int slot) {
+        return offsets[slot + 1] - offsets[slot];
+    }
+
+    /**
+     * Returns the index of the first edge leaving a process.
+     *
+     * @param slot the slot of the process of interest.
+     *
+     * @return the index of the first edge leaving the process in the
+     * specified slot.
+     */
+    public int edgeStart(int slot) {
+        return offsets[slot];
+    }
+
+    /**
+     * Returns the index one past the last edge leaving a process.
+     *
+     * @param slot the slot of the process of interest.
+     *
+     * @return the index one past the last edge leaving the process in
+     * the specified slot.
+     */
+    public int edgeEnd(int slot) {
+        return offsets[slot + 1];
+    }
+
+    /**
+     * Returns the slot assignments for the processes in this graph.
+     *
+     * @return the slot assignments for the processes in this graph.
+     */
+    public ProcSlotMap getSlotMap() {
+        return slotMap;
+    }
+
+    /**
+     * Returns the successor process at the head of an edge.
+     *
+     * @param edge the index of the edge of interest.
+     *
+     * @return the slot of the process at the head of the specified
+     * edge.
+     */
+    public int successor(int edge) {
+        return successors[edge];
+    }
+}
@@ -16,14 +16,22 @@
 package com.tipplerow.jam.stoch;
 
 import java.util.Collection;
+import java.util.function.Predicate;
 
+import com.tipplerow.jam.lang.JamException;
 import com.tipplerow.jam.math.JamRandom;
 
 import lombok.Getter;
 
 /**
  * Provides a base class for stochastic simulation algorithms.
- * 
+ *
+ * <p>Besides single steps ({@code advance()}), algorithms may be run
+ * for a fixed number of steps, until a time horizon, or until a
+ * condition holds.  Algorithms that can examine the next event before
+ * it occurs override {@code advanceBefore} so that time horizons are
+ * handled exactly.
+ *
  * @author Scott Shaffer
  */
 public abstract class StochAlgo {
@@ -79,4 +87,109 @@ public abstract class StochAlgo {
         system.updateState(event);
         updateState(event, system.viewDependents(event.getProc()));
     }
+
+    /**
+     * Advances the simulation by a fixed number of steps.
+     *
+     * @param count the number of steps to take.
+     *
+     * @throws RuntimeException if the count is negative.
+     */
+    public void advance(long count) {
+        validateCount(count);
+
+        for (long step = 0; step < count; ++step)
+            advance();
+    }
+
+    /**
+     * Advances the simulation until a condition on the underlying
+     * system holds; the condition is tested before each step.
+     *
+     * @param condition the condition that terminates the simulation.
+     *
+     * @return the number of events that occurred.
+     */
+    public long advanceUntil(Predicate<? super StochSystem> condition) {
+        long initCount = system.countEvents();
+
+        while (!condition.test(system))
+            advance();
+
+        return system.countEvents() - initCount;
+    }
+
+    /**
+     * Advances the simulation through every event that occurs at or
+     * before a time horizon and then advances the system clock to the
+     * horizon.
+     *
+     * <p>Exact algorithms do not commit the first event that would
+     * occur after the horizon: the direct methods discard its sampled
+     * time (which is valid because the waiting times are memoryless
+     * and the rates are constant between events) and the next-reaction
+     * methods leave it in their event queues.  The simulation may then
+     * be continued from the horizon with no loss of accuracy.  If the
+     * total rate falls to zero, the simulation stops there.
+     *
+     * <p>Approximate (leaping) algorithms take whole steps and may
+     * therefore overshoot the horizon on their final step; the system
+     * clock is left at the end of that step.
+     *
+     * @param horizon the (absolute) time horizon.
+     *
+     * @return the number of events that occurred.
+     */
+    public long advanceUntil(StochTime horizon) {
+        return advanceUntil(horizon.doubleValue());
+    }
+
+    /**
+     * Advances the simulation through every event that occurs at or
+     * before a time horizon and then advances the system clock to the
+     * horizon (see {@link StochAlgo#advanceUntil(StochTime)}).
+     *
+     * @param horizon the (absolute) time horizon.
+     *
+     * @return the number of events that occurred.
+     */
+    public long advanceUntil(double horizon) {
+        long initCount = system.countEvents();
+        advanceBefore(horizon);
+
+        if (Double.isFinite(horizon) && horizon > system.lastEventTimeValue())
+            system.advanceTime(horizon);
+
+        return system.countEvents() - initCount;
+    }
+
+    /**
+     * Advances the simulation through every event that occurs at or
+     * before a time horizon, without committing the first event that
+     * would occur after the horizon and without moving the system
+     * clock to the horizon.
+     *
+     * <p>This default implementation cannot examine the next event
+     * before it occurs, so it takes whole steps until the system clock
+     * reaches the horizon; algorithms that can examine the next event
+     * must override this method.
+     *
+     * @param horizon the (absolute) time horizon.
+     */
+    protected void advanceBefore(double horizon) {
+        while (system.lastEventTimeValue() < horizon)
+            advance();
+    }
+
+    /**
+     * Ensures that a step or event count is non-negative.
+     *
+     * @param count the count to validate.
+     *
+     * @throws RuntimeException if the count is negative.
+     */
+    protected static void validateCount(long count) {
+        if (count < 0)
+            throw JamException.runtime("Step count must be non-negative.");
+    }
 }
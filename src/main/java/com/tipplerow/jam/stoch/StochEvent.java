@@ -54,9 +54,13 @@ public final class StochEvent implements Comparable<StochEvent> {
     private final StochTime time;
 
     private StochEvent(StochProc proc, StochTime time) {
+        this(proc, proc.getStochRate(), time);
+    }
+
+    private StochEvent(StochProc proc, StochRate rate, StochTime time) {
         this.proc = proc;
+        this.rate = rate;
         this.time = time;
-        this.rate = proc.getStochRate();
     }
 
     /**
@@ -70,6 +74,20 @@ public final class StochEvent implements Comparable<StochEvent> {
         return new StochEvent(proc, time);
     }
 
+    /**
+     * Creates a new object to mark the occurrence of an event that
+     * was recorded with primitive values.
+     *
+     * @param proc the stochastic process that has occurred.
+     *
+     * @param rate the rate of the process when the event occurred.
+     *
+     * @param time the (absolute) time when the event occurred.
+     */
+    static StochEvent mark(StochProc proc, double rate, double time) {
+        return new StochEvent(proc, StochRate.of(rate), StochTime.of(time));
+    }
+
     /**
      * Samples the first occurrence of a stochastic process from an
      * exponential probability distribution with a rate parameter
@@ -42,14 +42,14 @@ public abstract class StochProc extends Ordinal {
      * in ascending order (slowest process first).
      */
     public static final Comparator<StochProc> ASCENDING_RATE_COMPARATOR =
-            (proc1, proc2) -> StochRate.ASCENDING_COMPARATOR.compare(proc1.getStochRate(), proc2.getStochRate());
+            (proc1, proc2) -> Double.compare(proc1.getRateValue(), proc2.getRateValue());
 
     /**
      * A comparator that orders processes by their instantaneous rates
      * in descending order (fastest process first).
      */
     public static final Comparator<StochProc> DESCENDING_RATE_COMPARATOR =
-            (proc1, proc2) -> StochRate.DESCENDING_COMPARATOR.compare(proc1.getStochRate(), proc2.getStochRate());
+            (proc1, proc2) -> Double.compare(proc2.getRateValue(), proc1.getRateValue());
 
     /**
      * Computes the total rate for a collection of stochastic processes.
@@ -62,7 +62,7 @@ public abstract class StochProc extends Ordinal {
         double totalRate = 0.0;
 
         for (StochProc proc : procs)
-            totalRate += proc.getStochRate().doubleValue();
+            totalRate += proc.getRateValue();
 
         return StochRate.of(totalRate);
     }
@@ -74,6 +74,19 @@ public abstract class StochProc extends Ordinal {
      */
     public abstract StochRate getStochRate();
 
+    /**
+     * Returns the instantaneous rate of this process as a primitive
+     * value.  Simulation algorithms call this method on every event,
+     * so subclasses that compute their rates on demand should override
+     * it to avoid creating a new {@code StochRate} object on each call;
+     * this default implementation unwraps {@code getStochRate()}.
+     *
+     * @return the instantaneous rate of this process.
+     */
+    public double getRateValue() {
+        return getStochRate().doubleValue();
+    }
+
     /**
      * Returns the unique ordinal index for this process.
      *
@@ -105,6 +105,28 @@ public final class StochRate extends DomainDouble implements Comparable<StochRat
         return ExponentialDistribution.sample(doubleValue(), random);
     }
 
+    /**
+     * Generates a random sample for the (absolute) time of the next
+     * occurrence of a stochastic process with a given rate, without
+     * creating any rate or time objects.
+     *
+     * @param rate the instantaneous rate of the process.
+     *
+     * @param prevTime the time when the previous event occurred.
+     *
+     * @param random a random number source.
+     *
+     * @return a random sample for the (absolute) time of the next
+     * occurrence of a stochastic process with the specified rate
+     * ({@code Double.POSITIVE_INFINITY} if the rate is not positive).
+     */
+    public static double sampleTime(double rate, double prevTime, JamRandom random) {
+        if (rate > 0.0)
+            return prevTime + ExponentialDistribution.sample(rate, random);
+        else
+            return Double.POSITIVE_INFINITY;
+    }
+
     /**
      * Generates a random sample for the (absolute) time of the next
      * occurrence of a stochastic process with this rate.
@@ -32,11 +32,29 @@ public abstract class StochSystem {
     private final ProcGraph graph = ProcGraph.create();
     private final Map<Integer, StochProc> procs = new LinkedHashMap<>();
 
+    // Slot assignments for the current processes, which validate
+    // events without boxing the process index (created on demand and
+    // discarded whenever processes are added or removed)...
+    private ProcSlotMap slotMap = null;
+
+    // The compiled dependency graph (null until the system is frozen)...
+    private SlotGraph slotGraph = null;
+
     // The number of events that have occurred...
     private long eventCount = 0L;
 
-    // The most recent event to occur...
+    // The process that occurred in the most recent event (null after
+    // a leap) and its rate when the event occurred...
+    private StochProc lastProc = null;
+    private double lastRate = 0.0;
+
+    // The time of the most recent event or leap...
+    private double lastTimeValue = 0.0;
+
+    // The most recent event and its time, which are created on demand
+    // when the event is recorded with primitive values...
     private StochEvent lastEvent = null;
+    private StochTime lastTime = StochTime.ZERO;
 
     /**
      * Creates an empty stochastic system; processes and links must be
@@ -68,19 +86,104 @@ public abstract class StochSystem {
      */
     protected abstract void updateState();
 
+    /**
+     * Updates the internal state of this system after a process
+     * occurs, touching only the state that belongs to the connected
+     * component of the dependency graph that contains the process.
+     *
+     * <p>Systems that override this method (and report their support
+     * through {@link StochSystem#supportsComponentSimulation()}) may be
+     * simulated one component at a time in parallel (see
+     * {@link ComponentRunner}): events in separate components then
+     * update this system from separate threads.  Systems whose
+     * components share any state (a common population table, for
+     * example) must not override this method.
+     *
+     * @param proc the process that occurred.
+     *
+     * @throws RuntimeException unless this system supports component
+     * simulation.
+     */
+    protected void updateComponentState(StochProc proc) {
+        throw JamException.runtime("System does not support component simulation.");
+    }
+
+    /**
+     * Identifies systems that may be simulated one component at a time
+     * in parallel; such systems must override
+     * {@link StochSystem#updateComponentState(StochProc)}.
+     *
+     * @return {@code true} iff this system supports component
+     * simulation.
+     */
+    protected boolean supportsComponentSimulation() {
+        return false;
+    }
+
+    /**
+     * Advances the clock of this system to a later time without any
+     * events occurring, as when a simulation stops at a fixed time
+     * horizon.  The clock change is recorded as a leap with no events,
+     * so {@code lastEvent()} returns {@code null} afterward.
+     *
+     * @param time the (absolute) time to assign.
+     *
+     * @throws RuntimeException unless the time is later than the most
+     * recent event.
+     */
+    public void advanceTime(double time) {
+        recordLeap(StochTime.of(time), 0L);
+    }
+
+    /**
+     * Records a <em>leap</em>: the simultaneous occurrence of many
+     * events over a time interval ending at a given time, as taken by
+     * approximate (tau-leaping) simulation algorithms.  After a leap,
+     * {@code lastEvent()} returns {@code null} (no single event may be
+     * identified as the most recent) and {@code lastEventTime()}
+     * returns the end of the leap interval.
+     *
+     * <p>Subclasses must update their internal state to reflect the
+     * events in the leap before or after calling this method.
+     *
+     * @param time the (absolute) time at the end of the leap.
+     *
+     * @param count the number of events that occurred during the leap.
+     *
+     * @throws RuntimeException unless the leap ends after the previous
+     * event and the event count is non-negative.
+     */
+    protected void recordLeap(StochTime time, long count) {
+        if (time.doubleValue() <= lastTimeValue)
+            throw JamException.runtime("Next event must occur after the previous event.");
+
+        if (count < 0)
+            throw JamException.runtime("Event count must be non-negative.");
+
+        eventCount += count;
+
+        lastProc = null;
+        lastEvent = null;
+        lastTime = time;
+        lastTimeValue = time.doubleValue();
+    }
+
     /**
      * Adds a stochastic process to this system.
      *
      * @param proc the stochastic process to add.
      *
-     * @throws RuntimeException if this system already contains
-     * another process with the same index.
+     * @throws RuntimeException if this system is frozen or already
+     * contains another process with the same index.
      */
     protected void addProcess(StochProc proc) {
+        requireMutable();
+
         if (containsProcess(proc.getProcIndex()))
             throw JamException.runtime("Duplicate process index: [%d].", proc.getProcIndex());
 
         procs.put(proc.getProcIndex(), proc);
+        slotMap = null;
     }
 
     /**
@@ -115,10 +218,11 @@ public abstract class StochSystem {
      *
      * @param successor the direct successor process.
      *
-     * @throws RuntimeException unless this system contains both
-     * processes in the link.
+     * @throws RuntimeException if this system is frozen or unless
+     * this system contains both processes in the link.
      */
     protected void addLink(StochProc predecessor, StochProc successor) {
+        requireMutable();
         requireProcess(predecessor);
         requireProcess(successor);
 
@@ -143,14 +247,16 @@ public abstract class StochSystem {
      *
      * @param index the unique ordinal index of the process to remove.
      *
-     * @throws RuntimeException unless this system contains a process
-     * with the specified index.
+     * @throws RuntimeException if this system is frozen or unless this
+     * system contains a process with the specified index.
      */
     protected void removeProcess(int index) {
+        requireMutable();
         requireProcess(index);
 
-        procs.remove(index);
         graph.remove(getProcess(index));
+        procs.remove(index);
+        slotMap = null;
     }
 
     /**
@@ -165,6 +271,11 @@ public abstract class StochSystem {
         removeProcess(proc.getProcIndex());
     }
 
+    private void requireMutable() {
+        if (isFrozen())
+            throw JamException.runtime("The system is frozen.");
+    }
+
     /**
      * Returns a runtime exception for an invalid process index.
      *
@@ -211,6 +322,33 @@ public abstract class StochSystem {
         return containsProcess(proc.getProcIndex());
     }
 
+    /**
+     * Returns the number of processes whose rates may change after a
+     * given process occurs: the <em>fan-out</em> of the process in the
+     * dependency graph, which determines the cost of updating the
+     * system after the process occurs.
+     *
+     * @param proc a process in this system.
+     *
+     * @return the number of direct successors of the specified process
+     * in the dependency graph.
+     */
+    public int countDependents(StochProc proc) {
+        return graph.get(proc).size();
+    }
+
+    /**
+     * Returns the number of edges in the dependency graph for this
+     * system.  The ratio of the link count to the process count is the
+     * mean fan-out of the processes.
+     *
+     * @return the number of edges in the dependency graph for this
+     * system.
+     */
+    public int countLinks() {
+        return graph.countEdges();
+    }
+
     /**
      * Returns the number of events that have occurred.
      *
@@ -229,6 +367,56 @@ public abstract class StochSystem {
         return procs.size();
     }
 
+    /**
+     * Freezes the processes and dependency graph of this system and
+     * compiles the graph into compressed sparse row form (with dense
+     * process slots) for fast traversal by simulation algorithms.
+     * Processes and links may not be added or removed after the system
+     * is frozen; calling this method again has no effect.
+     */
+    public void freeze() {
+        if (!isFrozen())
+            slotGraph = SlotGraph.create(getSlotMap(), graph);
+    }
+
+    /**
+     * Identifies frozen systems, whose processes and dependency graph
+     * are fixed.
+     *
+     * @return {@code true} iff this system has been frozen.
+     */
+    public boolean isFrozen() {
+        return slotGraph != null;
+    }
+
+    /**
+     * Returns the compiled dependency graph for this system.
+     *
+     * @return the compiled dependency graph for this system.
+     *
+     * @throws RuntimeException unless this system is frozen.
+     */
+    public SlotGraph getSlotGraph() {
+        if (isFrozen())
+            return slotGraph;
+        else
+            throw JamException.runtime("The system is not frozen.");
+    }
+
+    /**
+     * Returns the slot assignments for the current processes in this
+     * system, which remain fixed after the system is frozen.
+     *
+     * @return the slot assignments for the current processes in this
+     * system.
+     */
+    public ProcSlotMap getSlotMap() {
+        if (slotMap == null)
+            slotMap = ProcSlotMap.create(procs.values());
+
+        return slotMap;
+    }
+
     /**
      * Accesses processes in this system by their ordinal index.
      *
@@ -268,9 +456,13 @@ public abstract class StochSystem {
      * Returns the most recent event to occur in this system.
      *
      * @return the most recent event to occur in this system
-     * ({@code null} before any events have occurred).
+     * ({@code null} before any events have occurred or after a
+     * leap).
      */
     public StochEvent lastEvent() {
+        if (lastEvent == null && lastProc != null)
+            lastEvent = StochEvent.mark(lastProc, lastRate, lastTimeValue);
+
         return lastEvent;
     }
 
@@ -278,25 +470,35 @@ public abstract class StochSystem {
      * Returns the most recent process to occur.
      *
      * @return the most recent process to occur ({@code null} before
-     * any events have occurred).
+     * any events have occurred or after a leap).
      */
     public StochProc lastEventProcess() {
-        if (lastEvent != null)
-            return lastEvent.getProc();
-        else
-            return null;
+        return lastProc;
     }
 
     /**
-     * Returns the (absolute) time when the most recent event occurred.
+     * Returns the (absolute) time when the most recent event (or leap)
+     * occurred.
      *
-     * @return the (absolute) time when the most recent event occurred.
+     * @return the (absolute) time when the most recent event (or leap)
+     * occurred.
      */
     public StochTime lastEventTime() {
-        if (lastEvent != null)
-            return lastEvent.getTime();
-        else
-            return StochTime.ZERO;
+        if (lastTime == null)
+            lastTime = StochTime.of(lastTimeValue);
+
+        return lastTime;
+    }
+
+    /**
+     * Returns the (absolute) time when the most recent event (or leap)
+     * occurred as a primitive value.
+     *
+     * @return the (absolute) time when the most recent event (or leap)
+     * occurred.
+     */
+    public double lastEventTimeValue() {
+        return lastTimeValue;
     }
 
     /**
@@ -335,19 +537,79 @@ public abstract class StochSystem {
      * process that occurred.
      */
     public void updateState(StochEvent event) {
-        validateEvent(event);
+        recordEvent(event);
+        updateState();
+    }
+
+    /**
+     * Updates the state of this stochastic system after an event
+     * occurs, without creating any event or time objects: simulation
+     * algorithms should call this method rather than the version that
+     * takes a {@code StochEvent} on their innermost loops.  The event
+     * returned by {@code lastEvent()} is created on demand.
+     *
+     * @param proc the process that occurred.
+     *
+     * @param time the (absolute) time when the event occurred.
+     *
+     * @throws RuntimeException unless the event occurs after the
+     * previous event in this system and this system contains the
+     * process that occurred.
+     */
+    public void updateState(StochProc proc, double time) {
+        recordEvent(proc, time);
+        updateState();
+    }
+
+    /**
+     * Records the occurrence of an event <em>without</em> updating the
+     * internal state of this system, for use by subclasses that update
+     * their state selectively.
+     *
+     * @param event the most recent event to occur in this system.
+     *
+     * @throws RuntimeException unless the event occurs after the
+     * previous event in this system and this system contains the
+     * process that occurred.
+     */
+    protected void recordEvent(StochEvent event) {
+        recordEvent(event.getProc(), event.getTime().doubleValue());
 
-        ++eventCount;
         lastEvent = event;
+        lastTime = event.getTime();
+        lastRate = event.getRate().doubleValue();
+    }
 
-        updateState();
+    /**
+     * Records the occurrence of an event <em>without</em> updating the
+     * internal state of this system or creating any event objects.
+     *
+     * @param proc the process that occurred.
+     *
+     * @param time the (absolute) time when the event occurred.
+     *
+     * @throws RuntimeException unless the event occurs after the
+     * previous event in this system and this system contains the
+     * process that occurred.
+     */
+    protected void recordEvent(StochProc proc, double time) {
+        validateEvent(proc, time);
+
+        ++eventCount;
+
+        lastProc = proc;
+        lastRate = proc.getRateValue();
+        lastTimeValue = time;
+
+        lastEvent = null;
+        lastTime = null;
     }
 
-    private void validateEvent(StochEvent event) {
-        if (event.getTime().compareTo(lastEventTime()) <= 0)
+    private void validateEvent(StochProc proc, double time) {
+        if (time <= lastTimeValue)
             throw JamException.runtime("Next event must occur after the previous event.");
 
-        if (!containsProcess(event.getProc()))
+        if (!getSlotMap().contains(proc))
             throw JamException.runtime("Event occurred outside this system.");
     }
 
@@ -0,0 +1,323 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.Arrays;
+
+import com.tipplerow.jam.lang.JamException;
+
+/**
+ * Maintains the next event times for a fixed set of processes, which
+ * are identified by dense integer <em>slots</em> (see {@link ProcSlotMap}),
+ * in an indexed {@code d}-ary heap with the earliest time at the top.
+ *
+ * <p>Unlike {@link EventQueue}, the heap stores primitive times and
+ * slots in parallel arrays and locates the node for each slot through
+ * a direct lookup table, so no objects are created or hashed as the
+ * event times change.
+ *
+ * <p>The heap arity may be two (a binary heap), four, or eight.  A
+ * wider heap is shallower, so updates that move an event toward the
+ * top are cheaper and the children of each node share cache lines;
+ * updates that move an event toward the bottom compare more children
+ * at each level.  Four-ary heaps are usually fastest for large systems.
+ *
+ * <p>When many event times change at once ({@code updateEvents}), the
+ * heap compares the cost of moving each node individually (about
+ * {@code k log N} comparisons for {@code k} of {@code N} nodes) with
+ * that of rebuilding the entire heap from the bottom up by the method
+ * of Floyd (about {@code N}) and takes the cheaper route.
+ *
+ * @author Scott Shaffer
+ */
+public final class TimeHeap implements TimeQueue {
+    // The number of slots held in the heap...
+    private int size;
+
+    // The number of children of each node...
+    private final int arity;
+
+    // Elements 1 through "size" of these arrays contain the slots and
+    // times of the nodes of the complete d-ary heap (the children of
+    // node k occupy nodes arity * (k - 1) + 2 through arity * k + 1);
+    // element 0 is unused...
+    private final int[] slots;
+    private final double[] times;
+
+    // The node holding each slot (or NO_NODE if the slot is absent)...
+    private final int[] nodes;
+
+    // Special node index for the root of the heap...
+    private static final int ROOT_NODE = 1;
+
+    // Special node index for slots that are not in the heap...
+    private static final int NO_NODE = 0;
+
+    /**
+     * The default heap arity.
+     */
+    public static final int DEFAULT_ARITY = 4;
+
+    private TimeHeap(int capacity, int arity) {
+        if (arity != 2 && arity != 4 && arity != 8)
+            throw JamException.runtime("Heap arity must be 2, 4, or 8.");
+
+        this.size = 0;
+        this.arity = arity;
+        this.slots = new int[capacity + 1];
+        this.times = new double[capacity + 1];
+        this.nodes = new int[capacity];
+
+        Arrays.fill(nodes, NO_NODE);
+    }
+
+    /**
+     * Creates an empty heap with the default arity for slots {@code 0}
+     * through {@code capacity - 1}.
+     *
+     * @param capacity the number of slots that the heap may hold.
+     *
+     * @return a new empty heap with the specified capacity.
+     */
+    public static TimeHeap create(int capacity) {
+        return create(capacity, DEFAULT_ARITY);
+    }
+
+    /**
+     * Creates an empty heap for slots {@code 0} through
+     * {@code capacity - 1}.
+     *
+     * @param capacity the number of slots that the heap may hold.
+     *
+     * @param arity the number of children of each node in the heap
+     * (two, four, or eight).
+     *
+     * @return a new empty heap with the specified capacity and arity.
+     *
+     * @throws RuntimeException unless the arity is two, four, or eight.
+     */
+    public static TimeHeap create(int capacity, int arity) {
+        return new TimeHeap(capacity, arity);
+    }
+
+    /**
+     * Returns the number of children of each node in this heap.
+     *
+     * @return the number of children of each node in this heap.
+     */
+    public int getArity() {
+        return arity;
+    }
+
+    // ---------------
+    // Heap management
+    // ---------------
+
+    private int findNode(int slot) {
+        if (!containsSlot(slot))
+            throw JamException.runtime("Heap does not contain slot [%d].", slot);
+
+        return nodes[slot];
+    }
+
+    private void setNode(int node, int slot, double time) {
+        slots[node] = slot;
+        times[node] = time;
+        nodes[slot] = node;
+    }
+
+    private int parent(int child) {
+        return (child - 2) / arity + ROOT_NODE;
+    }
+
+    private int firstChild(int parent) {
+        return arity * (parent - ROOT_NODE) + 2;
+    }
+
+    private void sink(int node) {
+        //
+        // Move the displaced node down until no child is earlier,
+        // shifting the earliest children upward (rather than swapping)
+        // along the way...
+        //
+        int slot = slots[node];
+        double time = times[node];
+
+        while (firstChild(node) <= size) {
+            int first = firstChild(node);
+            int last = Math.min(first + arity - 1, size);
+            int child = first;
+
+            for (int other = first + 1; other <= last; ++other)
+                if (times[other] < times[child])
+                    child = other;
+
+            if (time <= times[child])
+                break;
+
+            setNode(node, slots[child], times[child]);
+            node = child;
+        }
+
+        setNode(node, slot, time);
+    }
+
+    private int depth() {
+        int depth = 0;
+
+        for (int capacity = 1; capacity < size; capacity *= arity)
+            ++depth;
+
+        return depth;
+    }
+
+    private void heapify() {
+        //
+        // Sink every internal node, starting from the last parent and
+        // working toward the root (Floyd's method)...
+        //
+        if (size < 2)
+            return;
+
+        for (int node = parent(size); node >= ROOT_NODE; --node)
+            sink(node);
+    }
+
+    private void swim(int node) {
+        int slot = slots[node];
+        double time = times[node];
+
+        while (node > ROOT_NODE && times[parent(node)] > time) {
+            int parent = parent(node);
+
+            setNode(node, slots[parent], times[parent]);
+            node = parent;
+        }
+
+        setNode(node, slot, time);
+    }
+
+    @Override public void addEvent(int slot, double time) {
+        if (containsSlot(slot))
+            throw JamException.runtime("Heap already contains slot [%d].", slot);
+
+        ++size;
+        setNode(size, slot, time);
+        swim(size);
+    }
+
+    @Override public boolean containsSlot(int slot) {
+        return nodes[slot] != NO_NODE;
+    }
+
+    @Override public double findTime(int slot) {
+        return times[findNode(slot)];
+    }
+
+    /**
+     * Determines whether this heap is properly ordered.  It always
+     * should be, of course, and this method is provided to aid with
+     * unit testing and internal consistency checks.
+     *
+     * @return {@code true} iff this heap is properly ordered.
+     */
+    public boolean isOrdered() {
+        for (int child = ROOT_NODE + 1; child <= size; ++child)
+            if (times[parent(child)] > times[child])
+                return false;
+
+        return true;
+    }
+
+    @Override public int nextSlot() {
+        if (size == 0)
+            throw JamException.runtime("Heap is empty.");
+
+        return slots[ROOT_NODE];
+    }
+
+    @Override public double nextTime() {
+        if (size == 0)
+            throw JamException.runtime("Heap is empty.");
+
+        return times[ROOT_NODE];
+    }
+
+    @Override public void removeSlot(int slot) {
+        //
+        // Move the last node into the vacated node and restore heap
+        // order...
+        //
+        int node = findNode(slot);
+        int lastNode = size--;
+
+        nodes[slot] = NO_NODE;
+
+        if (node != lastNode) {
+            setNode(node, slots[lastNode], times[lastNode]);
+
+            if (node > ROOT_NODE && times[parent(node)] > times[node])
+                swim(node);
+            else
+                sink(node);
+        }
+    }
+
+    @Override public int size() {
+        return size;
+    }
+
+    @Override public void updateEvent(int slot, double time) {
+        int node = findNode(slot);
+        double prevTime = times[node];
+
+        times[node] = time;
+
+        if (time < prevTime)
+            swim(node);
+        else
+            sink(node);
+    }
+
+    @Override public void updateEvents(int[] updateSlots, double[] updateTimes, int count) {
+        //
+        // Rebuild the entire heap if that would require fewer
+        // comparisons than updating each node in turn...
+        //
+        if (count * depth() < size) {
+            for (int index = 0; index < count; ++index)
+                updateEvent(updateSlots[index], updateTimes[index]);
+        }
+        else {
+            for (int index = 0; index < count; ++index)
+                times[findNode(updateSlots[index])] = updateTimes[index];
+
+            heapify();
+        }
+    }
+
+    /**
+     * Ensures that this heap is properly ordered.  It always should
+     * be, of course, and this method is provided to aid with unit
+     * testing and internal consistency checks.
+     *
+     * @throws RuntimeException unless this heap is properly ordered.
+     */
+    public void validateOrder() {
+        if (!isOrdered())
+            throw JamException.runtime("Heap order is violated.");
+    }
+}
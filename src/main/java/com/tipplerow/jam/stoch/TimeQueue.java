@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+/**
+ * Maintains the next event times for a fixed set of processes, which
+ * are identified by dense integer <em>slots</em> (see {@link ProcSlotMap}),
+ * and locates the earliest event.
+ *
+ * <p>The operations mirror those of {@link EventQueue}, with slots and
+ * primitive times in place of processes and event objects.  Event
+ * times may be infinite (for processes with zero rate).
+ *
+ * @author Scott Shaffer
+ */
+public interface TimeQueue {
+    /**
+     * Adds a slot and its next event time to this queue.
+     *
+     * @param slot the slot to add.
+     *
+     * @param time the (absolute) time of the next event for the slot.
+     *
+     * @throws RuntimeException if this queue already contains the slot.
+     */
+    void addEvent(int slot, double time);
+
+    /**
+     * Identifies slots contained in this queue.
+     *
+     * @param slot the slot of interest.
+     *
+     * @return {@code true} iff this queue contains the specified slot.
+     */
+    boolean containsSlot(int slot);
+
+    /**
+     * Returns the next event time for a given slot.
+     *
+     * @param slot the slot of interest.
+     *
+     * @return the next event time for the specified slot.
+     *
+     * @throws RuntimeException unless this queue contains the slot.
+     */
+    double findTime(int slot);
+
+    /**
+     * Returns the slot with the earliest event time but does not
+     * remove it.
+     *
+     * @return the slot with the earliest event time.
+     *
+     * @throws RuntimeException if this queue is empty.
+     */
+    int nextSlot();
+
+    /**
+     * Returns the earliest event time in this queue.
+     *
+     * @return the earliest event time in this queue.
+     *
+     * @throws RuntimeException if this queue is empty.
+     */
+    double nextTime();
+
+    /**
+     * Removes a slot (and its event time) from this queue.
+     *
+     * @param slot the slot to remove.
+     *
+     * @throws RuntimeException unless this queue contains the slot.
+     */
+    void removeSlot(int slot);
+
+    /**
+     * Returns the number of slots in this queue.
+     *
+     * @return the number of slots in this queue.
+     */
+    int size();
+
+    /**
+     * Updates the next event time for a slot in this queue.
+     *
+     * @param slot the slot to update.
+     *
+     * @param time the new (absolute) time of the next event for the
+     * slot.
+     *
+     * @throws RuntimeException unless this queue contains the slot.
+     */
+    void updateEvent(int slot, double time);
+
+    /**
+     * Updates the next event times for several slots in this queue at
+     * once, as when an event changes the rates of many dependent
+     * processes.  The default implementation updates each slot in turn;
+     * queues may apply all of the new times and then restore their
+     * order in a single pass when that is cheaper.
+     *
+     * @param updateSlots the slots to update (in elements {@code 0}
+     * through {@code count - 1}); each slot may appear at most once.
+     *
+     * @param updateTimes the new (absolute) event times for the slots
+     * (in elements {@code 0} through {@code count - 1}).
+     *
+     * @param count the number of slots to update.
+     *
+     * @throws RuntimeException unless this queue contains every slot.
+     */
+    default void updateEvents(int[] updateSlots, double[] updateTimes, int count) {
+        for (int index = 0; index < count; ++index)
+            updateEvent(updateSlots[index], updateTimes[index]);
+    }
+}
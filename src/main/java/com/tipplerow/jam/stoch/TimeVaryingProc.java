@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+/**
+ * Identifies stochastic processes whose rates vary continuously in
+ * time between events (with the system state held fixed), as opposed
+ * to processes whose rates change only when events occur.
+ *
+ * <p>Simulation algorithms that support time-varying rates (such as
+ * {@link ModifiedNextReactionAlgo}) integrate the rate function over
+ * time instead of multiplying the instantaneous rate by an interval.
+ * The instantaneous rate returned by {@code getStochRate()} should
+ * still reflect the rate at the time of the most recent update.
+ *
+ * @author Scott Shaffer
+ */
+public interface TimeVaryingProc {
+    /**
+     * Integrates the rate of this process over a time interval,
+     * assuming that the system state remains fixed.
+     *
+     * @param startTime the (absolute) start of the interval.
+     *
+     * @param endTime the (absolute) end of the interval.
+     *
+     * @return the integral of the process rate over the interval.
+     */
+    double integrateRate(double startTime, double endTime);
+
+    /**
+     * Finds the time when the integrated rate of this process reaches
+     * a given value, assuming that the system state remains fixed:
+     * the inverse of {@code integrateRate} with respect to the end of
+     * the interval.
+     *
+     * @param startTime the (absolute) start of the interval.
+     *
+     * @param integral the target value for the integrated rate.
+     *
+     * @return the (absolute) time {@code t} such that the rate
+     * integrated from {@code startTime} to {@code t} equals the target
+     * value, or {@code Double.POSITIVE_INFINITY} if the integrated rate
+     * never reaches the target.
+     */
+    double solveIntegral(double startTime, double integral);
+}
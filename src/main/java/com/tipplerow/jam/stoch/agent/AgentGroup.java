@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.tipplerow.jam.lang.Ordinal;
+import com.tipplerow.jam.lang.OrdinalIndex;
+
+/**
+ * Represents a named set of stochastic agents whose total population
+ * is tracked as an aggregate counter.
+ *
+ * <p>Each agent population maintains the total for a group once it has
+ * been counted, adjusting the total incrementally as the populations of
+ * the member agents change, so that the total may be accessed in
+ * constant time regardless of the size of the group.
+ *
+ * @author Scott Shaffer
+ */
+public final class AgentGroup extends Ordinal {
+    private final String name;
+    private final Set<StochAgent> agents;
+
+    private static final OrdinalIndex ordinalIndex = OrdinalIndex.create();
+
+    private AgentGroup(String name, Set<StochAgent> agents) {
+        super(ordinalIndex.next());
+
+        this.name = name;
+        this.agents = Collections.unmodifiableSet(new LinkedHashSet<>(agents));
+    }
+
+    /**
+     * Creates a new unnamed agent group.
+     *
+     * @param agents the members of the group.
+     *
+     * @return a new agent group with the specified members.
+     */
+    public static AgentGroup create(Set<StochAgent> agents) {
+        return create("", agents);
+    }
+
+    /**
+     * Creates a new named agent group.
+     *
+     * @param name the name of the group.
+     *
+     * @param agents the members of the group.
+     *
+     * @return a new agent group with the specified name and members.
+     */
+    public static AgentGroup create(String name, Set<StochAgent> agents) {
+        return new AgentGroup(name, agents);
+    }
+
+    /**
+     * Identifies members of this group.
+     *
+     * @param agent the agent in question.
+     *
+     * @return {@code true} iff the specified agent is a member of this
+     * group.
+     */
+    public boolean contains(StochAgent agent) {
+        return agents.contains(agent);
+    }
+
+    /**
+     * Returns the unique integer index for this group.
+     *
+     * @return the unique integer index for this group.
+     */
+    public int getGroupIndex() {
+        return (int) getIndex();
+    }
+
+    /**
+     * Returns the name of this group.
+     *
+     * @return the name of this group.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of agents in this group.
+     *
+     * @return the number of agents in this group.
+     */
+    public int size() {
+        return agents.size();
+    }
+
+    /**
+     * Returns a read-only view of the agents in this group.
+     *
+     * @return a read-only view of the agents in this group.
+     */
+    public Set<StochAgent> viewAgents() {
+        return agents;
+    }
+
+    @Override public String toString() {
+        return String.format("AgentGroup(%s, %d)", name, size());
+    }
+}
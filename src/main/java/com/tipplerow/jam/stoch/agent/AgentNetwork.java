@@ -0,0 +1,471 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Multiset;
+
+import com.tipplerow.jam.stoch.ProcSlotMap;
+import com.tipplerow.jam.stoch.StochProc;
+
+/**
+ * Represents the reaction network of an agent system in a compact,
+ * array-based form: the agents and processes are assigned dense slots
+ * and the stoichiometry of each process is stored in flat arrays of
+ * agent slots and population changes.
+ *
+ * <p>The network captures the structure of the system at the time it
+ * is compiled; the behavior is undefined if agents or processes are
+ * added or removed afterwards.
+ *
+ * @author Scott Shaffer
+ */
+final class AgentNetwork {
+    private final AgentSystem system;
+
+    // The agents and processes, indexed by slot...
+    private final StochAgent[] agents;
+    private final AgentProc[] procs;
+
+    // The slot assigned to each agent and process...
+    private final Map<StochAgent, Integer> agentSlots;
+    private final ProcSlotMap procSlots;
+
+    // The reactant slots of each process, listed with multiplicity
+    // (a homodimerization lists the same slot twice)...
+    private final int[][] reactantSlots;
+
+    // The net population change for each process: the agent slots
+    // and corresponding changes in population...
+    private final int[][] changeSlots;
+    private final int[][] changeDeltas;
+
+    // The slots of the (distinct) processes that consume each agent...
+    private final int[][] consumerSlots;
+
+    // The slot of the process whose net population change is the
+    // exact reverse of each process (or NO_SLOT if there is none)...
+    private final int[] reverseSlots;
+
+    // The highest order of any process that consumes each agent and
+    // the largest number of instances consumed by such a process...
+    private final int[] highestOrder;
+    private final int[] highestMultiplicity;
+
+    private AgentNetwork(AgentSystem system) {
+        this.system = system;
+        this.procs = system.viewProcesses().toArray(new AgentProc[0]);
+        this.agentSlots = new HashMap<>();
+        this.procSlots = ProcSlotMap.create(Arrays.asList(procs));
+
+        List<StochAgent> agentList = new ArrayList<>();
+
+        for (StochAgent agent : system.viewAgents())
+            mapAgent(agent, agentList);
+
+        for (AgentProc proc : procs) {
+            for (StochAgent agent : proc.getReactants())
+                mapAgent(agent, agentList);
+
+            for (StochAgent agent : proc.getProducts())
+                mapAgent(agent, agentList);
+        }
+
+        this.agents = agentList.toArray(new StochAgent[0]);
+        this.reactantSlots = new int[procs.length][];
+        this.changeSlots = new int[procs.length][];
+        this.changeDeltas = new int[procs.length][];
+        this.highestOrder = new int[agents.length];
+        this.highestMultiplicity = new int[agents.length];
+
+        for (int procSlot = 0; procSlot < procs.length; ++procSlot)
+            compileProc(procSlot);
+
+        this.consumerSlots = mapConsumers();
+        this.reverseSlots = pairReverseProcs(procs);
+    }
+
+    private int[][] mapConsumers() {
+        List<List<Integer>> consumerLists = new ArrayList<>();
+
+        for (int agentSlot = 0; agentSlot < agents.length; ++agentSlot)
+            consumerLists.add(new ArrayList<>());
+
+        for (int procSlot = 0; procSlot < procs.length; ++procSlot)
+            for (StochAgent reactant : procs[procSlot].getReactants().elementSet())
+                consumerLists.get(getAgentSlot(reactant)).add(procSlot);
+
+        int[][] result = new int[agents.length][];
+
+        for (int agentSlot = 0; agentSlot < agents.length; ++agentSlot)
+            result[agentSlot] = consumerLists.get(agentSlot).stream().mapToInt(Integer::intValue).toArray();
+
+        return result;
+    }
+
+    /**
+     * Slot index indicating the absence of a process.
+     */
+    static final int NO_SLOT = -1;
+
+    private static int[] pairReverseProcs(AgentProc[] procs) {
+        //
+        // Index the processes by their net population changes, so that
+        // each process may locate its reverse by negating its change...
+        //
+        int[] reverseSlots = new int[procs.length];
+        Map<Map<StochAgent, Integer>, Integer> changeSlots = new HashMap<>();
+
+        for (int procSlot = 0; procSlot < procs.length; ++procSlot)
+            changeSlots.putIfAbsent(procs[procSlot].getNetChange(), procSlot);
+
+        for (int procSlot = 0; procSlot < procs.length; ++procSlot) {
+            Map<StochAgent, Integer> reverseChange = new HashMap<>();
+
+            for (Map.Entry<StochAgent, Integer> entry : procs[procSlot].getNetChange().entrySet())
+                reverseChange.put(entry.getKey(), -entry.getValue());
+
+            Integer reverseSlot = reverseChange.isEmpty() ? null : changeSlots.get(reverseChange);
+            reverseSlots[procSlot] = (reverseSlot != null) ? reverseSlot : NO_SLOT;
+        }
+
+        return reverseSlots;
+    }
+
+    private void mapAgent(StochAgent agent, List<StochAgent> agentList) {
+        if (!agentSlots.containsKey(agent)) {
+            agentSlots.put(agent, agentList.size());
+            agentList.add(agent);
+        }
+    }
+
+    private void compileProc(int procSlot) {
+        AgentProc proc = procs[procSlot];
+        Multiset<StochAgent> reactants = proc.getReactants();
+
+        int order = reactants.size();
+        int[] reactSlots = new int[order];
+        int index = 0;
+
+        for (StochAgent reactant : reactants)
+            reactSlots[index++] = getAgentSlot(reactant);
+
+        for (Multiset.Entry<StochAgent> entry : reactants.entrySet()) {
+            int agentSlot = getAgentSlot(entry.getElement());
+
+            if (order > highestOrder[agentSlot]) {
+                highestOrder[agentSlot] = order;
+                highestMultiplicity[agentSlot] = entry.getCount();
+            }
+            else if (order == highestOrder[agentSlot]) {
+                highestMultiplicity[agentSlot] = Math.max(highestMultiplicity[agentSlot], entry.getCount());
+            }
+        }
+
+        Map<StochAgent, Integer> netChange = proc.getNetChange();
+        int[] slots = new int[netChange.size()];
+        int[] deltas = new int[netChange.size()];
+
+        index = 0;
+
+        for (Map.Entry<StochAgent, Integer> entry : netChange.entrySet()) {
+            slots[index] = getAgentSlot(entry.getKey());
+            deltas[index] = entry.getValue();
+            ++index;
+        }
+
+        reactantSlots[procSlot] = reactSlots;
+        changeSlots[procSlot] = slots;
+        changeDeltas[procSlot] = deltas;
+    }
+
+    /**
+     * Compiles the reaction network for an agent system.
+     *
+     * @param system the agent system to compile.
+     *
+     * @return the compiled reaction network for the specified system.
+     */
+    static AgentNetwork compile(AgentSystem system) {
+        return new AgentNetwork(system);
+    }
+
+    /**
+     * Returns the number of agents in this network.
+     *
+     * @return the number of agents in this network.
+     */
+    int countAgents() {
+        return agents.length;
+    }
+
+    /**
+     * Returns the number of processes in this network.
+     *
+     * @return the number of processes in this network.
+     */
+    int countProcs() {
+        return procs.length;
+    }
+
+    /**
+     * Returns the agent assigned to a slot.
+     *
+     * @param agentSlot the slot of the agent.
+     *
+     * @return the agent assigned to the specified slot.
+     */
+    StochAgent getAgent(int agentSlot) {
+        return agents[agentSlot];
+    }
+
+    /**
+     * Returns the slot assigned to an agent.
+     *
+     * @param agent the agent of interest.
+     *
+     * @return the slot assigned to the specified agent.
+     *
+     * @throws RuntimeException unless this network contains the agent.
+     */
+    int getAgentSlot(StochAgent agent) {
+        Integer slot = agentSlots.get(agent);
+
+        if (slot != null)
+            return slot;
+        else
+            throw AgentSystem.invalidAgentException(agent);
+    }
+
+    /**
+     * Returns the process assigned to a slot.
+     *
+     * @param procSlot the slot of the process.
+     *
+     * @return the process assigned to the specified slot.
+     */
+    AgentProc getProc(int procSlot) {
+        return procs[procSlot];
+    }
+
+    /**
+     * Returns the agent system that this network represents.
+     *
+     * @return the agent system that this network represents.
+     */
+    AgentSystem getSystem() {
+        return system;
+    }
+
+    /**
+     * Returns the slot assigned to a process.
+     *
+     * @param proc the process of interest.
+     *
+     * @return the slot assigned to the specified process.
+     *
+     * @throws RuntimeException unless this network contains the
+     * process.
+     */
+    int getProcSlot(StochProc proc) {
+        return procSlots.getSlot(proc);
+    }
+
+    /**
+     * Returns the slots of the processes that consume an agent.
+     *
+     * @param agentSlot the slot of the agent.
+     *
+     * @return the slots of the (distinct) processes that consume the
+     * agent.
+     */
+    int[] consumerSlots(int agentSlot) {
+        return consumerSlots[agentSlot];
+    }
+
+    /**
+     * Returns the agent slots that change when a process occurs.
+     *
+     * @param procSlot the slot of the process.
+     *
+     * @return the agent slots that change when the process occurs
+     * (parallel to the array returned by {@code changeDeltas}).
+     */
+    int[] changeSlots(int procSlot) {
+        return changeSlots[procSlot];
+    }
+
+    /**
+     * Returns the population changes that occur with a process.
+     *
+     * @param procSlot the slot of the process.
+     *
+     * @return the population changes that occur with the process
+     * (parallel to the array returned by {@code changeSlots}).
+     */
+    int[] changeDeltas(int procSlot) {
+        return changeDeltas[procSlot];
+    }
+
+    /**
+     * Returns the reactant slots for a process (with multiplicity).
+     *
+     * @param procSlot the slot of the process.
+     *
+     * @return the reactant slots for the process.
+     */
+    int[] reactantSlots(int procSlot) {
+        return reactantSlots[procSlot];
+    }
+
+    /**
+     * Computes the factor {@code g} in the tau-selection procedure of
+     * Cao, Gillespie, and Petzold [J. Chem. Phys. (2006) 124, 044109],
+     * which accounts for the highest order of the processes that
+     * consume an agent.
+     *
+     * @param agentSlot the slot of the agent.
+     *
+     * @param count the current population of the agent.
+     *
+     * @return the tau-selection factor {@code g} for the agent.
+     */
+    double computeOrderFactor(int agentSlot, double count) {
+        int order = highestOrder[agentSlot];
+        int multiplicity = highestMultiplicity[agentSlot];
+
+        if (order <= 1 || multiplicity <= 1 || count <= multiplicity)
+            return Math.max(order, 1);
+
+        double corr2 = 2.0 + 1.0 / (count - 1.0);
+
+        if (multiplicity == 2)
+            return (order == 2) ? corr2 : 1.5 * corr2;
+        else
+            return 3.0 + 1.0 / (count - 1.0) + 2.0 / (count - 2.0);
+    }
+
+    /**
+     * Returns the slot of the process whose net population change is
+     * the exact reverse of a given process: the processes {@code A => B}
+     * and {@code B => A}, for example.
+     *
+     * @param procSlot the slot of the process.
+     *
+     * @return the slot of the reverse process, or {@code NO_SLOT} if
+     * the network does not contain a reverse process.
+     */
+    int reverseSlot(int procSlot) {
+        return reverseSlots[procSlot];
+    }
+
+    /**
+     * Computes the gradient of the mass-action rate of a process with
+     * respect to the agent populations and adds it to an accumulator.
+     *
+     * @param procSlot the slot of the process.
+     *
+     * @param rateConst the rate constant of the process.
+     *
+     * @param counts the agent populations, indexed by agent slot.
+     *
+     * @param scale a factor applied to the gradient before adding it
+     * to the accumulator.
+     *
+     * @param gradient the accumulator, indexed by agent slot.
+     */
+    void addRateGradient(int procSlot, double rateConst, double[] counts, double scale, double[] gradient) {
+        int[] slots = reactantSlots[procSlot];
+
+        for (int index = 0; index < slots.length; ++index) {
+            double partial = scale * rateConst;
+
+            for (int other = 0; other < slots.length; ++other)
+                if (other != index)
+                    partial *= Math.max(0.0, counts[slots[other]]);
+
+            gradient[slots[index]] += partial;
+        }
+    }
+
+    /**
+     * Computes the mass-action rate of a process for an arbitrary
+     * (possibly non-integer) agent population.
+     *
+     * @param procSlot the slot of the process.
+     *
+     * @param rateConst the rate constant of the process.
+     *
+     * @param counts the agent populations, indexed by agent slot.
+     *
+     * @return the mass-action rate of the process.
+     */
+    double computeRate(int procSlot, double rateConst, double[] counts) {
+        double rate = rateConst;
+
+        for (int agentSlot : reactantSlots[procSlot])
+            rate *= Math.max(0.0, counts[agentSlot]);
+
+        return rate;
+    }
+
+    /**
+     * Identifies agents that are consumed by at least one process.
+     *
+     * @param agentSlot the slot of the agent.
+     *
+     * @return {@code true} iff the agent is a reactant in at least one
+     * process.
+     */
+    boolean isReactant(int agentSlot) {
+        return highestOrder[agentSlot] > 0;
+    }
+
+    /**
+     * Reads the current agent populations from the underlying system.
+     *
+     * @param counts an array to hold the agent populations, indexed by
+     * agent slot.
+     */
+    void readCounts(double[] counts) {
+        for (int agentSlot = 0; agentSlot < agents.length; ++agentSlot)
+            counts[agentSlot] = system.countAgent(agents[agentSlot]);
+    }
+
+    /**
+     * Reads the current process rates from the underlying system.
+     *
+     * @param rates an array to hold the process rates, indexed by
+     * process slot.
+     *
+     * @return the total rate over all processes.
+     */
+    double readRates(double[] rates) {
+        double total = 0.0;
+
+        for (int procSlot = 0; procSlot < procs.length; ++procSlot) {
+            rates[procSlot] = procs[procSlot].getRateValue();
+            total += rates[procSlot];
+        }
+
+        return total;
+    }
+}
@@ -15,20 +15,63 @@
  */
 package com.tipplerow.jam.stoch.agent;
 
+import java.util.Arrays;
 import java.util.Collection;
 
-import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.Multiset;
 
 /**
  * Maintains a number count of each agent in a stochastic simulation.
  *
+ * <p>Each agent is assigned a dense, zero-based <em>slot</em> when it
+ * first enters the population, and the counts are stored in a primitive
+ * array indexed by slot.  The slot for a given ordinal index is found
+ * through a direct lookup table spanning only the range of ordinals
+ * that have entered the population, so counting and adjusting agents
+ * requires no hashing or boxing.  Simulation algorithms may resolve
+ * the slot of each agent once and then use the slot-based methods
+ * ({@code countSlot}, {@code incrementSlot}, {@code decrementSlot},
+ * and {@code adjustSlot}) in their innermost loops.
+ *
+ * <p>The population also maintains the total count of each agent group
+ * (see {@link AgentGroup}) after it is first counted: each slot records
+ * the groups that contain its agent, and every change to the count of
+ * the agent is applied to the group totals, so groups of any size may be
+ * counted in constant time.
+ *
  * @author Scott Shaffer
  */
 public final class AgentPopulation {
-    private final Multiset<StochAgent> counts = HashMultiset.create();
+    // The agents and their counts, indexed by slot...
+    private StochAgent[] agents = new StochAgent[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int slotCount = 0;
+
+    // The slot for each agent keyed by its ordinal index...
+    private final OrdinalTable slotTable = OrdinalTable.create();
+
+    // The group totals indexed by group slot, the group slot for each
+    // group keyed by its ordinal index, and the group slots that
+    // contain the agent in each agent slot...
+    private long[] groupTotals = new long[0];
+    private final OrdinalTable groupTable = OrdinalTable.create();
+    private int[][] memberships = new int[INITIAL_CAPACITY][];
+
+    // The stoichiometry of each process that has modified or counted
+    // this population, compiled against its slots and stored in the
+    // order compiled, with the position of each keyed by the ordinal
+    // index of the process...
+    private Stoichiometry[] stoichs = new Stoichiometry[0];
+    private final OrdinalTable stoichTable = OrdinalTable.create();
+
+    private static final int[] NO_GROUPS = new int[0];
+
+    private static final int NO_SLOT = OrdinalTable.NO_SLOT;
+    private static final int INITIAL_CAPACITY = 8;
 
     private AgentPopulation() {
+        Arrays.fill(memberships, NO_GROUPS);
     }
 
     /**
@@ -67,13 +110,17 @@ public final class AgentPopulation {
         return population;
     }
 
+    private int findSlot(StochAgent agent) {
+        return slotTable.get(agent.getAgentIndex());
+    }
+
     /**
      * Adds one agent to this population.
      *
      * @param agent the agent to add.
      */
     public void add(StochAgent agent) {
-        counts.add(agent);
+        incrementSlot(getSlot(agent));
     }
 
     /**
@@ -89,7 +136,7 @@ public final class AgentPopulation {
         if (count < 0)
             throw new IllegalArgumentException("Agent count must be non-negative.");
         else
-            counts.add(agent, count);
+            adjustSlot(getSlot(agent), count);
     }
 
     /**
@@ -112,6 +159,54 @@ public final class AgentPopulation {
             add(entry.getElement(), entry.getCount());
     }
 
+    /**
+     * Adjusts the population of an agent by a (possibly negative)
+     * increment.
+     *
+     * @param agent the agent to adjust.
+     *
+     * @param delta the change in the number of instances.
+     *
+     * @throws IllegalArgumentException if the population of the agent
+     * would become negative.
+     */
+    public void adjust(StochAgent agent, int delta) {
+        adjustSlot(getSlot(agent), delta);
+    }
+
+    /**
+     * Adjusts the population of an agent by a (possibly negative)
+     * increment.
+     *
+     * @param slot the slot of the agent to adjust.
+     *
+     * @param delta the change in the number of instances.
+     *
+     * @throws IllegalArgumentException if the population of the agent
+     * would become negative.
+     */
+    public void adjustSlot(int slot, int delta) {
+        int count = Math.addExact(counts[slot], delta);
+
+        if (count < 0)
+            throw new IllegalArgumentException("Agent count must remain non-negative.");
+
+        assignSlot(slot, count);
+    }
+
+    private void assignSlot(int slot, int count) {
+        int[] groupSlots = memberships[slot];
+
+        if (groupSlots.length > 0) {
+            long delta = (long) count - counts[slot];
+
+            for (int groupSlot : groupSlots)
+                groupTotals[groupSlot] += delta;
+        }
+
+        counts[slot] = count;
+    }
+
     /**
      * Counts the number of instances of an agent in this population.
      *
@@ -121,7 +216,175 @@ public final class AgentPopulation {
      * contained in this population.
      */
     public int count(StochAgent agent) {
-        return counts.count(agent);
+        int slot = findSlot(agent);
+
+        if (slot != NO_SLOT)
+            return counts[slot];
+        else
+            return 0;
+    }
+
+    /**
+     * Counts the number of instances of an agent in this population.
+     *
+     * @param slot the slot of the agent to count.
+     *
+     * @return the number of instances of the agent in the specified
+     * slot.
+     */
+    public int countSlot(int slot) {
+        return counts[slot];
+    }
+
+    /**
+     * Counts the total number of instances of the agents in a group.
+     *
+     * <p>The total is computed in full when the group is first counted
+     * and maintained incrementally thereafter, so subsequent calls run
+     * in constant time.
+     *
+     * @param group the group to count.
+     *
+     * @return the total number of instances of the agents in the
+     * specified group.
+     */
+    public long countGroup(AgentGroup group) {
+        int groupSlot = getGroupSlot(group);
+        return groupTotals[groupSlot];
+    }
+
+    /**
+     * Returns the stoichiometry of a process compiled against the slots
+     * of this population, compiling it when the process first modifies
+     * or counts this population.  Each population keeps its own table,
+     * so processes may be shared by systems with separate populations.
+     *
+     * @param proc the process of interest.
+     *
+     * @return the stoichiometry of the process compiled against this
+     * population.
+     */
+    Stoichiometry getStoichiometry(AgentProc proc) {
+        int position = stoichTable.get(proc.getProcIndex());
+
+        if (position != NO_SLOT)
+            return stoichs[position];
+
+        Stoichiometry stoichiometry = Stoichiometry.compile(proc, this);
+
+        position = stoichs.length;
+        stoichs = Arrays.copyOf(stoichs, position + 1);
+        stoichs[position] = stoichiometry;
+        stoichTable.put(proc.getProcIndex(), position);
+
+        return stoichiometry;
+    }
+
+    private int getGroupSlot(AgentGroup group) {
+        int groupSlot = groupTable.get(group.getGroupIndex());
+
+        if (groupSlot != NO_SLOT)
+            return groupSlot;
+
+        groupSlot = groupTotals.length;
+        groupTotals = Arrays.copyOf(groupTotals, groupSlot + 1);
+        groupTable.put(group.getGroupIndex(), groupSlot);
+
+        //
+        // Register the group with the slot of each member agent (which
+        // may be assigned here) and compute the initial total...
+        //
+        for (StochAgent agent : group.viewAgents()) {
+            int slot = getSlot(agent);
+            int[] groupSlots = memberships[slot];
+
+            groupSlots = Arrays.copyOf(groupSlots, groupSlots.length + 1);
+            groupSlots[groupSlots.length - 1] = groupSlot;
+
+            memberships[slot] = groupSlots;
+            groupTotals[groupSlot] += counts[slot];
+        }
+
+        return groupSlot;
+    }
+
+    /**
+     * Returns the number of agent slots in this population: the number
+     * of distinct agents that have entered the population (including
+     * those whose count has returned to zero).
+     *
+     * @return the number of agent slots in this population.
+     */
+    public int countSlots() {
+        return slotCount;
+    }
+
+    /**
+     * Removes one instance of an agent from this population.
+     *
+     * @param slot the slot of the agent to remove.
+     *
+     * @throws IllegalArgumentException unless this population contains
+     * at least one instance of the agent.
+     */
+    public void decrementSlot(int slot) {
+        if (counts[slot] < 1)
+            throw new IllegalArgumentException("Agent count must remain non-negative.");
+
+        assignSlot(slot, counts[slot] - 1);
+    }
+
+    /**
+     * Returns the agent assigned to a given slot.
+     *
+     * @param slot the slot of interest.
+     *
+     * @return the agent assigned to the specified slot.
+     *
+     * @throws IndexOutOfBoundsException unless the slot is valid.
+     */
+    public StochAgent getAgent(int slot) {
+        if (slot < slotCount)
+            return agents[slot];
+        else
+            throw new IndexOutOfBoundsException(slot);
+    }
+
+    /**
+     * Returns the slot assigned to an agent, assigning a new slot (with
+     * a zero count) if the agent has not yet entered this population.
+     *
+     * @param agent the agent of interest.
+     *
+     * @return the slot assigned to the specified agent.
+     */
+    public int getSlot(StochAgent agent) {
+        int slot = findSlot(agent);
+
+        if (slot != NO_SLOT)
+            return slot;
+
+        if (slotCount == agents.length) {
+            agents = Arrays.copyOf(agents, 2 * slotCount);
+            counts = Arrays.copyOf(counts, 2 * slotCount);
+            memberships = Arrays.copyOf(memberships, 2 * slotCount);
+            Arrays.fill(memberships, slotCount, memberships.length, NO_GROUPS);
+        }
+
+        slot = slotCount++;
+        agents[slot] = agent;
+        slotTable.put(agent.getAgentIndex(), slot);
+
+        return slot;
+    }
+
+    /**
+     * Adds one instance of an agent to this population.
+     *
+     * @param slot the slot of the agent to add.
+     */
+    public void incrementSlot(int slot) {
+        assignSlot(slot, Math.incrementExact(counts[slot]));
     }
 
     /**
@@ -147,10 +410,12 @@ public final class AgentPopulation {
      * contains at least {@code count} instances of the agent.
      */
     public void remove(StochAgent agent, int count) {
-        if (counts.count(agent) < count)
+        if (count < 0)
+            throw new IllegalArgumentException("Agent count must be non-negative.");
+        else if (count(agent) < count)
             throw new IllegalArgumentException("Agent count must remain non-negative.");
         else
-            counts.remove(agent, count);
+            adjust(agent, -count);
     }
 
     /**
@@ -176,6 +441,22 @@ public final class AgentPopulation {
         if (count < 0)
             throw new IllegalArgumentException("Agent count must be non-negative.");
         else
-            counts.setCount(agent, count);
+            assignSlot(getSlot(agent), count);
+    }
+
+    /**
+     * Returns an immutable snapshot of this population as a multiset
+     * (containing only the agents with positive counts).
+     *
+     * @return an immutable snapshot of this population as a multiset.
+     */
+    public Multiset<StochAgent> toMultiset() {
+        ImmutableMultiset.Builder<StochAgent> builder = ImmutableMultiset.builder();
+
+        for (int slot = 0; slot < slotCount; ++slot)
+            if (counts[slot] > 0)
+                builder.addCopies(agents[slot], counts[slot]);
+
+        return builder.build();
     }
 }
@@ -15,6 +15,11 @@
  */
 package com.tipplerow.jam.stoch.agent;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
 import com.google.common.collect.Multiset;
 
 import com.tipplerow.jam.math.DoubleComparator;
@@ -25,12 +30,38 @@ import com.tipplerow.jam.stoch.StochRate;
  * Represents an agent-based process that may occur in a stochastic
  * simulation.
  *
+ * <p>The reactants and products of a process must not change after it
+ * is created: the net population change is computed once, and the
+ * stoichiometry is compiled into arrays of agent slots and population
+ * deltas when the process first updates a population, so that firing
+ * the process and computing its mass-action rate require no object
+ * allocation.  Each population keeps its own compiled stoichiometry,
+ * so one process may be shared by systems with separate populations.
+ *
  * @author Scott Shaffer
  */
 public abstract class AgentProc extends StochProc {
     // The instantaneous rate of this process, updated as the
-    // underlying stochastic system evolves...
-    private StochRate stochRate = null;
+    // underlying stochastic system evolves (NaN until assigned)...
+    private double rateValue = Double.NaN;
+
+    // The net population change (computed on demand)...
+    private Map<StochAgent, Integer> netChange = null;
+
+    // Whether the concrete class overrides computeRate(AgentSystem), in
+    // which case updateRate() must call it to honor the override...
+    private final boolean customRate;
+
+    private static final ClassValue<Boolean> CUSTOM_RATE = new ClassValue<Boolean>() {
+        @Override protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("computeRate", AgentSystem.class).getDeclaringClass() != AgentProc.class;
+            }
+            catch (NoSuchMethodException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    };
 
     /**
      * Creates a new agent-based process with an unknown initial rate.
@@ -38,6 +69,7 @@ public abstract class AgentProc extends StochProc {
      * to the first step in the stochastic simulation.
      */
     protected AgentProc() {
+        this.customRate = CUSTOM_RATE.get(getClass());
     }
 
     /**
@@ -55,6 +87,69 @@ public abstract class AgentProc extends StochProc {
      */
     public abstract Multiset<StochAgent> getProducts();
 
+    /**
+     * Returns the agents other than the reactants whose populations
+     * affect the rate constant of this process (its <em>rate
+     * modifiers</em>).  Together with the reactants, the modifiers
+     * determine which processes must be linked to this process in the
+     * dependency graph of an agent system.
+     *
+     * <p>This default implementation returns an empty set, which is
+     * appropriate for rate constants that do not depend on the agent
+     * populations.  Subclasses with population-dependent rate constants
+     * must override this method.
+     *
+     * @return the agents other than the reactants whose populations
+     * affect the rate constant of this process.
+     */
+    public Set<StochAgent> getRateModifiers() {
+        return Set.of();
+    }
+
+    /**
+     * Returns the net change in the agent population that occurs when
+     * this process occurs: the number of instances of each agent that
+     * are produced less the number consumed.  Agents whose population
+     * does not change are omitted.
+     *
+     * @return a read-only map from each agent to its net change in
+     * population when this process occurs.
+     */
+    public Map<StochAgent, Integer> getNetChange() {
+        if (netChange == null)
+            netChange = computeNetChange();
+
+        return netChange;
+    }
+
+    private Map<StochAgent, Integer> computeNetChange() {
+        Multiset<StochAgent> reactants = getReactants();
+        Multiset<StochAgent> products = getProducts();
+        Map<StochAgent, Integer> netChange = new LinkedHashMap<>();
+
+        for (Multiset.Entry<StochAgent> entry : reactants.entrySet())
+            netChange.put(entry.getElement(), products.count(entry.getElement()) - entry.getCount());
+
+        for (Multiset.Entry<StochAgent> entry : products.entrySet())
+            if (!reactants.contains(entry.getElement()))
+                netChange.put(entry.getElement(), entry.getCount());
+
+        netChange.values().removeIf(delta -> delta == 0);
+        return Collections.unmodifiableMap(netChange);
+    }
+
+    /**
+     * Identifies processes whose rates follow the <em>mass-action</em>
+     * form {@code k * n1 * n2 * ...}, where {@code n1, n2, ...} are the
+     * reactant populations, with a rate constant {@code k} that does not
+     * depend on any agent populations.
+     *
+     * @return {@code true} iff this process has no rate modifiers.
+     */
+    public boolean isMassAction() {
+        return getRateModifiers().isEmpty();
+    }
+
     /**
      * Returns the instantaneous rate constant for this process, which
      * may depend on the simulation time or context.
@@ -66,6 +161,46 @@ public abstract class AgentProc extends StochProc {
      */
     public abstract double getRateConstant(AgentSystem system);
 
+    /**
+     * Returns a lower bound on the rate constant for this process that
+     * remains valid while the agent populations fluctuate about their
+     * current values (as long as the processes that consume each agent
+     * are updated whenever its population leaves its fluctuation
+     * interval).
+     *
+     * <p>This default implementation returns the current rate constant,
+     * which is appropriate for rate constants that do not depend on the
+     * agent populations.  Subclasses with population-dependent rate
+     * constants must override this method.
+     *
+     * @param system the stochastic system that contains this process.
+     *
+     * @return a lower bound on the rate constant for this process.
+     */
+    public double getLowerRateConstant(AgentSystem system) {
+        return getRateConstant(system);
+    }
+
+    /**
+     * Returns an upper bound on the rate constant for this process that
+     * remains valid while the agent populations fluctuate about their
+     * current values (as long as the processes that consume each agent
+     * are updated whenever its population leaves its fluctuation
+     * interval).
+     *
+     * <p>This default implementation returns the current rate constant,
+     * which is appropriate for rate constants that do not depend on the
+     * agent populations.  Subclasses with population-dependent rate
+     * constants must override this method.
+     *
+     * @param system the stochastic system that contains this process.
+     *
+     * @return an upper bound on the rate constant for this process.
+     */
+    public double getUpperRateConstant(AgentSystem system) {
+        return getRateConstant(system);
+    }
+
     /**
      * Computes the rate of a first-order process from a rate constant
      * and agent population.
@@ -160,19 +295,36 @@ public abstract class AgentProc extends StochProc {
      * Computes the instantaneous rate of this process, which may
      * depend on the simulation time or context.
      *
+     * <p>This default implementation wraps {@code computeRateValue()}.
+     * New subclasses with specialized rate expressions should override
+     * {@code computeRateValue()}, which {@code updateRate()} calls
+     * without creating a rate object; subclasses that override this
+     * method instead are still honored by {@code updateRate()}, at the
+     * cost of one rate object per update.
+     *
      * @param system the stochastic system that contains this process.
      *
      * @return the instantaneous rate of this process in the current
      * state of the stochastic system.
      */
     public StochRate computeRate(AgentSystem system) {
-        double rate = getRateConstant(system);
-        validateRateConstant(rate);
-
-        for (StochAgent reactant : getReactants())
-            rate *= system.countAgent(reactant);
+        return StochRate.of(computeRateValue(system));
+    }
 
-        return StochRate.of(rate);
+    /**
+     * Computes the instantaneous rate of this process as a primitive
+     * value; the rate assigned by {@code updateRate()} is computed by
+     * this method (unless a subclass overrides {@code computeRate()}),
+     * so subclasses with specialized rate expressions should override
+     * this method.
+     *
+     * @param system the stochastic system that contains this process.
+     *
+     * @return the instantaneous rate of this process in the current
+     * state of the stochastic system.
+     */
+    public double computeRateValue(AgentSystem system) {
+        return system.getPopulation().getStoichiometry(this).computeRate(validateRateConstant(getRateConstant(system)));
     }
 
     /**
@@ -181,13 +333,31 @@ public abstract class AgentProc extends StochProc {
      *
      * @param population the population of stochastic agents prior to
      * the occurrence of this process.
+     *
+     * @throws IllegalArgumentException if the population of any agent
+     * would become negative.
      */
     public void updatePopulation(AgentPopulation population) {
-        for (StochAgent reactant : getReactants())
-            population.remove(reactant);
+        population.getStoichiometry(this).apply(1);
+    }
+
+    /**
+     * Updates the population of stochastic agents after this process
+     * occurs multiple times.
+     *
+     * @param population the population of stochastic agents prior to
+     * the occurrences of this process.
+     *
+     * @param count the number of times that this process occurred.
+     *
+     * @throws IllegalArgumentException if the count is negative or the
+     * population of any agent would become negative.
+     */
+    public void updatePopulation(AgentPopulation population, int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Event count must be non-negative.");
 
-        for (StochAgent product : getProducts())
-            population.add(product);
+        population.getStoichiometry(this).apply(count);
     }
 
     /**
@@ -197,12 +367,19 @@ public abstract class AgentProc extends StochProc {
      * @param system the stochastic system that contains this process.
      */
     public void updateRate(AgentSystem system) {
-        stochRate = computeRate(system);
+        if (customRate)
+            rateValue = computeRate(system).doubleValue();
+        else
+            rateValue = computeRateValue(system);
     }
 
     @Override public StochRate getStochRate() {
-        if (stochRate != null)
-            return stochRate;
+        return StochRate.of(getRateValue());
+    }
+
+    @Override public double getRateValue() {
+        if (!Double.isNaN(rateValue))
+            return rateValue;
         else
             throw new IllegalStateException("The process rate has not been assigned.");
     }
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import com.tipplerow.jam.lang.JamException;
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.StochRate;
+
+/**
+ * Holds the mutable state of one simulation replicate of a
+ * {@link CompiledNetwork}: the agent populations, the process rates,
+ * the clock, and the random number source.
+ *
+ * <p>The state advances by the direct method of Gillespie.  Only the
+ * rates of the dependent processes are recomputed after each event,
+ * and the total rate is recomputed in full periodically to limit the
+ * accumulation of round-off error.  The network is never modified, so
+ * any number of states (one per thread) may share a single network.
+ *
+ * @author Scott Shaffer
+ */
+public final class AgentState {
+    private final CompiledNetwork network;
+    private final JamRandom random;
+
+    // The agent populations, indexed by agent slot...
+    private final int[] counts;
+
+    // The process rates, indexed by process slot...
+    private final double[] rates;
+
+    private double totalRate;
+    private int rateAge;
+    private final int ageThreshold;
+
+    private double time = 0.0;
+    private long eventCount = 0L;
+
+    private static final int MAX_AGE_THRESHOLD = 1000000;
+
+    private AgentState(CompiledNetwork network, JamRandom random) {
+        this.network = network;
+        this.random = random;
+        this.counts = network.initialCounts();
+        this.rates = new double[network.countProcs()];
+        this.ageThreshold = Math.min(MAX_AGE_THRESHOLD, 100 * Math.max(1, rates.length));
+
+        updateFull();
+    }
+
+    static AgentState create(CompiledNetwork network, JamRandom random) {
+        return new AgentState(network, random);
+    }
+
+    private void updateFull() {
+        rateAge = 0;
+        totalRate = 0.0;
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            rates[procSlot] = network.computeRate(procSlot, counts);
+            totalRate += rates[procSlot];
+        }
+    }
+
+    private void updateRate(int procSlot) {
+        double newRate = network.computeRate(procSlot, counts);
+
+        totalRate += newRate - rates[procSlot];
+        rates[procSlot] = newRate;
+    }
+
+    private int selectProc() {
+        double threshold = random.nextDouble() * totalRate;
+        double cumulative = 0.0;
+        int lastLive = -1;
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            if (rates[procSlot] <= 0.0)
+                continue;
+
+            cumulative += rates[procSlot];
+            lastLive = procSlot;
+
+            if (cumulative >= threshold)
+                return procSlot;
+        }
+
+        //
+        // Round-off error may leave the threshold slightly above the
+        // accumulated total...
+        //
+        if (lastLive >= 0)
+            return lastLive;
+
+        throw JamException.runtime("Process selection failed.");
+    }
+
+    private void fire(int procSlot, double eventTime) {
+        int[] slots = network.changeSlots(procSlot);
+        int[] deltas = network.changeDeltas(procSlot);
+
+        for (int index = 0; index < slots.length; ++index)
+            if (counts[slots[index]] + deltas[index] < 0)
+                throw new IllegalArgumentException("Agent count must remain non-negative.");
+
+        for (int index = 0; index < slots.length; ++index)
+            counts[slots[index]] += deltas[index];
+
+        time = eventTime;
+        ++eventCount;
+
+        if (++rateAge >= ageThreshold) {
+            updateFull();
+            return;
+        }
+
+        updateRate(procSlot);
+
+        for (int dependent : network.dependentSlots(procSlot))
+            updateRate(dependent);
+    }
+
+    /**
+     * Advances this state by one event.
+     *
+     * @throws RuntimeException unless the total rate is positive.
+     */
+    public void advance() {
+        if (totalRate <= 0.0)
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        double eventTime = StochRate.sampleTime(totalRate, time, random);
+        fire(selectProc(), eventTime);
+    }
+
+    /**
+     * Advances this state by a fixed number of events.
+     *
+     * @param count the number of events.
+     *
+     * @throws RuntimeException if the count is negative or the total
+     * rate falls to zero before the events have occurred.
+     */
+    public void advance(long count) {
+        if (count < 0)
+            throw JamException.runtime("Step count must be non-negative.");
+
+        for (long step = 0; step < count; ++step)
+            advance();
+    }
+
+    /**
+     * Advances this state through every event that occurs at or before
+     * a time horizon and then advances the clock to the horizon.  The
+     * first event sampled after the horizon is discarded (the waiting
+     * times are memoryless).
+     *
+     * @param horizon the (absolute) time horizon.
+     *
+     * @return the number of events that occurred.
+     */
+    public long advanceUntil(double horizon) {
+        long initCount = eventCount;
+
+        while (totalRate > 0.0) {
+            double eventTime = StochRate.sampleTime(totalRate, time, random);
+
+            if (eventTime > horizon)
+                break;
+
+            fire(selectProc(), eventTime);
+        }
+
+        if (Double.isFinite(horizon) && horizon > time)
+            time = horizon;
+
+        return eventCount - initCount;
+    }
+
+    /**
+     * Counts the number of instances of an agent in this state.
+     *
+     * @param agent the agent to count.
+     *
+     * @return the number of instances of the specified agent.
+     *
+     * @throws RuntimeException unless the network contains the agent.
+     */
+    public int countAgent(StochAgent agent) {
+        return counts[network.getAgentSlot(agent)];
+    }
+
+    /**
+     * Counts the number of events that have occurred in this state.
+     *
+     * @return the number of events that have occurred in this state.
+     */
+    public long countEvents() {
+        return eventCount;
+    }
+
+    /**
+     * Counts the number of instances of an agent in this state.
+     *
+     * @param agentSlot the slot of the agent to count.
+     *
+     * @return the number of instances of the agent in the specified
+     * slot.
+     */
+    public int countSlot(int agentSlot) {
+        return counts[agentSlot];
+    }
+
+    /**
+     * Returns the network that this state simulates.
+     *
+     * @return the network that this state simulates.
+     */
+    public CompiledNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * Returns the current instantaneous rate of a process.
+     *
+     * @param procSlot the slot of the process.
+     *
+     * @return the current instantaneous rate of the process.
+     */
+    public double getRateValue(int procSlot) {
+        return rates[procSlot];
+    }
+
+    /**
+     * Returns the current time on the clock of this state.
+     *
+     * @return the current time on the clock of this state.
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the current total instantaneous transition rate.
+     *
+     * @return the current total instantaneous transition rate.
+     */
+    public double getTotalRateValue() {
+        return totalRate;
+    }
+}
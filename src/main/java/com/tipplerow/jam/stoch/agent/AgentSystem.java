@@ -15,14 +15,26 @@
  */
 package com.tipplerow.jam.stoch.agent;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import com.google.common.collect.Multiset;
+
 import com.tipplerow.jam.lang.JamException;
+import com.tipplerow.jam.stoch.ProcSlotMap;
 import com.tipplerow.jam.stoch.RateLink;
+import com.tipplerow.jam.stoch.SlotGraph;
+import com.tipplerow.jam.stoch.StochEvent;
 import com.tipplerow.jam.stoch.StochProc;
 import com.tipplerow.jam.stoch.StochSystem;
+import com.tipplerow.jam.stoch.StochTime;
 
 /**
  * Represents a system of coupled stochastic processes involving
@@ -41,8 +53,8 @@ public abstract class AgentSystem extends StochSystem {
      * the agents and assign their initial populations by calling
      * {@code addAgent}, add the stochastic processes by calling
      * {@code addProcess}, specify the process dependency graph by
-     * calling {@code addLink}, and initialize the process rates
-     * by calling {@code updateRates}.
+     * calling {@code addLink} or {@code addInferredLinks}, and
+     * initialize the process rates by calling {@code updateRates}.
      */
     protected AgentSystem() {
         this.agentMap = AgentMap.create();
@@ -54,8 +66,9 @@ public abstract class AgentSystem extends StochSystem {
      *
      * <p>After the system is constructed, the application must add
      * the stochastic processes by calling {@code addProcess}, specify
-     * the process dependency graph by calling {@code addLink}, and
-     * initialize the process rates by calling {@code updateRates}.
+     * the process dependency graph by calling {@code addLink} or
+     * {@code addInferredLinks}, and initialize the process rates by
+     * calling {@code updateRates}.
      */
     protected AgentSystem(AgentMap agentMap, AgentPopulation agentPop) {
         this.agentMap = agentMap;
@@ -91,6 +104,95 @@ public abstract class AgentSystem extends StochSystem {
         updateRates();
     }
 
+    /**
+     * Creates a new coupled stochastic system containing discrete
+     * agents with a dependency graph inferred from the stoichiometry
+     * of the processes (see {@code inferLinks}).
+     *
+     * @param agentMap the discrete stochastic agents in the system.
+     *
+     * @param agentPop the initial population of the stochastic agents
+     * in the system.
+     *
+     * @param procs the stochastic process which compose the system.
+     */
+    protected AgentSystem(AgentMap agentMap, AgentPopulation agentPop, Collection<AgentProc> procs) {
+        this(agentMap, agentPop, procs, inferLinks(procs));
+    }
+
+    /**
+     * Infers the minimal dependency graph for a collection of agent
+     * processes from their stoichiometry: process {@code j} depends on
+     * process {@code i} if and only if the occurrence of process
+     * {@code i} changes the population of a reactant or rate modifier
+     * of process {@code j}.  Agents whose population does not change
+     * (catalysts) never create links.
+     *
+     * @param procs the processes in an agent system.
+     *
+     * @return the rate links between the specified processes, grouped
+     * by predecessor in the iteration order of the input collection.
+     */
+    public static List<RateLink> inferLinks(Collection<? extends AgentProc> procs) {
+        //
+        // Map each agent to the processes whose rates depend on its
+        // population...
+        //
+        Map<StochAgent, Set<AgentProc>> readers = new LinkedHashMap<>();
+
+        for (AgentProc proc : procs) {
+            for (StochAgent agent : proc.getReactants().elementSet())
+                readers.computeIfAbsent(agent, key -> new LinkedHashSet<>()).add(proc);
+
+            for (StochAgent agent : proc.getRateModifiers())
+                readers.computeIfAbsent(agent, key -> new LinkedHashSet<>()).add(proc);
+        }
+
+        List<RateLink> links = new ArrayList<>();
+
+        for (AgentProc predecessor : procs) {
+            Set<AgentProc> successors = new LinkedHashSet<>();
+
+            for (StochAgent agent : predecessor.getNetChange().keySet())
+                successors.addAll(readers.getOrDefault(agent, Set.of()));
+
+            // The rate of the process that occurs is always updated...
+            successors.remove(predecessor);
+
+            for (AgentProc successor : successors)
+                links.add(RateLink.link(predecessor, successor));
+        }
+
+        return links;
+    }
+
+    /**
+     * Adds the rate links inferred from the stoichiometry of the
+     * processes in this system (see {@code inferLinks}).
+     */
+    protected void addInferredLinks() {
+        addLinks(inferLinks(viewProcesses()));
+    }
+
+    /**
+     * Identifies rate links that are implied by the stoichiometry of
+     * the processes in this system (see {@code inferLinks}) but are
+     * missing from its dependency graph.  Missing links cause the rates
+     * of dependent processes to become stale during a simulation.
+     *
+     * @return the inferred links that are missing from the dependency
+     * graph of this system (an empty list if the graph is complete).
+     */
+    public List<RateLink> findMissingLinks() {
+        List<RateLink> missing = new ArrayList<>();
+
+        for (RateLink link : inferLinks(viewProcesses()))
+            if (!viewDependents(link.getPredecessor()).contains(link.getSuccessor()))
+                missing.add(link);
+
+        return missing;
+    }
+
     /**
      * Adds agent instances to this system.
      *
@@ -188,6 +290,22 @@ public abstract class AgentSystem extends StochSystem {
         return total;
     }
 
+    /**
+     * Counts the total number of instances of the agents in a group.
+     *
+     * <p>The agent population maintains the total incrementally after
+     * the group is first counted, so this method runs in constant time
+     * (after the first call) regardless of the size of the group.
+     *
+     * @param group the group to count.
+     *
+     * @return the total number of instances of the agents in the
+     * specified group.
+     */
+    public long countGroup(AgentGroup group) {
+        return agentPop.countGroup(group);
+    }
+
     /**
      * Accesses stochastic agents in this system by their ordinal index.
      *
@@ -218,15 +336,173 @@ public abstract class AgentSystem extends StochSystem {
         return Collections.unmodifiableCollection(agentMap.values());
     }
 
+    /**
+     * Updates the state of this stochastic system after a <em>leap</em>:
+     * the simultaneous occurrence of many events over a time interval,
+     * as taken by tau-leaping simulation algorithms.
+     *
+     * <p>The net population change is computed over all events before
+     * any agent populations are modified, so the order in which the
+     * processes occur within the leap is irrelevant.  The rates of the
+     * processes that occurred and their dependents are then updated.
+     *
+     * @param time the (absolute) time at the end of the leap.
+     *
+     * @param firings the number of times that each process occurred
+     * during the leap.
+     *
+     * @throws RuntimeException unless the leap ends after the previous
+     * event, this system contains every process that occurred, and the
+     * population of every agent remains non-negative.
+     */
+    public void updateState(StochTime time, Multiset<? extends AgentProc> firings) {
+        Map<StochAgent, Integer> netChange = new HashMap<>();
+
+        for (Multiset.Entry<? extends AgentProc> entry : firings.entrySet()) {
+            requireProcess(entry.getElement());
+
+            for (Map.Entry<StochAgent, Integer> change : entry.getElement().getNetChange().entrySet())
+                netChange.merge(change.getKey(), entry.getCount() * change.getValue(), Integer::sum);
+        }
+
+        validateChange(netChange);
+        recordLeap(time, firings.size());
+        applyChange(netChange);
+
+        Set<AgentProc> updated = new LinkedHashSet<>();
+
+        for (AgentProc proc : firings.elementSet()) {
+            updated.add(proc);
+            updated.addAll(viewDependents(proc));
+        }
+
+        for (AgentProc proc : updated)
+            proc.updateRate(this);
+    }
+
+    /**
+     * Updates the state of this stochastic system after a leap whose
+     * events are not attributed to individual processes, as taken by
+     * hybrid simulation algorithms that integrate some processes as
+     * continuous flows.
+     *
+     * <p>The rates of all processes are updated after the agent
+     * populations are modified.
+     *
+     * @param time the (absolute) time at the end of the leap.
+     *
+     * @param eventCount the number of events represented by the leap.
+     *
+     * @param netChange the net change in the population of each agent
+     * during the leap.
+     *
+     * @throws RuntimeException unless the leap ends after the previous
+     * event, the event count is non-negative, and the population of
+     * every agent remains non-negative.
+     */
+    public void updateState(StochTime time, long eventCount, Map<StochAgent, Integer> netChange) {
+        validateChange(netChange);
+        recordLeap(time, eventCount);
+        applyChange(netChange);
+        updateRates();
+    }
+
+    private void validateChange(Map<StochAgent, Integer> netChange) {
+        for (Map.Entry<StochAgent, Integer> change : netChange.entrySet())
+            if (countAgent(change.getKey()) + change.getValue() < 0)
+                throw JamException.runtime("Agent population must remain non-negative.");
+    }
+
+    private void applyChange(Map<StochAgent, Integer> netChange) {
+        for (Map.Entry<StochAgent, Integer> change : netChange.entrySet())
+            agentPop.adjust(change.getKey(), change.getValue());
+    }
+
+    /**
+     * Updates the agent population after an event occurs, but does
+     * <em>not</em> update any process rates.  This method supports
+     * simulation algorithms (such as the rejection-based method) that
+     * bound the process rates and evaluate them only on demand: the
+     * rates returned by {@code getStochRate()} are stale until the
+     * processes are updated explicitly.
+     *
+     * @param event the most recent event to occur in this system.
+     *
+     * @throws RuntimeException unless the event occurs after the
+     * previous event in this system and this system contains the
+     * process that occurred.
+     */
+    public void updatePopulation(StochEvent event) {
+        recordEvent(event);
+        lastEventProcess().updatePopulation(this.agentPop);
+    }
+
+    /**
+     * Updates the agent population after a leap whose net population
+     * change has been accumulated against the slots of the population,
+     * but does <em>not</em> update any process rates; the simulation
+     * algorithm must update the rates of the processes that occurred
+     * and their dependents.
+     *
+     * @param time the (absolute) time at the end of the leap.
+     *
+     * @param eventCount the number of events that occurred during the
+     * leap.
+     *
+     * @param slots the population slots of the agents that changed.
+     *
+     * @param deltas the change in the population of each agent, in the
+     * same order as the slots.
+     *
+     * @param changeCount the number of leading entries in the slot and
+     * delta arrays that describe the leap.
+     *
+     * @throws RuntimeException unless the leap ends after the previous
+     * event and the population of every agent remains non-negative.
+     */
+    void updatePopulation(StochTime time, long eventCount, int[] slots, int[] deltas, int changeCount) {
+        for (int index = 0; index < changeCount; ++index)
+            if (agentPop.countSlot(slots[index]) + deltas[index] < 0)
+                throw JamException.runtime("Agent population must remain non-negative.");
+
+        recordLeap(time, eventCount);
+
+        for (int index = 0; index < changeCount; ++index)
+            agentPop.adjustSlot(slots[index], deltas[index]);
+    }
+
+    /**
+     * Returns the agent population of this system, for use by the
+     * processes that update it.
+     *
+     * @return the agent population of this system.
+     */
+    AgentPopulation getPopulation() {
+        return agentPop;
+    }
+
     @Override protected void updateState() {
         AgentProc lastProc = lastEventProcess();
-        Set<? extends AgentProc> dependents = viewDependents(lastProc);
 
         lastProc.updatePopulation(this.agentPop);
         lastProc.updateRate(this);
 
-        for (AgentProc dependent : dependents)
-            dependent.updateRate(this);
+        if (isFrozen()) {
+            //
+            // Traverse the compiled dependency graph, which requires
+            // no object allocation...
+            //
+            ProcSlotMap slotMap = getSlotMap();
+            SlotGraph slotGraph = getSlotGraph();
+            int slot = slotMap.getSlot(lastProc);
+
+            for (int edge = slotGraph.edgeStart(slot); edge < slotGraph.edgeEnd(slot); ++edge)
+                ((AgentProc) slotMap.getProc(slotGraph.successor(edge))).updateRate(this);
+        }
+        else {
+            for (AgentProc dependent : viewDependents(lastProc))
+                dependent.updateRate(this);
+        }
     }
 
     @Override public AgentProc lastEventProcess() {
@@ -0,0 +1,363 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.Arrays;
+
+import com.tipplerow.jam.lang.JamException;
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.EnsembleRunner;
+import com.tipplerow.jam.stoch.StochRate;
+
+/**
+ * Advances a batch of independent replicates of one small
+ * {@link CompiledNetwork} in lockstep, for parameter scans and other
+ * studies that require very many replicates.
+ *
+ * <p>The agent populations and process rates are stored in
+ * struct-of-arrays layout: one array per agent (or process) indexed by
+ * replicate.  In each lockstep step every live replicate draws its next
+ * event time and selects a process; the population changes are then
+ * applied, and the rates recomputed, one agent (or process) at a time
+ * in tight loops over the replicates that the compiler may vectorize.
+ * Recomputing every rate at every step is cheap for networks with tens
+ * of processes and keeps the total rates free of accumulated round-off.
+ *
+ * <p>Each replicate draws from its own random number source, seeded
+ * exactly as {@link EnsembleRunner} seeds its replicates.
+ *
+ * @author Scott Shaffer
+ */
+public final class BatchEngine {
+    private final CompiledNetwork network;
+    private final int batchSize;
+    private final JamRandom[] randoms;
+
+    // The agent populations and process rates, indexed by slot and
+    // then by replicate...
+    private final int[][] counts;
+    private final double[][] rates;
+
+    // The total rate and clock of each replicate, and the time of the
+    // event selected by each replicate in the current step...
+    private final double[] totalRates;
+    private final double[] times;
+    private final double[] eventTimes;
+
+    // The process selected by each replicate in the current step (or
+    // NO_PROC), whether each replicate has finished the current run,
+    // and the capped group totals for each replicate...
+    private final int[] selected;
+    private final boolean[] finished;
+    private final long[] groupTotals;
+
+    private long eventCount = 0L;
+    private long elapsedNanos = 0L;
+
+    private static final int NO_PROC = -1;
+
+    private BatchEngine(CompiledNetwork network, int batchSize, long masterSeed) {
+        if (batchSize < 1)
+            throw JamException.runtime("Batch size must be positive.");
+
+        EnsembleRunner runner = EnsembleRunner.create(masterSeed, batchSize);
+
+        this.network = network;
+        this.batchSize = batchSize;
+        this.randoms = new JamRandom[batchSize];
+        this.counts = new int[network.countAgents()][batchSize];
+        this.rates = new double[network.countProcs()][batchSize];
+        this.totalRates = new double[batchSize];
+        this.times = new double[batchSize];
+        this.eventTimes = new double[batchSize];
+        this.selected = new int[batchSize];
+        this.finished = new boolean[batchSize];
+        this.groupTotals = new long[batchSize];
+
+        int[] initCounts = network.initialCounts();
+
+        for (int agentSlot = 0; agentSlot < initCounts.length; ++agentSlot)
+            Arrays.fill(counts[agentSlot], initCounts[agentSlot]);
+
+        for (int replicate = 0; replicate < batchSize; ++replicate)
+            randoms[replicate] = runner.replicateRandom(replicate);
+
+        updateRates();
+    }
+
+    /**
+     * Creates a new batch of replicates, each with the initial agent
+     * populations of the network template and the clock at zero.
+     *
+     * @param network the network to simulate.
+     *
+     * @param batchSize the number of replicates in the batch.
+     *
+     * @param masterSeed the seed from which the random number sources
+     * for all replicates are derived.
+     *
+     * @return a new batch engine with the specified parameters.
+     *
+     * @throws RuntimeException unless the batch size is positive.
+     */
+    public static BatchEngine create(CompiledNetwork network, int batchSize, long masterSeed) {
+        return new BatchEngine(network, batchSize, masterSeed);
+    }
+
+    private void updateRates() {
+        Arrays.fill(totalRates, 0.0);
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            double[] procRates = rates[procSlot];
+            Arrays.fill(procRates, network.rateConst(procSlot));
+
+            for (int agentSlot : network.reactantSlots(procSlot)) {
+                int[] agentCounts = counts[agentSlot];
+
+                for (int replicate = 0; replicate < batchSize; ++replicate)
+                    procRates[replicate] *= agentCounts[replicate];
+            }
+
+            for (int index = 0; index < network.countCaps(procSlot); ++index)
+                applyCapacity(procSlot, index, procRates);
+
+            for (int replicate = 0; replicate < batchSize; ++replicate)
+                totalRates[replicate] += procRates[replicate];
+        }
+    }
+
+    private void applyCapacity(int procSlot, int index, double[] procRates) {
+        Arrays.fill(groupTotals, 0L);
+
+        for (int agentSlot : network.cappedSlots(procSlot, index)) {
+            int[] agentCounts = counts[agentSlot];
+
+            for (int replicate = 0; replicate < batchSize; ++replicate)
+                groupTotals[replicate] += agentCounts[replicate];
+        }
+
+        int capacity = network.capacity(procSlot, index);
+
+        for (int replicate = 0; replicate < batchSize; ++replicate)
+            if (groupTotals[replicate] >= capacity)
+                procRates[replicate] = 0.0;
+    }
+
+    private void validateChanges() {
+        //
+        // Check every selected replicate before any count changes, so
+        // that an invalid event leaves the whole batch untouched...
+        //
+        for (int replicate = 0; replicate < batchSize; ++replicate) {
+            int procSlot = selected[replicate];
+
+            if (procSlot == NO_PROC)
+                continue;
+
+            int[] slots = network.changeSlots(procSlot);
+            int[] deltas = network.changeDeltas(procSlot);
+
+            for (int index = 0; index < slots.length; ++index)
+                if (counts[slots[index]][replicate] + deltas[index] < 0)
+                    throw new IllegalArgumentException("Agent count must remain non-negative.");
+        }
+    }
+
+    private void applyChanges() {
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            int[] slots = network.changeSlots(procSlot);
+            int[] deltas = network.changeDeltas(procSlot);
+
+            for (int index = 0; index < slots.length; ++index) {
+                int delta = deltas[index];
+                int[] agentCounts = counts[slots[index]];
+
+                for (int replicate = 0; replicate < batchSize; ++replicate)
+                    agentCounts[replicate] += (selected[replicate] == procSlot) ? delta : 0;
+            }
+        }
+
+        for (int replicate = 0; replicate < batchSize; ++replicate)
+            if (selected[replicate] != NO_PROC)
+                times[replicate] = eventTimes[replicate];
+    }
+
+    private int selectProc(int replicate) {
+        double threshold = randoms[replicate].nextDouble() * totalRates[replicate];
+        double cumulative = 0.0;
+        int lastLive = NO_PROC;
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            double rate = rates[procSlot][replicate];
+
+            if (rate <= 0.0)
+                continue;
+
+            cumulative += rate;
+            lastLive = procSlot;
+
+            if (cumulative >= threshold)
+                return procSlot;
+        }
+
+        return lastLive;
+    }
+
+    private int step(double horizon) {
+        int fired = 0;
+
+        for (int replicate = 0; replicate < batchSize; ++replicate) {
+            selected[replicate] = NO_PROC;
+
+            if (finished[replicate] || totalRates[replicate] <= 0.0) {
+                finished[replicate] = true;
+                continue;
+            }
+
+            double time = StochRate.sampleTime(totalRates[replicate], times[replicate], randoms[replicate]);
+
+            //
+            // The waiting time is memoryless, so an event sampled past
+            // the horizon is discarded and the replicate finishes...
+            //
+            if (time > horizon) {
+                finished[replicate] = true;
+                continue;
+            }
+
+            eventTimes[replicate] = time;
+            selected[replicate] = selectProc(replicate);
+            ++fired;
+        }
+
+        if (fired > 0) {
+            validateChanges();
+            applyChanges();
+            updateRates();
+            eventCount += fired;
+        }
+
+        return fired;
+    }
+
+    /**
+     * Advances every replicate with a positive total rate by one event.
+     *
+     * @return the number of replicates that advanced.
+     *
+     * @throws IllegalArgumentException if any selected event would
+     * make an agent count negative (every replicate is then left in its
+     * state before the step).
+     */
+    public int advance() {
+        long start = System.nanoTime();
+
+        Arrays.fill(finished, false);
+        int fired = step(Double.POSITIVE_INFINITY);
+
+        elapsedNanos += System.nanoTime() - start;
+        return fired;
+    }
+
+    /**
+     * Advances every replicate through all events that occur at or
+     * before a time horizon and then advances the clocks to the
+     * horizon.
+     *
+     * @param horizon the (absolute) time horizon.
+     *
+     * @return the total number of events that occurred across the
+     * batch.
+     *
+     * @throws IllegalArgumentException if any selected event would
+     * make an agent count negative (every replicate is then left in its
+     * state before the failed step).
+     */
+    public long advanceUntil(double horizon) {
+        long start = System.nanoTime();
+        long initCount = eventCount;
+
+        Arrays.fill(finished, false);
+
+        while (step(horizon) > 0)
+            continue;
+
+        if (Double.isFinite(horizon))
+            for (int replicate = 0; replicate < batchSize; ++replicate)
+                times[replicate] = Math.max(times[replicate], horizon);
+
+        elapsedNanos += System.nanoTime() - start;
+        return eventCount - initCount;
+    }
+
+    /**
+     * Counts the number of instances of an agent in one replicate.
+     *
+     * @param replicate the zero-based index of the replicate.
+     *
+     * @param agent the agent to count.
+     *
+     * @return the number of instances of the agent in the replicate.
+     */
+    public int countAgent(int replicate, StochAgent agent) {
+        return counts[network.getAgentSlot(agent)][replicate];
+    }
+
+    /**
+     * Returns the total number of events that have occurred across the
+     * batch.
+     *
+     * @return the total number of events that have occurred across the
+     * batch.
+     */
+    public long countEvents() {
+        return eventCount;
+    }
+
+    /**
+     * Returns the number of replicates in the batch.
+     *
+     * @return the number of replicates in the batch.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Returns the throughput of this engine: the total number of events
+     * across the batch divided by the wall-clock time spent advancing.
+     *
+     * @return the throughput in events per second (zero before the
+     * first step).
+     */
+    public double getEventsPerSecond() {
+        if (elapsedNanos > 0)
+            return 1.0E+09 * eventCount / elapsedNanos;
+        else
+            return 0.0;
+    }
+
+    /**
+     * Returns the clock of one replicate.
+     *
+     * @param replicate the zero-based index of the replicate.
+     *
+     * @return the current time on the clock of the replicate.
+     */
+    public double getTime(int replicate) {
+        return times[replicate];
+    }
+}
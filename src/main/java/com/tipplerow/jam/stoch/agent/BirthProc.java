@@ -39,6 +39,9 @@ public abstract class BirthProc extends FirstOrderProc {
      */
     protected final StochAgent child;
 
+    // The parent and child as a multiset (created once)...
+    private final Multiset<StochAgent> products;
+
     /**
      * Creates a new birth process with a fixed parent and child.
      *
@@ -49,6 +52,7 @@ public abstract class BirthProc extends FirstOrderProc {
     protected BirthProc(StochAgent parent, StochAgent child) {
         super(parent);
         this.child = child;
+        this.products = ImmutableMultiset.of(parent, child);
     }
 
     /**
@@ -70,10 +74,6 @@ public abstract class BirthProc extends FirstOrderProc {
     }
 
     @Override public Multiset<StochAgent> getProducts() {
-        return ImmutableMultiset.of(reactant, child);
-    }
-
-    @Override public void updatePopulation(AgentPopulation population) {
-        population.add(child);
+        return products;
     }
 }
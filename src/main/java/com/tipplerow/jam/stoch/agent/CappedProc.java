@@ -16,6 +16,7 @@
 package com.tipplerow.jam.stoch.agent;
 
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import com.google.common.collect.Multiset;
@@ -28,14 +29,18 @@ import com.tipplerow.jam.lang.JamException;
  * stochastic agents reaches a fixed capacity threshold. (The rate
  * is unchanged below the threshold.)
  *
+ * <p>The capped agents form an {@link AgentGroup}, whose total the
+ * agent population maintains incrementally, so the capacity check
+ * runs in constant time regardless of the number of capped agents.
+ *
  * @author Scott Shaffer
  */
 public final class CappedProc extends AgentProc {
     private final int capacity;
     private final AgentProc baseProc;
-    private final Set<StochAgent> capped;
+    private final AgentGroup capped;
 
-    private CappedProc(AgentProc baseProc, Set<StochAgent> capped, int capacity) {
+    private CappedProc(AgentProc baseProc, AgentGroup capped, int capacity) {
         super();
 
         validateCapacity(capacity);
@@ -59,6 +64,23 @@ public final class CappedProc extends AgentProc {
      * parameters.
      */
     public static CappedProc create(AgentProc baseProc, Set<StochAgent> capped, int capacity) {
+        return create(baseProc, AgentGroup.create(capped), capacity);
+    }
+
+    /**
+     * Creates a new capacity-limited process.
+     *
+     * @param baseProc the underlying base process.
+     *
+     * @param capped the group of stochastic agents that contribute to
+     * the population limit.
+     *
+     * @param capacity the maximum population of the capped agents.
+     *
+     * @return a new capacity-limited process with the specified
+     * parameters.
+     */
+    public static CappedProc create(AgentProc baseProc, AgentGroup capped, int capacity) {
         return new CappedProc(baseProc, capped, capacity);
     }
 
@@ -75,6 +97,35 @@ public final class CappedProc extends AgentProc {
             throw JamException.runtime("Capacity must be positive.");
     }
 
+    /**
+     * Returns the underlying base process.
+     *
+     * @return the underlying base process.
+     */
+    public AgentProc getBaseProc() {
+        return baseProc;
+    }
+
+    /**
+     * Returns the maximum population of the capped agents.
+     *
+     * @return the maximum population of the capped agents.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the group of stochastic agents that contribute to the
+     * population limit.
+     *
+     * @return the group of stochastic agents that contribute to the
+     * population limit.
+     */
+    public AgentGroup getCappedGroup() {
+        return capped;
+    }
+
     /**
      * Returns a read-only view of the stochastic agents that
      * contribute to the population limit.
@@ -83,7 +134,13 @@ public final class CappedProc extends AgentProc {
      * contribute to the population limit.
      */
     public Set<StochAgent> viewCapped() {
-        return Collections.unmodifiableSet(capped);
+        return capped.viewAgents();
+    }
+
+    @Override public Set<StochAgent> getRateModifiers() {
+        Set<StochAgent> modifiers = new LinkedHashSet<>(capped.viewAgents());
+        modifiers.addAll(baseProc.getRateModifiers());
+        return Collections.unmodifiableSet(modifiers);
     }
 
     @Override public Multiset<StochAgent> getReactants() {
@@ -95,12 +152,23 @@ public final class CappedProc extends AgentProc {
     }
 
     @Override public double getRateConstant(AgentSystem system) {
-        if (system.countAgents(capped) < capacity)
+        if (system.countGroup(capped) < capacity)
             return baseProc.getRateConstant(system);
         else
             return 0.0;
     }
 
+    @Override public double getLowerRateConstant(AgentSystem system) {
+        //
+        // The capped population may reach the capacity at any time...
+        //
+        return 0.0;
+    }
+
+    @Override public double getUpperRateConstant(AgentSystem system) {
+        return baseProc.getUpperRateConstant(system);
+    }
+
     @Override public void updatePopulation(AgentPopulation population) {
         baseProc.updatePopulation(population);
     }
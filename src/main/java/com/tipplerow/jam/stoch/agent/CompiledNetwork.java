@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import com.tipplerow.jam.lang.JamException;
+import com.tipplerow.jam.math.JamRandom;
+
+/**
+ * Represents the immutable structure of an agent system (its agents,
+ * processes, stoichiometry, rate constants, and dependency links) in
+ * flat arrays that may be shared by any number of concurrent
+ * replicates, each of which holds its own mutable {@link AgentState}.
+ *
+ * <p>The network is compiled from a template system, which supplies
+ * the structure and the initial agent populations.  The network keeps
+ * a reference to the template (and its agents and processes) so that
+ * slots may be mapped back to the original objects, but it never
+ * modifies the template, and neither the template nor its processes
+ * are consulted during simulation, so the mutable rates cached in the
+ * process objects play no part.  Changes made to the template after
+ * compilation are not seen by the network.
+ *
+ * <p>The rate constant of each mass-action process is evaluated once,
+ * during compilation.  Capacity-limited processes ({@link CappedProc})
+ * are compiled into their mass-action base process and one or more
+ * capacity constraints on agent groups.  Other processes with rate
+ * modifiers cannot be compiled.
+ *
+ * @author Scott Shaffer
+ */
+public final class CompiledNetwork {
+    private final AgentNetwork network;
+
+    // The rate constant of each process, indexed by process slot...
+    private final double[] rateConsts;
+
+    // The capacity constraints on each process: the agent slots in
+    // each capped group and the corresponding capacities...
+    private final int[][][] cappedSlots;
+    private final int[][] capacities;
+
+    // The slots of the processes whose rates depend on each process...
+    private final int[][] dependentSlots;
+
+    // The initial agent populations, indexed by agent slot...
+    private final int[] initCounts;
+
+    private static final int[][] NO_CAPS = new int[0][];
+
+    private CompiledNetwork(AgentSystem template) {
+        this.network = AgentNetwork.compile(template);
+
+        int procCount = network.countProcs();
+
+        this.rateConsts = new double[procCount];
+        this.cappedSlots = new int[procCount][][];
+        this.capacities = new int[procCount][];
+        this.dependentSlots = new int[procCount][];
+        this.initCounts = new int[network.countAgents()];
+
+        for (int procSlot = 0; procSlot < procCount; ++procSlot)
+            compileRate(procSlot, template);
+
+        for (int procSlot = 0; procSlot < procCount; ++procSlot)
+            dependentSlots[procSlot] = mapDependents(procSlot, template);
+
+        for (int agentSlot = 0; agentSlot < initCounts.length; ++agentSlot)
+            initCounts[agentSlot] = template.countAgent(network.getAgent(agentSlot));
+    }
+
+    /**
+     * Compiles the structure of an agent system.
+     *
+     * @param template the system to compile, which also supplies the
+     * initial agent populations for new states.
+     *
+     * @return the compiled network for the specified system.
+     *
+     * @throws RuntimeException unless every process in the system is
+     * a mass-action process or a capacity-limited mass-action process.
+     */
+    public static CompiledNetwork compile(AgentSystem template) {
+        return new CompiledNetwork(template);
+    }
+
+    private void compileRate(int procSlot, AgentSystem template) {
+        AgentProc proc = network.getProc(procSlot);
+
+        List<int[]> slotList = new ArrayList<>();
+        List<Integer> capacityList = new ArrayList<>();
+
+        while (proc instanceof CappedProc) {
+            CappedProc capped = (CappedProc) proc;
+
+            slotList.add(mapAgents(capped.viewCapped()));
+            capacityList.add(capped.getCapacity());
+
+            proc = capped.getBaseProc();
+        }
+
+        if (!proc.isMassAction())
+            throw JamException.runtime("Process [%s] cannot be compiled.", proc);
+
+        rateConsts[procSlot] = AgentProc.validateRateConstant(proc.getRateConstant(template));
+
+        if (slotList.isEmpty()) {
+            cappedSlots[procSlot] = NO_CAPS;
+            capacities[procSlot] = new int[0];
+        }
+        else {
+            cappedSlots[procSlot] = slotList.toArray(new int[0][]);
+            capacities[procSlot] = capacityList.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private int[] mapAgents(Set<StochAgent> agents) {
+        return agents.stream().mapToInt(network::getAgentSlot).toArray();
+    }
+
+    private int[] mapDependents(int procSlot, AgentSystem template) {
+        return template.viewDependents(network.getProc(procSlot))
+            .stream()
+            .mapToInt(network::getProcSlot)
+            .sorted()
+            .toArray();
+    }
+
+    /**
+     * Creates a new replicate state with the initial agent populations
+     * of the template system and the clock at zero.
+     *
+     * @param random the random number source dedicated to the
+     * replicate.
+     *
+     * @return a new replicate state for this network.
+     */
+    public AgentState createState(JamRandom random) {
+        return AgentState.create(this, random);
+    }
+
+    /**
+     * Returns the number of agents in this network.
+     *
+     * @return the number of agents in this network.
+     */
+    public int countAgents() {
+        return network.countAgents();
+    }
+
+    /**
+     * Returns the number of processes in this network.
+     *
+     * @return the number of processes in this network.
+     */
+    public int countProcs() {
+        return network.countProcs();
+    }
+
+    /**
+     * Returns the agent assigned to a slot.
+     *
+     * @param agentSlot the slot of the agent.
+     *
+     * @return the agent assigned to the specified slot.
+     */
+    public StochAgent getAgent(int agentSlot) {
+        return network.getAgent(agentSlot);
+    }
+
+    /**
+     * Returns the slot assigned to an agent.
+     *
+     * @param agent the agent of interest.
+     *
+     * @return the slot assigned to the specified agent.
+     *
+     * @throws RuntimeException unless this network contains the agent.
+     */
+    public int getAgentSlot(StochAgent agent) {
+        return network.getAgentSlot(agent);
+    }
+
+    /**
+     * Returns the process assigned to a slot.
+     *
+     * @param procSlot the slot of the process.
+     *
+     * @return the process assigned to the specified slot.
+     */
+    public AgentProc getProc(int procSlot) {
+        return network.getProc(procSlot);
+    }
+
+    /**
+     * Computes the instantaneous rate of a process for a given set of
+     * agent populations.
+     *
+     * @param procSlot the slot of the process.
+     *
+     * @param counts the agent populations, indexed by agent slot.
+     *
+     * @return the instantaneous rate of the process.
+     */
+    double computeRate(int procSlot, int[] counts) {
+        int[][] groups = cappedSlots[procSlot];
+
+        for (int index = 0; index < groups.length; ++index) {
+            long total = 0;
+
+            for (int agentSlot : groups[index])
+                total += counts[agentSlot];
+
+            if (total >= capacities[procSlot][index])
+                return 0.0;
+        }
+
+        double rate = rateConsts[procSlot];
+
+        for (int agentSlot : network.reactantSlots(procSlot))
+            rate *= counts[agentSlot];
+
+        return rate;
+    }
+
+    int[] cappedSlots(int procSlot, int index) {
+        return cappedSlots[procSlot][index];
+    }
+
+    int capacity(int procSlot, int index) {
+        return capacities[procSlot][index];
+    }
+
+    int countCaps(int procSlot) {
+        return capacities[procSlot].length;
+    }
+
+    double rateConst(int procSlot) {
+        return rateConsts[procSlot];
+    }
+
+    int[] reactantSlots(int procSlot) {
+        return network.reactantSlots(procSlot);
+    }
+
+    int[] changeSlots(int procSlot) {
+        return network.changeSlots(procSlot);
+    }
+
+    int[] changeDeltas(int procSlot) {
+        return network.changeDeltas(procSlot);
+    }
+
+    int[] dependentSlots(int procSlot) {
+        return dependentSlots[procSlot];
+    }
+
+    int[] initialCounts() {
+        return initCounts.clone();
+    }
+}
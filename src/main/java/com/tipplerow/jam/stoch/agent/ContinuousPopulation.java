@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maintains a continuous (real-valued) count of each agent in a hybrid
+ * stochastic simulation, alongside the integer counts in the agent
+ * population of the underlying system.
+ *
+ * <p>Agents whose populations are changed by processes integrated as
+ * continuous flows take fractional values; the integer population of
+ * the system holds the rounded values.
+ *
+ * @author Scott Shaffer
+ */
+public final class ContinuousPopulation {
+    private final AgentNetwork network;
+
+    // The agent counts, indexed by agent slot...
+    private final double[] counts;
+
+    private ContinuousPopulation(AgentNetwork network) {
+        this.network = network;
+        this.counts = new double[network.countAgents()];
+
+        network.readCounts(counts);
+    }
+
+    /**
+     * Creates a new continuous population initialized with the current
+     * agent counts in an agent system.
+     *
+     * @param system the agent system to mirror.
+     *
+     * @return a new continuous population for the specified system.
+     */
+    public static ContinuousPopulation create(AgentSystem system) {
+        return create(AgentNetwork.compile(system));
+    }
+
+    static ContinuousPopulation create(AgentNetwork network) {
+        return new ContinuousPopulation(network);
+    }
+
+    /**
+     * Returns the continuous count of an agent.
+     *
+     * @param agent the agent of interest.
+     *
+     * @return the continuous count of the specified agent.
+     *
+     * @throws RuntimeException unless this population contains the
+     * specified agent.
+     */
+    public double count(StochAgent agent) {
+        return counts[network.getAgentSlot(agent)];
+    }
+
+    /**
+     * Returns the continuous count of an agent rounded to the nearest
+     * (non-negative) integer.
+     *
+     * @param agent the agent of interest.
+     *
+     * @return the rounded count of the specified agent.
+     *
+     * @throws RuntimeException unless this population contains the
+     * specified agent.
+     */
+    public int round(StochAgent agent) {
+        return roundSlot(network.getAgentSlot(agent));
+    }
+
+    /**
+     * Sets the continuous count of an agent.
+     *
+     * @param agent the agent of interest.
+     *
+     * @param count the new continuous count.
+     *
+     * @throws IllegalArgumentException if the count is negative.
+     *
+     * @throws RuntimeException unless this population contains the
+     * specified agent.
+     */
+    public void set(StochAgent agent, double count) {
+        if (count < 0.0)
+            throw new IllegalArgumentException("Agent count must be non-negative.");
+
+        counts[network.getAgentSlot(agent)] = count;
+    }
+
+    /**
+     * Returns the number of agents in this population.
+     *
+     * @return the number of agents in this population.
+     */
+    public int size() {
+        return counts.length;
+    }
+
+    int roundSlot(int agentSlot) {
+        return (int) Math.max(0L, Math.round(counts[agentSlot]));
+    }
+
+    Map<StochAgent, Integer> computeRoundedChange() {
+        //
+        // The change in the integer population of the underlying
+        // system required to match the rounded continuous counts...
+        //
+        Map<StochAgent, Integer> netChange = new HashMap<>();
+
+        for (int agentSlot = 0; agentSlot < counts.length; ++agentSlot) {
+            StochAgent agent = network.getAgent(agentSlot);
+            int delta = roundSlot(agentSlot) - network.getSystem().countAgent(agent);
+
+            if (delta != 0)
+                netChange.put(agent, delta);
+        }
+
+        return netChange;
+    }
+
+    double[] viewCounts() {
+        return counts;
+    }
+}
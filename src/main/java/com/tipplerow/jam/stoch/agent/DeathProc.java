@@ -40,8 +40,4 @@ public abstract class DeathProc extends FirstOrderProc {
     @Override public Multiset<StochAgent> getProducts() {
         return ImmutableMultiset.of();
     }
-
-    @Override public void updatePopulation(AgentPopulation population) {
-        population.remove(reactant);
-    }
 }
@@ -18,8 +18,6 @@ package com.tipplerow.jam.stoch.agent;
 import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.Multiset;
 
-import com.tipplerow.jam.stoch.StochRate;
-
 /**
  * Represents a stochastic process with a single reactant, {@code R}.
  * The process occurs at a rate {@code k * nR}, where {@code k} is the
@@ -35,6 +33,9 @@ public abstract class FirstOrderProc extends AgentProc {
      */
     protected final StochAgent reactant;
 
+    // The reactant as a multiset (created once)...
+    private final Multiset<StochAgent> reactants;
+
     /**
      * Creates a new first-order process with a fixed reactant.
      *
@@ -42,6 +43,7 @@ public abstract class FirstOrderProc extends AgentProc {
      */
     protected FirstOrderProc(StochAgent reactant) {
         this.reactant = reactant;
+        this.reactants = ImmutableMultiset.of(reactant);
     }
 
     /**
@@ -53,16 +55,11 @@ public abstract class FirstOrderProc extends AgentProc {
         return reactant;
     }
 
-    @Override public StochRate computeRate(AgentSystem system) {
-        return computeRate(system, getRateConstant(system), reactant);
+    @Override public double computeRateValue(AgentSystem system) {
+        return validateRateConstant(getRateConstant(system)) * system.countAgent(reactant);
     }
 
     @Override public Multiset<StochAgent> getReactants() {
-        return ImmutableMultiset.of(reactant);
-    }
-
-    @Override public void updatePopulation(AgentPopulation population) {
-        population.remove(reactant);
-        population.add(getProducts());
+        return reactants;
     }
 }
@@ -0,0 +1,522 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.tipplerow.jam.dist.ExponentialDistribution;
+import com.tipplerow.jam.lang.JamException;
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.StochAlgo;
+import com.tipplerow.jam.stoch.StochEvent;
+import com.tipplerow.jam.stoch.StochProc;
+import com.tipplerow.jam.stoch.StochRate;
+import com.tipplerow.jam.stoch.StochTime;
+
+/**
+ * Implements a hybrid stochastic-deterministic simulation method for
+ * agent systems, in the spirit of Haseltine and Rawlings [J. Chem.
+ * Phys. (2002) 117, 6959] and Salis and Kaznessis [J. Chem. Phys.
+ * (2005) 122, 054103].
+ *
+ * <p>The processes are partitioned into <em>fast</em> and <em>slow</em>
+ * sets.  A process is fast when it is expected to occur many times in
+ * a single integration step and the populations of all agents that it
+ * consumes or changes are large.  The fast processes are integrated as
+ * continuous mass-action flows (by the fourth-order Runge-Kutta method)
+ * on a {@link ContinuousPopulation}.  The slow processes occur exactly,
+ * one event at a time, by the next reaction method with time-varying
+ * rates: each slow process fires when its integrated rate (its internal
+ * time) reaches a unit-exponential target.  When there are no fast
+ * processes, the simulation reduces to exact event-by-event steps.
+ *
+ * <p>The processes are re-partitioned at the start of every step, as
+ * the agent populations cross the thresholds.  The integer population
+ * of the underlying system holds the rounded continuous counts after
+ * each step, and the system event count includes the (expected) number
+ * of fast events integrated as flows.  A slow event that would drive
+ * a continuous population negative (after the fast flows have drained
+ * a reactant) is rejected rather than clamped.
+ *
+ * <p>The inherited single-event methods take one exact step by the
+ * direct method on the continuous population, for callers that drive
+ * the algorithm one event at a time.
+ *
+ * @author Scott Shaffer
+ */
+public final class HybridAlgo extends StochAlgo {
+    private final AgentSystem agentSystem;
+    private final AgentNetwork network;
+    private final ContinuousPopulation population;
+
+    private final double timeStep;
+    private final double fastEventThreshold;
+    private final double populationThreshold;
+
+    private final double[] rateConsts;
+    private final double[] rates;
+    private final boolean[] fast;
+
+    // The internal time (integrated rate) of each process and, for the
+    // slow processes, the internal time of its next occurrence...
+    private final double[] internal;
+    private final double[] target;
+
+    // Working storage for the Runge-Kutta integration; the internal
+    // times are integrated with the populations...
+    private final double[] initCounts;
+    private final double[] initInternal;
+    private final double[] stageCounts;
+    private final double[][] countSlopes;
+    private final double[][] internalSlopes;
+
+    private int fastCount = 0;
+
+    // The total number of (expected) fast events integrated and the
+    // number recorded in the system event count...
+    private double fastEventTotal = 0.0;
+    private long fastEventRecorded = 0L;
+
+    /**
+     * Default value for the minimum number of expected events in one
+     * integration step for a process to be treated as fast.
+     */
+    public static final double DEFAULT_FAST_EVENT_THRESHOLD = 10.0;
+
+    /**
+     * Default value for the minimum population of the agents consumed
+     * or changed by a process for the process to be treated as fast.
+     */
+    public static final double DEFAULT_POPULATION_THRESHOLD = 100.0;
+
+    private static final int STAGE_COUNT = 4;
+
+    private HybridAlgo(JamRandom random,
+                       AgentSystem system,
+                       double timeStep,
+                       double fastEventThreshold,
+                       double populationThreshold) {
+        super(random, system);
+
+        if (timeStep <= 0.0)
+            throw JamException.runtime("Time step must be positive.");
+
+        if (fastEventThreshold <= 0.0)
+            throw JamException.runtime("Fast event threshold must be positive.");
+
+        if (populationThreshold < 0.0)
+            throw JamException.runtime("Population threshold must be non-negative.");
+
+        this.agentSystem = system;
+        this.network = AgentNetwork.compile(system);
+        this.population = ContinuousPopulation.create(network);
+
+        this.timeStep = timeStep;
+        this.fastEventThreshold = fastEventThreshold;
+        this.populationThreshold = populationThreshold;
+
+        int agentCount = network.countAgents();
+        int procCount = network.countProcs();
+
+        this.rateConsts = new double[procCount];
+        this.rates = new double[procCount];
+        this.fast = new boolean[procCount];
+        this.internal = new double[procCount];
+        this.target = new double[procCount];
+
+        this.initCounts = new double[agentCount];
+        this.initInternal = new double[procCount];
+        this.stageCounts = new double[agentCount];
+        this.countSlopes = new double[STAGE_COUNT][agentCount];
+        this.internalSlopes = new double[STAGE_COUNT][procCount];
+
+        for (int procSlot = 0; procSlot < procCount; ++procSlot)
+            target[procSlot] = ExponentialDistribution.sample(1.0, random);
+    }
+
+    /**
+     * Creates a new hybrid simulation algorithm with the default
+     * partitioning thresholds.
+     *
+     * @param random the random number source.
+     *
+     * @param system the agent system to simulate.
+     *
+     * @param timeStep the (maximum) integration time step.
+     *
+     * @return a new hybrid simulation algorithm for the specified
+     * system.
+     *
+     * @throws RuntimeException unless the time step is positive.
+     */
+    public static HybridAlgo create(JamRandom random, AgentSystem system, double timeStep) {
+        return create(random, system, timeStep, DEFAULT_FAST_EVENT_THRESHOLD, DEFAULT_POPULATION_THRESHOLD);
+    }
+
+    /**
+     * Creates a new hybrid simulation algorithm.
+     *
+     * @param random the random number source.
+     *
+     * @param system the agent system to simulate.
+     *
+     * @param timeStep the (maximum) integration time step.
+     *
+     * @param fastEventThreshold the minimum number of expected events
+     * in one integration step for a process to be treated as fast.
+     *
+     * @param populationThreshold the minimum population of the agents
+     * consumed or changed by a process for the process to be treated
+     * as fast.
+     *
+     * @return a new hybrid simulation algorithm for the specified
+     * system.
+     *
+     * @throws RuntimeException unless the time step and fast event
+     * threshold are positive and the population threshold is
+     * non-negative.
+     */
+    public static HybridAlgo create(JamRandom random,
+                                    AgentSystem system,
+                                    double timeStep,
+                                    double fastEventThreshold,
+                                    double populationThreshold) {
+        return new HybridAlgo(random, system, timeStep, fastEventThreshold, populationThreshold);
+    }
+
+    /**
+     * Returns the number of processes in the fast set (as of the most
+     * recent step).
+     *
+     * @return the number of processes in the fast set.
+     */
+    public int countFastProcs() {
+        return fastCount;
+    }
+
+    /**
+     * Returns the (maximum) integration time step.
+     *
+     * @return the (maximum) integration time step.
+     */
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * Identifies processes in the fast set (as of the most recent
+     * step).
+     *
+     * @param proc the process in question.
+     *
+     * @return {@code true} iff the specified process is integrated as
+     * a continuous flow.
+     *
+     * @throws RuntimeException unless the system contains the
+     * specified process.
+     */
+    public boolean isFast(AgentProc proc) {
+        return fast[network.getProcSlot(proc)];
+    }
+
+    /**
+     * Returns the continuous agent population maintained by this
+     * algorithm.
+     *
+     * @return the continuous agent population maintained by this
+     * algorithm.
+     */
+    public ContinuousPopulation viewPopulation() {
+        return population;
+    }
+
+    /**
+     * Advances the simulation by one integration step or, if a slow
+     * process occurs first, to the time of the slow event.
+     */
+    @Override public void advance() {
+        double[] counts = population.viewCounts();
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot)
+            rateConsts[procSlot] = network.getProc(procSlot).getRateConstant(agentSystem);
+
+        partition(counts);
+
+        double interval;
+
+        if (fastCount == 0)
+            interval = advanceExact();
+        else
+            interval = advanceHybrid(counts);
+
+        long eventCount = 0L;
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            while (!fast[procSlot] && internal[procSlot] >= target[procSlot]) {
+                if (fireSlow(procSlot, counts))
+                    ++eventCount;
+            }
+        }
+
+        long fastEvents = (long) Math.floor(fastEventTotal) - fastEventRecorded;
+        fastEventRecorded += fastEvents;
+        eventCount += fastEvents;
+
+        agentSystem.updateState(agentSystem.lastEventTime().plus(interval),
+                                eventCount, population.computeRoundedChange());
+    }
+
+    private void partition(double[] counts) {
+        fastCount = 0;
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            rates[procSlot] = network.computeRate(procSlot, rateConsts[procSlot], counts);
+
+            boolean wasFast = fast[procSlot];
+            fast[procSlot] = meetsFastCriteria(procSlot, counts);
+
+            if (fast[procSlot]) {
+                ++fastCount;
+            }
+            else if (wasFast) {
+                //
+                // The internal time of a process re-entering the slow
+                // set starts afresh (the exponential distribution is
+                // memoryless)...
+                //
+                internal[procSlot] = 0.0;
+                target[procSlot] = ExponentialDistribution.sample(1.0, random);
+            }
+        }
+    }
+
+    private boolean meetsFastCriteria(int procSlot, double[] counts) {
+        if (rates[procSlot] * timeStep < fastEventThreshold)
+            return false;
+
+        for (int agentSlot : network.reactantSlots(procSlot))
+            if (counts[agentSlot] < populationThreshold)
+                return false;
+
+        for (int agentSlot : network.changeSlots(procSlot))
+            if (counts[agentSlot] < populationThreshold)
+                return false;
+
+        return true;
+    }
+
+    private double advanceExact() {
+        //
+        // The rates are constant between slow events, so the next
+        // reaction time is exact...
+        //
+        double interval = Double.POSITIVE_INFINITY;
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot)
+            if (rates[procSlot] > 0.0)
+                interval = Math.min(interval, (target[procSlot] - internal[procSlot]) / rates[procSlot]);
+
+        if (Double.isInfinite(interval))
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot)
+            internal[procSlot] += rates[procSlot] * interval;
+
+        return interval;
+    }
+
+    private double advanceHybrid(double[] counts) {
+        System.arraycopy(counts, 0, initCounts, 0, counts.length);
+        System.arraycopy(internal, 0, initInternal, 0, internal.length);
+
+        integrate(counts, timeStep);
+
+        //
+        // Locate the earliest slow event within the step by linear
+        // interpolation of the internal times, then repeat the
+        // integration over the shortened step...
+        //
+        double fraction = 1.0;
+        int firstSlot = -1;
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            if (fast[procSlot] || internal[procSlot] < target[procSlot])
+                continue;
+
+            double procFraction =
+                (target[procSlot] - initInternal[procSlot]) / (internal[procSlot] - initInternal[procSlot]);
+
+            if (procFraction < fraction) {
+                fraction = procFraction;
+                firstSlot = procSlot;
+            }
+        }
+
+        if (firstSlot < 0) {
+            recordFastEvents();
+            return timeStep;
+        }
+
+        double interval = Math.max(fraction, 0.0) * timeStep;
+
+        System.arraycopy(initCounts, 0, counts, 0, counts.length);
+        System.arraycopy(initInternal, 0, internal, 0, internal.length);
+
+        integrate(counts, interval);
+        recordFastEvents();
+
+        internal[firstSlot] = Math.max(internal[firstSlot], target[firstSlot]);
+        return interval;
+    }
+
+    private void recordFastEvents() {
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot)
+            if (fast[procSlot])
+                fastEventTotal += internal[procSlot] - initInternal[procSlot];
+    }
+
+    private void integrate(double[] counts, double interval) {
+        //
+        // Classical fourth-order Runge-Kutta step; the internal times
+        // of all processes are integrated alongside the populations...
+        //
+        computeSlopes(counts, 0);
+
+        for (int stage = 1; stage < STAGE_COUNT; ++stage) {
+            double scale = (stage == 3) ? interval : 0.5 * interval;
+
+            for (int agentSlot = 0; agentSlot < counts.length; ++agentSlot)
+                stageCounts[agentSlot] = initCounts[agentSlot] + scale * countSlopes[stage - 1][agentSlot];
+
+            computeSlopes(stageCounts, stage);
+        }
+
+        for (int agentSlot = 0; agentSlot < counts.length; ++agentSlot)
+            counts[agentSlot] = Math.max(0.0, initCounts[agentSlot] + interval * combine(countSlopes, agentSlot));
+
+        for (int procSlot = 0; procSlot < internal.length; ++procSlot)
+            internal[procSlot] = initInternal[procSlot] + interval * combine(internalSlopes, procSlot);
+    }
+
+    private static double combine(double[][] slopes, int index) {
+        return (slopes[0][index] + 2.0 * slopes[1][index] + 2.0 * slopes[2][index] + slopes[3][index]) / 6.0;
+    }
+
+    private void computeSlopes(double[] counts, int stage) {
+        double[] countSlope = countSlopes[stage];
+        double[] internalSlope = internalSlopes[stage];
+
+        Arrays.fill(countSlope, 0.0);
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            double rate = network.computeRate(procSlot, rateConsts[procSlot], counts);
+            internalSlope[procSlot] = rate;
+
+            if (!fast[procSlot])
+                continue;
+
+            int[] slots = network.changeSlots(procSlot);
+            int[] deltas = network.changeDeltas(procSlot);
+
+            for (int index = 0; index < slots.length; ++index)
+                countSlope[slots[index]] += deltas[index] * rate;
+        }
+    }
+
+    private boolean fireSlow(int procSlot, double[] counts) {
+        target[procSlot] += ExponentialDistribution.sample(1.0, random);
+
+        //
+        // The fast flows may drain a reactant of a slow process below
+        // the amount that it consumes; the firing is then rejected (the
+        // process simply draws its next target) so that the agent
+        // populations are conserved...
+        //
+        if (!canFire(procSlot, counts))
+            return false;
+
+        applyChanges(procSlot, counts);
+        return true;
+    }
+
+    private boolean canFire(int procSlot, double[] counts) {
+        int[] slots = network.changeSlots(procSlot);
+        int[] deltas = network.changeDeltas(procSlot);
+
+        for (int index = 0; index < slots.length; ++index)
+            if (counts[slots[index]] + deltas[index] < 0.0)
+                return false;
+
+        return true;
+    }
+
+    private void applyChanges(int procSlot, double[] counts) {
+        int[] slots = network.changeSlots(procSlot);
+        int[] deltas = network.changeDeltas(procSlot);
+
+        for (int index = 0; index < slots.length; ++index)
+            counts[slots[index]] += deltas[index];
+    }
+
+    @Override protected StochEvent nextEvent() {
+        //
+        // Single exact events use the direct method of Gillespie with
+        // the rates of the continuous population...
+        //
+        double[] counts = population.viewCounts();
+        double totalRate = 0.0;
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            rateConsts[procSlot] = network.getProc(procSlot).getRateConstant(agentSystem);
+            rates[procSlot] = canFire(procSlot, counts) ? network.computeRate(procSlot, rateConsts[procSlot], counts) : 0.0;
+            totalRate += rates[procSlot];
+        }
+
+        if (totalRate <= 0.0)
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        double threshold = random.nextDouble() * totalRate;
+        int selected = -1;
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            if (rates[procSlot] > 0.0) {
+                selected = procSlot;
+                threshold -= rates[procSlot];
+
+                if (threshold < 0.0)
+                    break;
+            }
+        }
+
+        StochTime time = StochRate.of(totalRate).sampleTime(system.lastEventTime(), random);
+        return StochEvent.mark(network.getProc(selected), time);
+    }
+
+    @Override protected void updateState(StochEvent event, Collection<? extends StochProc> dependents) {
+        //
+        // The system has applied the event to its integer population;
+        // apply it to the continuous population and restart the clocks
+        // of all processes (the waiting times are memoryless)...
+        //
+        applyChanges(network.getProcSlot(event.getProc()), population.viewCounts());
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            internal[procSlot] = 0.0;
+            target[procSlot] = ExponentialDistribution.sample(1.0, random);
+        }
+    }
+}
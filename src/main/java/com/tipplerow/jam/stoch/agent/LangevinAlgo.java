@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.tipplerow.jam.lang.JamException;
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.StochAlgo;
+import com.tipplerow.jam.stoch.StochEvent;
+import com.tipplerow.jam.stoch.StochProc;
+import com.tipplerow.jam.stoch.StochRate;
+import com.tipplerow.jam.stoch.StochTime;
+
+/**
+ * Integrates the <em>chemical Langevin equation</em> of Gillespie
+ * [J. Chem. Phys. (2000) 113, 297] for agent systems in which every
+ * agent is abundant.
+ *
+ * <p>Each step advances the {@link ContinuousPopulation} by the
+ * Euler-Maruyama method: every process {@code j} with rate {@code a(j)}
+ * contributes a drift {@code v(j) a(j) dt} and a diffusion term
+ * {@code v(j) sqrt(a(j) dt) N(j)}, where {@code v(j)} is its net
+ * population change and {@code N(j)} is an independent standard normal
+ * deviate.  The rates follow the mass-action law for the continuous
+ * populations, with rate constants taken from the processes at the
+ * start of each step.  Populations are reflected at zero.
+ *
+ * <p>The cost of a step scales with the number of processes, not the
+ * number of events.  The time step is either fixed or chosen at each
+ * step (as in adaptive tau-leaping) so that the expected relative
+ * change in every process rate is bounded by an accuracy parameter.
+ * The integer population of the underlying system holds the rounded
+ * continuous counts after each step, and the system event count
+ * includes the expected number of events integrated.
+ *
+ * <p>The inherited single-event methods take one exact step by the
+ * direct method on the continuous population, for callers that drive
+ * the algorithm one event at a time.
+ *
+ * @author Scott Shaffer
+ */
+public final class LangevinAlgo extends StochAlgo {
+    private final AgentSystem agentSystem;
+    private final AgentNetwork network;
+    private final ContinuousPopulation population;
+
+    // The fixed time step (for fixed-step algorithms) or the accuracy
+    // parameter (for adaptive algorithms)...
+    private final double timeStep;
+    private final double epsilon;
+
+    private final double[] rates;
+    private final double[] drift;
+    private final double[] variance;
+    private final double[] changes;
+
+    private double lastStep = 0.0;
+
+    // The total number of (expected) events integrated and the number
+    // recorded in the system event count...
+    private double eventTotal = 0.0;
+    private long eventRecorded = 0L;
+
+    private LangevinAlgo(JamRandom random, AgentSystem system, double timeStep, double epsilon) {
+        super(random, system);
+
+        this.agentSystem = system;
+        this.network = AgentNetwork.compile(system);
+        this.population = ContinuousPopulation.create(network);
+
+        this.timeStep = timeStep;
+        this.epsilon = epsilon;
+
+        this.rates = new double[network.countProcs()];
+        this.drift = new double[network.countAgents()];
+        this.variance = new double[network.countAgents()];
+        this.changes = new double[network.countAgents()];
+    }
+
+    /**
+     * Creates a new chemical Langevin integrator with a fixed time
+     * step.
+     *
+     * @param random the random number source.
+     *
+     * @param system the agent system to simulate.
+     *
+     * @param timeStep the fixed integration time step.
+     *
+     * @return a new fixed-step chemical Langevin integrator for the
+     * specified system.
+     *
+     * @throws RuntimeException unless the time step is positive.
+     */
+    public static LangevinAlgo create(JamRandom random, AgentSystem system, double timeStep) {
+        if (timeStep <= 0.0)
+            throw JamException.runtime("Time step must be positive.");
+
+        return new LangevinAlgo(random, system, timeStep, Double.NaN);
+    }
+
+    /**
+     * Creates a new chemical Langevin integrator with an adaptive time
+     * step.
+     *
+     * @param random the random number source.
+     *
+     * @param system the agent system to simulate.
+     *
+     * @param epsilon the accuracy parameter: the maximum expected
+     * relative change in any process rate during a single step.
+     *
+     * @return a new adaptive chemical Langevin integrator for the
+     * specified system.
+     *
+     * @throws RuntimeException unless the accuracy parameter lies in
+     * the open interval {@code (0, 1)}.
+     */
+    public static LangevinAlgo createAdaptive(JamRandom random, AgentSystem system, double epsilon) {
+        if (epsilon <= 0.0 || epsilon >= 1.0)
+            throw JamException.runtime("Accuracy parameter must lie in the interval (0, 1).");
+
+        return new LangevinAlgo(random, system, Double.NaN, epsilon);
+    }
+
+    /**
+     * Identifies algorithms that choose the time step adaptively.
+     *
+     * @return {@code true} iff this algorithm chooses the time step
+     * adaptively.
+     */
+    public boolean isAdaptive() {
+        return Double.isNaN(timeStep);
+    }
+
+    /**
+     * Returns the time step taken in the most recent integration step.
+     *
+     * @return the time step taken in the most recent integration step
+     * (or zero if no steps have been taken).
+     */
+    public double getLastStep() {
+        return lastStep;
+    }
+
+    /**
+     * Returns the continuous agent population maintained by this
+     * algorithm.
+     *
+     * @return the continuous agent population maintained by this
+     * algorithm.
+     */
+    public ContinuousPopulation viewPopulation() {
+        return population;
+    }
+
+    /**
+     * Advances the simulation by one integration step.
+     */
+    @Override public void advance() {
+        double[] counts = population.viewCounts();
+        double totalRate = computeRates(counts);
+
+        if (totalRate <= 0.0)
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        double step = isAdaptive() ? computeStep(counts) : timeStep;
+
+        Arrays.fill(changes, 0.0);
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            if (rates[procSlot] <= 0.0)
+                continue;
+
+            double mean = rates[procSlot] * step;
+            double firings = mean + Math.sqrt(mean) * LeapSampler.normal(random);
+
+            int[] slots = network.changeSlots(procSlot);
+            int[] deltas = network.changeDeltas(procSlot);
+
+            for (int index = 0; index < slots.length; ++index)
+                changes[slots[index]] += deltas[index] * firings;
+        }
+
+        for (int agentSlot = 0; agentSlot < counts.length; ++agentSlot)
+            counts[agentSlot] = Math.abs(counts[agentSlot] + changes[agentSlot]);
+
+        eventTotal += totalRate * step;
+        lastStep = step;
+
+        long eventCount = (long) Math.floor(eventTotal) - eventRecorded;
+        eventRecorded += eventCount;
+
+        agentSystem.updateState(agentSystem.lastEventTime().plus(step),
+                                eventCount, population.computeRoundedChange());
+    }
+
+    private double computeRates(double[] counts) {
+        double total = 0.0;
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            double rateConst = network.getProc(procSlot).getRateConstant(agentSystem);
+
+            rates[procSlot] = network.computeRate(procSlot, rateConst, counts);
+            total += rates[procSlot];
+        }
+
+        return total;
+    }
+
+    private double computeStep(double[] counts) {
+        //
+        // The step selection of adaptive tau-leaping: bound the mean
+        // and standard deviation of the change in every reactant
+        // population...
+        //
+        Arrays.fill(drift, 0.0);
+        Arrays.fill(variance, 0.0);
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            int[] slots = network.changeSlots(procSlot);
+            int[] deltas = network.changeDeltas(procSlot);
+
+            for (int index = 0; index < slots.length; ++index) {
+                drift[slots[index]] += deltas[index] * rates[procSlot];
+                variance[slots[index]] += deltas[index] * deltas[index] * rates[procSlot];
+            }
+        }
+
+        double step = Double.POSITIVE_INFINITY;
+
+        for (int agentSlot = 0; agentSlot < counts.length; ++agentSlot) {
+            if (variance[agentSlot] <= 0.0 || !network.isReactant(agentSlot))
+                continue;
+
+            double factor = network.computeOrderFactor(agentSlot, counts[agentSlot]);
+            double bound = Math.max(epsilon * counts[agentSlot] / factor, 1.0);
+
+            if (drift[agentSlot] != 0.0)
+                step = Math.min(step, bound / Math.abs(drift[agentSlot]));
+
+            step = Math.min(step, bound * bound / variance[agentSlot]);
+        }
+
+        if (Double.isInfinite(step))
+            throw JamException.runtime("Time step must be finite.");
+
+        return step;
+    }
+
+    @Override protected StochEvent nextEvent() {
+        //
+        // Single exact events use the direct method of Gillespie with
+        // the rates of the continuous population...
+        //
+        double[] counts = population.viewCounts();
+        double totalRate = 0.0;
+
+        computeRates(counts);
+
+        //
+        // Processes that would drive a population negative cannot
+        // occur as discrete events...
+        //
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            if (!canFire(procSlot, counts))
+                rates[procSlot] = 0.0;
+
+            totalRate += rates[procSlot];
+        }
+
+        if (totalRate <= 0.0)
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        double threshold = random.nextDouble() * totalRate;
+        int selected = -1;
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            if (rates[procSlot] > 0.0) {
+                selected = procSlot;
+                threshold -= rates[procSlot];
+
+                if (threshold < 0.0)
+                    break;
+            }
+        }
+
+        StochTime time = StochRate.of(totalRate).sampleTime(system.lastEventTime(), random);
+        return StochEvent.mark(network.getProc(selected), time);
+    }
+
+    @Override protected void updateState(StochEvent event, Collection<? extends StochProc> dependents) {
+        //
+        // The system has applied the event to its integer population;
+        // apply it to the continuous population as well...
+        //
+        double[] counts = population.viewCounts();
+        int procSlot = network.getProcSlot(event.getProc());
+
+        int[] slots = network.changeSlots(procSlot);
+        int[] deltas = network.changeDeltas(procSlot);
+
+        for (int index = 0; index < slots.length; ++index)
+            counts[slots[index]] += deltas[index];
+    }
+
+    private boolean canFire(int procSlot, double[] counts) {
+        int[] slots = network.changeSlots(procSlot);
+        int[] deltas = network.changeDeltas(procSlot);
+
+        for (int index = 0; index < slots.length; ++index)
+            if (counts[slots[index]] + deltas[index] < 0.0)
+                return false;
+
+        return true;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import com.tipplerow.jam.math.JamRandom;
+
+/**
+ * Samples the random deviates required by leaping algorithms using
+ * exact methods that require only a source of uniform deviates.
+ *
+ * <p>Large Poisson and binomial deviates are generated by the gamma
+ * and beta splitting methods described by Knuth [The Art of Computer
+ * Programming, Vol. 2, Sec. 3.4.1], which reduce the problem size
+ * geometrically, so the cost grows only logarithmically with the mean.
+ *
+ * @author Scott Shaffer
+ */
+final class LeapSampler {
+    // Deviates with means below these thresholds are sampled
+    // directly by inversion or Bernoulli trials...
+    private static final double POISSON_DIRECT_MEAN = 16.0;
+    private static final int BINOMIAL_DIRECT_COUNT = 16;
+
+    private LeapSampler() {
+    }
+
+    /**
+     * Samples a binomial deviate: the number of successes in a fixed
+     * number of independent Bernoulli trials.
+     *
+     * @param trials the number of trials.
+     *
+     * @param prob the probability of success in each trial.
+     *
+     * @param random the random number source.
+     *
+     * @return a binomial deviate with the specified parameters.
+     */
+    static int binomial(int trials, double prob, JamRandom random) {
+        int result = 0;
+
+        if (prob <= 0.0)
+            return 0;
+
+        if (prob >= 1.0)
+            return trials;
+
+        while (trials > BINOMIAL_DIRECT_COUNT) {
+            //
+            // The a-th order statistic of n uniform deviates follows
+            // a beta distribution; condition on which side of it the
+            // success probability falls...
+            //
+            int a = 1 + trials / 2;
+            int b = trials - a + 1;
+
+            double x = beta(a, b, random);
+
+            if (x >= prob) {
+                trials = a - 1;
+                prob = prob / x;
+            }
+            else {
+                result += a;
+                trials = b - 1;
+                prob = (prob - x) / (1.0 - x);
+            }
+        }
+
+        for (int trial = 0; trial < trials; ++trial)
+            if (random.nextDouble() < prob)
+                ++result;
+
+        return result;
+    }
+
+    /**
+     * Samples a beta deviate.
+     *
+     * @param alpha the first shape parameter.
+     *
+     * @param beta the second shape parameter.
+     *
+     * @param random the random number source.
+     *
+     * @return a beta deviate with the specified shape parameters.
+     */
+    static double beta(double alpha, double beta, JamRandom random) {
+        double x = gamma(alpha, random);
+        double y = gamma(beta, random);
+
+        return x / (x + y);
+    }
+
+    /**
+     * Samples a unit-scale gamma deviate by the method of Marsaglia and
+     * Tsang [ACM Trans. Math. Softw. (2000) 26, 363-372].
+     *
+     * @param shape the shape parameter.
+     *
+     * @param random the random number source.
+     *
+     * @return a gamma deviate with the specified shape and unit scale.
+     */
+    static double gamma(double shape, JamRandom random) {
+        if (shape < 1.0)
+            return gamma(shape + 1.0, random) * Math.pow(random.nextDouble(), 1.0 / shape);
+
+        double d = shape - 1.0 / 3.0;
+        double c = 1.0 / Math.sqrt(9.0 * d);
+
+        while (true) {
+            double x = normal(random);
+            double v = 1.0 + c * x;
+
+            if (v <= 0.0)
+                continue;
+
+            v = v * v * v;
+
+            double u = random.nextDouble();
+            double x2 = x * x;
+
+            if (u < 1.0 - 0.0331 * x2 * x2)
+                return d * v;
+
+            if (Math.log(u) < 0.5 * x2 + d * (1.0 - v + Math.log(v)))
+                return d * v;
+        }
+    }
+
+    /**
+     * Samples a standard normal deviate by the polar method.
+     *
+     * @param random the random number source.
+     *
+     * @return a normal deviate with zero mean and unit variance.
+     */
+    static double normal(JamRandom random) {
+        while (true) {
+            double u = 2.0 * random.nextDouble() - 1.0;
+            double v = 2.0 * random.nextDouble() - 1.0;
+            double s = u * u + v * v;
+
+            if (0.0 < s && s < 1.0)
+                return u * Math.sqrt(-2.0 * Math.log(s) / s);
+        }
+    }
+
+    /**
+     * Samples a Poisson deviate.
+     *
+     * @param mean the mean of the distribution.
+     *
+     * @param random the random number source.
+     *
+     * @return a Poisson deviate with the specified mean.
+     */
+    static int poisson(double mean, JamRandom random) {
+        int result = 0;
+
+        while (mean > POISSON_DIRECT_MEAN) {
+            //
+            // The waiting time until the m-th event of a unit-rate
+            // Poisson process follows a gamma distribution...
+            //
+            int m = (int) (0.875 * mean);
+            double x = gamma(m, random);
+
+            if (x < mean) {
+                result += m;
+                mean -= x;
+            }
+            else {
+                return result + binomial(m - 1, mean / x, random);
+            }
+        }
+
+        return result + poissonInversion(mean, random);
+    }
+
+    private static int poissonInversion(double mean, JamRandom random) {
+        if (mean <= 0.0)
+            return 0;
+
+        int k = 0;
+        double p = Math.exp(-mean);
+        double cdf = p;
+        double u = random.nextDouble();
+
+        while (u > cdf) {
+            ++k;
+            p *= mean / k;
+            cdf += p;
+
+            // Guard against round-off in the extreme upper tail...
+            if (p <= 0.0)
+                break;
+        }
+
+        return k;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.Arrays;
+
+/**
+ * Maps ordinal indexes (of agents, groups, or processes) to dense
+ * slots through a direct lookup table that grows as entries are added.
+ *
+ * <p>Ordinal indexes are unique across the entire JVM, so a table
+ * indexed by the raw ordinal would span every ordinal ever created.
+ * This table instead stores each slot at its ordinal offset by the
+ * smallest ordinal it contains (as {@code ProcSlotMap} does), and
+ * extends itself in either direction, so its length is proportional
+ * to the range of ordinals actually stored.
+ *
+ * @author Scott Shaffer
+ */
+final class OrdinalTable {
+    // The smallest ordinal index spanned by the table...
+    private int base = 0;
+
+    // The slot for each ordinal index, offset by "base" (NO_SLOT for
+    // missing ordinals)...
+    private int[] slots = new int[0];
+
+    /**
+     * The value returned for ordinal indexes that have not been
+     * assigned a slot.
+     */
+    static final int NO_SLOT = -1;
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private OrdinalTable() {
+    }
+
+    /**
+     * Creates a new empty table.
+     *
+     * @return a new empty table.
+     */
+    static OrdinalTable create() {
+        return new OrdinalTable();
+    }
+
+    /**
+     * Returns the slot assigned to an ordinal index.
+     *
+     * @param index the ordinal index of interest.
+     *
+     * @return the slot assigned to the specified ordinal index, or
+     * {@code NO_SLOT} if no slot has been assigned.
+     */
+    int get(int index) {
+        int offset = index - base;
+
+        if (0 <= offset && offset < slots.length)
+            return slots[offset];
+        else
+            return NO_SLOT;
+    }
+
+    /**
+     * Assigns the slot for an ordinal index, extending the table if
+     * necessary.
+     *
+     * @param index the ordinal index to assign.
+     *
+     * @param slot the slot to assign.
+     */
+    void put(int index, int slot) {
+        if (slots.length == 0)
+            extendEmpty(index);
+        else if (index < base)
+            extendBelow(index);
+        else if (index - base >= slots.length)
+            extendAbove(index);
+
+        slots[index - base] = slot;
+    }
+
+    private void extendEmpty(int index) {
+        base = index;
+        slots = new int[INITIAL_CAPACITY];
+        Arrays.fill(slots, NO_SLOT);
+    }
+
+    private void extendBelow(int index) {
+        //
+        // Grow by at least the current length so that a run of
+        // descending ordinals is added in amortized constant time...
+        //
+        int growth = Math.max(base - index, slots.length);
+        int[] extended = new int[slots.length + growth];
+
+        Arrays.fill(extended, 0, growth, NO_SLOT);
+        System.arraycopy(slots, 0, extended, growth, slots.length);
+
+        base -= growth;
+        slots = extended;
+    }
+
+    private void extendAbove(int index) {
+        int length = slots.length;
+
+        slots = Arrays.copyOf(slots, Math.max(index - base + 1, 2 * length));
+        Arrays.fill(slots, length, slots.length, NO_SLOT);
+    }
+
+    /**
+     * Returns the number of entries allocated for this table.
+     *
+     * @return the number of entries allocated for this table.
+     */
+    int capacity() {
+        return slots.length;
+    }
+}
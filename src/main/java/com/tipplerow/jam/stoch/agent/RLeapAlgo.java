@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.Collection;
+
+import com.tipplerow.jam.lang.JamException;
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.RateTree;
+import com.tipplerow.jam.stoch.StochAlgo;
+import com.tipplerow.jam.stoch.StochEvent;
+import com.tipplerow.jam.stoch.StochProc;
+import com.tipplerow.jam.stoch.StochTime;
+
+/**
+ * Implements the <em>R-leaping</em> method of Auger, Chatelain, and
+ * Koumoutsakos [J. Chem. Phys. (2006) 125, 084103] for agent systems.
+ *
+ * <p>Each leap fires a fixed number of events {@code L} (the leap
+ * size), distributed across the processes by multinomial sampling
+ * with probabilities proportional to their current rates.  The leap
+ * interval is the waiting time for {@code L} events at the current
+ * total rate, a gamma deviate with shape {@code L}.  The leap size is
+ * the accuracy/speed parameter: a leap of size one is an exact event
+ * in the direct method, while larger leaps trade accuracy for speed.
+ * A leap that would drive any population negative is rejected and
+ * retried with one-half the leap size.
+ *
+ * <p>The process rates are held in a binary sum tree, so each leap
+ * costs {@code O(L log N)} for {@code N} processes, plus the cost of
+ * updating the rates of the processes that fired and their dependents;
+ * the cost per event is nearly independent of the number of processes.
+ * The firing counts and net population changes of each leap are
+ * accumulated in arrays indexed by the slots of the compiled reaction
+ * network, so sampling a leap requires no hashing or boxing.  The
+ * system event count advances by the number of events fired in each
+ * leap.
+ *
+ * @author Scott Shaffer
+ */
+public final class RLeapAlgo extends StochAlgo {
+    private final AgentSystem agentSystem;
+    private final AgentNetwork network;
+    private final AgentPopulation population;
+    private final RateTree rateTree;
+    private final int leapSize;
+
+    // The population slot of each agent, indexed by network slot...
+    private final int[] popSlots;
+
+    // The number of times that each process fired in the current leap,
+    // indexed by process slot, and the slots of the processes that
+    // fired (in the order that they first fired)...
+    private final int[] fired;
+    private final int[] firedSlots;
+    private int firedCount = 0;
+
+    // The net population change of each agent in the current leap,
+    // indexed by agent slot, and the slots of the agents that changed
+    // (in the order that they first changed)...
+    private final int[] agentDeltas;
+    private final boolean[] changed;
+    private final int[] changedSlots;
+    private int changedCount = 0;
+
+    // The population slots and changes passed to the system...
+    private final int[] leapSlots;
+    private final int[] leapDeltas;
+
+    // The leap in which the rate of each process was last updated,
+    // indexed by process slot...
+    private final long[] updateStamps;
+    private long leapCount = 0L;
+
+    private int lastLeapSize = 0;
+
+    /**
+     * Default value for the leap size.
+     */
+    public static final int DEFAULT_LEAP_SIZE = 100;
+
+    private RLeapAlgo(JamRandom random, AgentSystem system, int leapSize) {
+        super(random, system);
+
+        if (leapSize < 1)
+            throw JamException.runtime("Leap size must be positive.");
+
+        this.agentSystem = system;
+        this.network = AgentNetwork.compile(system);
+        this.population = system.getPopulation();
+        this.rateTree = RateTree.create(system);
+        this.leapSize = leapSize;
+
+        int agentCount = network.countAgents();
+        int procCount = network.countProcs();
+
+        this.popSlots = new int[agentCount];
+
+        for (int agentSlot = 0; agentSlot < agentCount; ++agentSlot)
+            popSlots[agentSlot] = population.getSlot(network.getAgent(agentSlot));
+
+        this.fired = new int[procCount];
+        this.firedSlots = new int[procCount];
+        this.agentDeltas = new int[agentCount];
+        this.changed = new boolean[agentCount];
+        this.changedSlots = new int[agentCount];
+        this.leapSlots = new int[agentCount];
+        this.leapDeltas = new int[agentCount];
+        this.updateStamps = new long[procCount];
+    }
+
+    /**
+     * Creates a new R-leaping algorithm with the default leap size.
+     *
+     * @param random the random number source.
+     *
+     * @param system the agent system to simulate.
+     *
+     * @return a new R-leaping algorithm for the specified system.
+     */
+    public static RLeapAlgo create(JamRandom random, AgentSystem system) {
+        return create(random, system, DEFAULT_LEAP_SIZE);
+    }
+
+    /**
+     * Creates a new R-leaping algorithm.
+     *
+     * @param random the random number source.
+     *
+     * @param system the agent system to simulate.
+     *
+     * @param leapSize the number of events to fire in each leap.
+     *
+     * @return a new R-leaping algorithm for the specified system.
+     *
+     * @throws RuntimeException unless the leap size is positive.
+     */
+    public static RLeapAlgo create(JamRandom random, AgentSystem system, int leapSize) {
+        return new RLeapAlgo(random, system, leapSize);
+    }
+
+    /**
+     * Returns the (maximum) number of events fired in each leap.
+     *
+     * @return the (maximum) number of events fired in each leap.
+     */
+    public int getLeapSize() {
+        return leapSize;
+    }
+
+    /**
+     * Returns the number of events fired in the most recent leap,
+     * which is smaller than the leap size if any leaps were rejected.
+     *
+     * @return the number of events fired in the most recent leap (or
+     * zero if no leaps have been taken).
+     */
+    public int getLastLeapSize() {
+        return lastLeapSize;
+    }
+
+    /**
+     * Advances the simulation by one leap.
+     */
+    @Override public void advance() {
+        double totalRate = rateTree.getTotalRate().doubleValue();
+
+        if (totalRate <= 0.0)
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        int size = leapSize;
+
+        while (!sampleLeap(size)) {
+            if (size == 1)
+                throw JamException.runtime("A single event would deplete an agent population.");
+
+            size /= 2;
+        }
+
+        for (int index = 0; index < changedCount; ++index) {
+            leapSlots[index] = popSlots[changedSlots[index]];
+            leapDeltas[index] = agentDeltas[changedSlots[index]];
+        }
+
+        StochTime time = agentSystem.lastEventTime().plus(LeapSampler.gamma(size, random) / totalRate);
+        agentSystem.updatePopulation(time, size, leapSlots, leapDeltas, changedCount);
+
+        ++leapCount;
+
+        for (int index = 0; index < firedCount; ++index) {
+            AgentProc proc = network.getProc(firedSlots[index]);
+            updateRate(proc);
+
+            for (AgentProc dependent : agentSystem.viewDependents(proc))
+                updateRate(dependent);
+        }
+
+        lastLeapSize = size;
+    }
+
+    private boolean sampleLeap(int size) {
+        //
+        // Draw the events one at a time from the sum tree (which is a
+        // multinomial sample) and reject the leap if any population
+        // would become negative...
+        //
+        clearLeap();
+
+        for (int trial = 0; trial < size; ++trial) {
+            int procSlot = network.getProcSlot(rateTree.select(random));
+
+            if (fired[procSlot]++ == 0)
+                firedSlots[firedCount++] = procSlot;
+
+            int[] slots = network.changeSlots(procSlot);
+            int[] deltas = network.changeDeltas(procSlot);
+
+            for (int index = 0; index < slots.length; ++index) {
+                int agentSlot = slots[index];
+
+                if (!changed[agentSlot]) {
+                    changed[agentSlot] = true;
+                    changedSlots[changedCount++] = agentSlot;
+                }
+
+                agentDeltas[agentSlot] += deltas[index];
+
+                if (population.countSlot(popSlots[agentSlot]) + agentDeltas[agentSlot] < 0)
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void clearLeap() {
+        for (int index = 0; index < firedCount; ++index)
+            fired[firedSlots[index]] = 0;
+
+        for (int index = 0; index < changedCount; ++index) {
+            agentDeltas[changedSlots[index]] = 0;
+            changed[changedSlots[index]] = false;
+        }
+
+        firedCount = 0;
+        changedCount = 0;
+    }
+
+    private void updateRate(AgentProc proc) {
+        //
+        // A process may depend on several processes that fired, but its
+        // rate need only be updated once in each leap...
+        //
+        int procSlot = network.getProcSlot(proc);
+
+        if (updateStamps[procSlot] == leapCount)
+            return;
+
+        updateStamps[procSlot] = leapCount;
+        proc.updateRate(agentSystem);
+        rateTree.updateRate(proc);
+    }
+
+    @Override protected StochEvent nextEvent() {
+        //
+        // Single events use the logarithmic direct method...
+        //
+        return StochEvent.mark(rateTree.select(random),
+                               rateTree.getTotalRate().sampleTime(system.lastEventTime(), random));
+    }
+
+    @Override protected void updateState(StochEvent event, Collection<? extends StochProc> dependents) {
+        rateTree.updateRates(event.getProc(), dependents);
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.Collection;
+
+import com.tipplerow.jam.lang.JamException;
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.RateTree;
+import com.tipplerow.jam.stoch.StochAlgo;
+import com.tipplerow.jam.stoch.StochEvent;
+import com.tipplerow.jam.stoch.StochProc;
+import com.tipplerow.jam.stoch.StochRate;
+import com.tipplerow.jam.stoch.StochTime;
+
+/**
+ * Implements the <em>rejection-based</em> stochastic simulation method
+ * (RSSA) of Thanh, Priami, and Zunino [J. Chem. Phys. (2014) 141,
+ * 134116] for agent systems.
+ *
+ * <p>Each agent population is assigned a <em>fluctuation interval</em>
+ * about its current value, and each process is assigned lower and upper
+ * bounds on its rate that hold while every population remains within
+ * its interval.  Candidate events are selected with probabilities
+ * proportional to the upper rate bounds and accepted with probability
+ * equal to the ratio of the exact rate and the upper bound.  Most
+ * candidates are accepted by comparison with the lower bound, so the
+ * exact rate of a process is evaluated only occasionally; the bounds
+ * are recomputed only for the processes that consume an agent whose
+ * population has left its interval.  Rate evaluations therefore scale
+ * with the number of interval exits rather than with the number of
+ * events times the number of dependent processes.
+ *
+ * <p>The upper bounds may remain positive while every exact rate is
+ * zero (a capped process at capacity, for example).  After a long run
+ * of consecutive rejections, the intervals and bounds are therefore
+ * refreshed and the exact rates evaluated; the step fails if the exact
+ * total rate is zero.
+ *
+ * <p>This algorithm does <em>not</em> keep the process rates in the
+ * underlying system current: the rate returned by {@code getStochRate()}
+ * is refreshed only when the process is evaluated in an acceptance test.
+ *
+ * @author Scott Shaffer
+ */
+public final class RejectionAlgo extends StochAlgo {
+    private final AgentSystem agentSystem;
+    private final AgentNetwork network;
+    private final RateTree boundTree;
+    private final double delta;
+
+    // The fluctuation interval for each agent population...
+    private final double[] lowerCounts;
+    private final double[] upperCounts;
+
+    // The rate bounds for each process...
+    private final double[] lowerRates;
+    private final double[] upperRates;
+
+    // The number of consecutive rejections that triggers a refresh of
+    // the bounds and exact rates...
+    private final int refreshLimit;
+
+    private long evalCount = 0L;
+    private long boundCount = 0L;
+
+    // The minimum number of consecutive rejections that triggers a
+    // refresh: with the usual acceptance rates, a run this long occurs
+    // only when the exact rates have fallen far below their bounds...
+    private static final int MIN_REFRESH_LIMIT = 64;
+
+    /**
+     * Default value for the relative width of the fluctuation
+     * intervals.
+     */
+    public static final double DEFAULT_DELTA = 0.1;
+
+    private RejectionAlgo(JamRandom random, AgentSystem system, double delta) {
+        super(random, system);
+
+        if (delta <= 0.0 || delta >= 1.0)
+            throw JamException.runtime("Fluctuation interval width must lie in the interval (0, 1).");
+
+        this.agentSystem = system;
+        this.network = AgentNetwork.compile(system);
+        this.boundTree = RateTree.create(system);
+        this.delta = delta;
+        this.refreshLimit = Math.max(MIN_REFRESH_LIMIT, network.countProcs());
+
+        this.lowerCounts = new double[network.countAgents()];
+        this.upperCounts = new double[network.countAgents()];
+        this.lowerRates = new double[network.countProcs()];
+        this.upperRates = new double[network.countProcs()];
+
+        for (int agentSlot = 0; agentSlot < lowerCounts.length; ++agentSlot)
+            assignInterval(agentSlot);
+
+        for (int procSlot = 0; procSlot < lowerRates.length; ++procSlot)
+            assignBounds(procSlot);
+    }
+
+    /**
+     * Creates a new rejection-based simulation algorithm with the
+     * default fluctuation interval width.
+     *
+     * @param random the random number source.
+     *
+     * @param system the agent system to simulate.
+     *
+     * @return a new rejection-based simulation algorithm for the
+     * specified system.
+     */
+    public static RejectionAlgo create(JamRandom random, AgentSystem system) {
+        return create(random, system, DEFAULT_DELTA);
+    }
+
+    /**
+     * Creates a new rejection-based simulation algorithm.
+     *
+     * @param random the random number source.
+     *
+     * @param system the agent system to simulate.
+     *
+     * @param delta the relative width of the fluctuation intervals:
+     * each population {@code x} may fluctuate within the interval
+     * {@code [x - w, x + w]}, where {@code w = max(1, delta * x)}.
+     *
+     * @return a new rejection-based simulation algorithm for the
+     * specified system.
+     *
+     * @throws RuntimeException unless the interval width lies in the
+     * open interval {@code (0, 1)}.
+     */
+    public static RejectionAlgo create(JamRandom random, AgentSystem system, double delta) {
+        return new RejectionAlgo(random, system, delta);
+    }
+
+    /**
+     * Returns the number of times that the rate bounds of a process
+     * have been computed.
+     *
+     * @return the number of times that the rate bounds of a process
+     * have been computed.
+     */
+    public long countBoundUpdates() {
+        return boundCount;
+    }
+
+    /**
+     * Returns the number of exact process rates evaluated in
+     * acceptance tests.
+     *
+     * @return the number of exact process rates evaluated in
+     * acceptance tests.
+     */
+    public long countRateEvaluations() {
+        return evalCount;
+    }
+
+    private void assignInterval(int agentSlot) {
+        double count = agentSystem.countAgent(network.getAgent(agentSlot));
+        double width = Math.max(1.0, Math.floor(delta * count));
+
+        lowerCounts[agentSlot] = Math.max(0.0, count - width);
+        upperCounts[agentSlot] = count + width;
+    }
+
+    private void assignBounds(int procSlot) {
+        AgentProc proc = network.getProc(procSlot);
+
+        double lowerConst = proc.getLowerRateConstant(agentSystem);
+        double upperConst = proc.getUpperRateConstant(agentSystem);
+
+        lowerRates[procSlot] = network.computeRate(procSlot, lowerConst, lowerCounts);
+        upperRates[procSlot] = network.computeRate(procSlot, upperConst, upperCounts);
+
+        boundTree.updateRate(proc, upperRates[procSlot]);
+        ++boundCount;
+    }
+
+    /**
+     * Advances the simulation by one event, updating the agent
+     * populations but only the rate bounds affected by the event.
+     */
+    @Override public void advance() {
+        StochEvent event = nextEvent();
+        agentSystem.updatePopulation(event);
+        updateBounds(event.getProc());
+    }
+
+    @Override protected void advanceBefore(double horizon) {
+        StochEvent event = sampleEvent(horizon);
+
+        while (event != null) {
+            agentSystem.updatePopulation(event);
+            updateBounds(event.getProc());
+
+            event = sampleEvent(horizon);
+        }
+    }
+
+    @Override protected StochEvent nextEvent() {
+        StochEvent event = sampleEvent(Double.POSITIVE_INFINITY);
+
+        if (event == null)
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        return event;
+    }
+
+    private StochEvent sampleEvent(double horizon) {
+        //
+        // Every candidate, accepted or rejected, advances the clock by
+        // an exponential interval with the total upper-bound rate.  The
+        // candidate times form a thinned Poisson process with constant
+        // rate, so sampling stops (and the candidate is discarded) once
+        // the candidate clock passes the horizon...
+        //
+        double time = system.lastEventTimeValue();
+        int rejectCount = 0;
+
+        while (boundTree.getTotalRateValue() > 0.0) {
+            AgentProc proc = (AgentProc) boundTree.select(random);
+            time = StochRate.sampleTime(boundTree.getTotalRateValue(), time, random);
+
+            if (time > horizon)
+                return null;
+
+            if (accept(network.getProcSlot(proc), proc))
+                return StochEvent.mark(proc, StochTime.of(time));
+
+            //
+            // The upper bounds may remain positive while every exact
+            // rate is zero (a capped process at capacity, for example),
+            // so after a long run of rejections the bounds are
+            // refreshed and the exact rates are examined...
+            //
+            if (++rejectCount >= refreshLimit) {
+                if (refreshBounds() <= 0.0)
+                    return null;
+
+                rejectCount = 0;
+            }
+        }
+
+        return null;
+    }
+
+    private double refreshBounds() {
+        for (int agentSlot = 0; agentSlot < lowerCounts.length; ++agentSlot)
+            assignInterval(agentSlot);
+
+        for (int procSlot = 0; procSlot < lowerRates.length; ++procSlot)
+            assignBounds(procSlot);
+
+        double totalRate = 0.0;
+
+        for (int procSlot = 0; procSlot < lowerRates.length; ++procSlot) {
+            AgentProc proc = network.getProc(procSlot);
+
+            ++evalCount;
+            proc.updateRate(agentSystem);
+            totalRate += proc.getRateValue();
+        }
+
+        return totalRate;
+    }
+
+    private boolean accept(int procSlot, AgentProc proc) {
+        double threshold = random.nextDouble() * upperRates[procSlot];
+
+        if (threshold < lowerRates[procSlot])
+            return true;
+
+        ++evalCount;
+        proc.updateRate(agentSystem);
+
+        return threshold < proc.getRateValue();
+    }
+
+    private void updateBounds(StochProc eventProc) {
+        int procSlot = network.getProcSlot(eventProc);
+        int[] slots = network.changeSlots(procSlot);
+
+        for (int agentSlot : slots) {
+            double count = agentSystem.countAgent(network.getAgent(agentSlot));
+
+            if (lowerCounts[agentSlot] <= count && count <= upperCounts[agentSlot])
+                continue;
+
+            assignInterval(agentSlot);
+
+            for (int consumerSlot : network.consumerSlots(agentSlot))
+                assignBounds(consumerSlot);
+        }
+    }
+
+    @Override protected void updateState(StochEvent event, Collection<? extends StochProc> dependents) {
+        updateBounds(event.getProc());
+    }
+}
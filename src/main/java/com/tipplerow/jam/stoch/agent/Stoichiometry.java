@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.Map;
+
+import com.google.common.collect.Multiset;
+
+/**
+ * Holds the stoichiometry of an agent process compiled against the
+ * agent slots of a particular population: the reactant slots (each
+ * repeated by its multiplicity, so the mass-action rate is the rate
+ * constant times the product of their counts) and the net population
+ * change as parallel arrays of agent slots and integer deltas.
+ *
+ * @author Scott Shaffer
+ */
+final class Stoichiometry {
+    private final AgentPopulation population;
+
+    private final int[] reactantSlots;
+    private final int[] changeSlots;
+    private final int[] changeDeltas;
+
+    private Stoichiometry(AgentProc proc, AgentPopulation population) {
+        this.population = population;
+
+        Multiset<StochAgent> reactants = proc.getReactants();
+        Map<StochAgent, Integer> netChange = proc.getNetChange();
+
+        this.reactantSlots = new int[reactants.size()];
+        this.changeSlots = new int[netChange.size()];
+        this.changeDeltas = new int[netChange.size()];
+
+        int index = 0;
+
+        for (StochAgent reactant : reactants)
+            reactantSlots[index++] = population.getSlot(reactant);
+
+        index = 0;
+
+        for (Map.Entry<StochAgent, Integer> change : netChange.entrySet()) {
+            changeSlots[index] = population.getSlot(change.getKey());
+            changeDeltas[index] = change.getValue();
+            ++index;
+        }
+    }
+
+    /**
+     * Compiles the stoichiometry of a process against the agent slots
+     * of a population.
+     *
+     * @param proc the process to compile.
+     *
+     * @param population the population that the process will modify.
+     *
+     * @return the compiled stoichiometry of the process.
+     */
+    static Stoichiometry compile(AgentProc proc, AgentPopulation population) {
+        return new Stoichiometry(proc, population);
+    }
+
+    /**
+     * Applies the net population change of the process some number of
+     * times; the population is unchanged if the change is invalid.
+     *
+     * @param count the number of times that the process occurred.
+     *
+     * @throws IllegalArgumentException if the population of any agent
+     * would become negative.
+     */
+    void apply(int count) {
+        for (int index = 0; index < changeSlots.length; ++index)
+            if (population.countSlot(changeSlots[index]) + (long) count * changeDeltas[index] < 0)
+                throw new IllegalArgumentException("Agent count must remain non-negative.");
+
+        for (int index = 0; index < changeSlots.length; ++index)
+            population.adjustSlot(changeSlots[index], count * changeDeltas[index]);
+    }
+
+    /**
+     * Computes the mass-action rate of the process in the current
+     * population.
+     *
+     * @param rateConst the rate constant of the process.
+     *
+     * @return the mass-action rate of the process.
+     */
+    double computeRate(double rateConst) {
+        double rate = rateConst;
+
+        for (int slot : reactantSlots)
+            rate *= population.countSlot(slot);
+
+        return rate;
+    }
+}
@@ -0,0 +1,702 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+
+import com.tipplerow.jam.dist.ExponentialDistribution;
+import com.tipplerow.jam.lang.JamException;
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.StochAlgo;
+import com.tipplerow.jam.stoch.StochEvent;
+import com.tipplerow.jam.stoch.StochProc;
+import com.tipplerow.jam.stoch.StochRate;
+import com.tipplerow.jam.stoch.StochTime;
+
+/**
+ * Implements the adaptive <em>tau-leaping</em> method of Cao, Gillespie,
+ * and Petzold [J. Chem. Phys. (2006) 124, 044109] for agent systems.
+ *
+ * <p>Each step fires a Poisson-distributed number of occurrences of
+ * every process over a leap interval {@code tau}, chosen so that the
+ * expected relative change in every process rate is bounded by the
+ * accuracy parameter {@code epsilon}.  Processes that could exhaust a
+ * reactant population within a few occurrences are <em>critical</em>:
+ * at most one critical event fires per leap, sampled exactly.  When
+ * the leap interval would cover only a few events (typically because
+ * the populations are small), the algorithm falls back to a sequence
+ * of exact direct-method steps.
+ *
+ * <p>Algorithms created by {@code createAdaptive} also take
+ * <em>implicit</em> leaps [Rathinam, Petzold, Cao, and Gillespie,
+ * J. Chem. Phys. (2003) 119, 12784] when the system is stiff, using
+ * the selection strategy of Cao, Gillespie, and Petzold [J. Chem. Phys.
+ * (2007) 126, 224101].  Pairs of mutually reverse processes (such as
+ * {@code A => B} and {@code B => A}) whose rates are nearly equal are
+ * in <em>partial equilibrium</em>: their fast, self-cancelling firings
+ * limit the explicit leap interval but not the implicit interval.  An
+ * implicit leap is taken when its interval exceeds the explicit
+ * interval by more than {@code STIFFNESS_RATIO} and the longer leap
+ * outweighs the cost of solving the implicit equations, which grows
+ * with the cube of the number of agents.
+ *
+ * @author Scott Shaffer
+ */
+public final class TauLeapAlgo extends StochAlgo {
+    private final AgentSystem agentSystem;
+    private final AgentNetwork network;
+    private final double epsilon;
+    private final boolean adaptive;
+
+    private final double[] rates;
+    private final double[] counts;
+    private final double[] drift;
+    private final double[] variance;
+    private final long[] changes;
+    private final int[] firings;
+    private final boolean[] critical;
+
+    // Working storage for implicit leaps (allocated only for adaptive
+    // algorithms)...
+    private final double[] rateConsts;
+    private final double[] poisson;
+    private final double[] base;
+    private final double[] state;
+    private final double[] residual;
+    private final double[] gradient;
+    private final double[][] jacobian;
+
+    private long leapCount = 0;
+    private long implicitCount = 0;
+
+    // The number of exact steps remaining before the next attempt to
+    // take a leap...
+    private int exactRemaining = 0;
+
+    /**
+     * Default value for the accuracy parameter {@code epsilon}.
+     */
+    public static final double DEFAULT_EPSILON = 0.03;
+
+    /**
+     * Processes that would exhaust a reactant population in fewer than
+     * this many occurrences are treated as critical.
+     */
+    public static final int CRITICAL_THRESHOLD = 10;
+
+    /**
+     * Exact steps are taken instead of a leap when the leap interval
+     * would cover fewer than this many expected events.
+     */
+    public static final double EXACT_EVENT_THRESHOLD = 10.0;
+
+    /**
+     * The number of consecutive exact steps taken after a leap is
+     * rejected in favor of exact simulation.
+     */
+    public static final int EXACT_STEP_COUNT = 100;
+
+    /**
+     * Two mutually reverse processes are in partial equilibrium when
+     * their rates differ by no more than this fraction of the smaller
+     * rate.
+     */
+    public static final double EQUILIBRIUM_TOLERANCE = 0.05;
+
+    /**
+     * The system is stiff when the implicit leap interval exceeds the
+     * explicit leap interval by more than this factor.
+     */
+    public static final double STIFFNESS_RATIO = 100.0;
+
+    /**
+     * The maximum ratio of the implicit and explicit leap intervals
+     * (which bounds the implicit interval when every non-critical
+     * process is in partial equilibrium).
+     */
+    public static final double MAX_IMPLICIT_RATIO = 1.0E+04;
+
+    private static final int MAX_NEWTON_ITERATIONS = 20;
+    private static final double NEWTON_TOLERANCE = 1.0E-08;
+
+    private TauLeapAlgo(JamRandom random, AgentSystem system, double epsilon, boolean adaptive) {
+        super(random, system);
+
+        if (epsilon <= 0.0 || epsilon >= 1.0)
+            throw JamException.runtime("Accuracy parameter must lie in the interval (0, 1).");
+
+        this.agentSystem = system;
+        this.network = AgentNetwork.compile(system);
+        this.epsilon = epsilon;
+        this.adaptive = adaptive;
+
+        this.rates = new double[network.countProcs()];
+        this.counts = new double[network.countAgents()];
+        this.drift = new double[network.countAgents()];
+        this.variance = new double[network.countAgents()];
+        this.changes = new long[network.countAgents()];
+        this.firings = new int[network.countProcs()];
+        this.critical = new boolean[network.countProcs()];
+
+        int procCount = adaptive ? network.countProcs() : 0;
+        int agentCount = adaptive ? network.countAgents() : 0;
+
+        this.rateConsts = new double[procCount];
+        this.poisson = new double[procCount];
+        this.base = new double[agentCount];
+        this.state = new double[agentCount];
+        this.residual = new double[agentCount];
+        this.gradient = new double[agentCount];
+        this.jacobian = new double[agentCount][agentCount];
+    }
+
+    /**
+     * Creates a new tau-leaping algorithm with the default accuracy
+     * parameter.
+     *
+     * @param random the random number source.
+     *
+     * @param system the agent system to simulate.
+     *
+     * @return a new tau-leaping algorithm for the specified system.
+     */
+    public static TauLeapAlgo create(JamRandom random, AgentSystem system) {
+        return create(random, system, DEFAULT_EPSILON);
+    }
+
+    /**
+     * Creates a new tau-leaping algorithm.
+     *
+     * @param random the random number source.
+     *
+     * @param system the agent system to simulate.
+     *
+     * @param epsilon the accuracy parameter: the maximum expected
+     * relative change in any process rate during a single leap.
+     *
+     * @return a new tau-leaping algorithm for the specified system.
+     *
+     * @throws RuntimeException unless the accuracy parameter lies in
+     * the open interval {@code (0, 1)}.
+     */
+    public static TauLeapAlgo create(JamRandom random, AgentSystem system, double epsilon) {
+        return new TauLeapAlgo(random, system, epsilon, false);
+    }
+
+    /**
+     * Creates a new tau-leaping algorithm that switches between
+     * explicit and implicit leaps, with the default accuracy parameter.
+     *
+     * @param random the random number source.
+     *
+     * @param system the agent system to simulate.
+     *
+     * @return a new adaptive explicit-implicit tau-leaping algorithm
+     * for the specified system.
+     */
+    public static TauLeapAlgo createAdaptive(JamRandom random, AgentSystem system) {
+        return createAdaptive(random, system, DEFAULT_EPSILON);
+    }
+
+    /**
+     * Creates a new tau-leaping algorithm that switches between
+     * explicit and implicit leaps.
+     *
+     * @param random the random number source.
+     *
+     * @param system the agent system to simulate.
+     *
+     * @param epsilon the accuracy parameter: the maximum expected
+     * relative change in any process rate during a single leap.
+     *
+     * @return a new adaptive explicit-implicit tau-leaping algorithm
+     * for the specified system.
+     *
+     * @throws RuntimeException unless the accuracy parameter lies in
+     * the open interval {@code (0, 1)}.
+     */
+    public static TauLeapAlgo createAdaptive(JamRandom random, AgentSystem system, double epsilon) {
+        return new TauLeapAlgo(random, system, epsilon, true);
+    }
+
+    /**
+     * Returns the number of leaps (explicit and implicit) taken by
+     * this algorithm.
+     *
+     * @return the number of leaps taken by this algorithm.
+     */
+    public long countLeaps() {
+        return leapCount;
+    }
+
+    /**
+     * Returns the number of implicit leaps taken by this algorithm.
+     *
+     * @return the number of implicit leaps taken by this algorithm.
+     */
+    public long countImplicitLeaps() {
+        return implicitCount;
+    }
+
+    /**
+     * Returns the accuracy parameter for this algorithm.
+     *
+     * @return the accuracy parameter for this algorithm.
+     */
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * Identifies algorithms that may take implicit leaps.
+     *
+     * @return {@code true} iff this algorithm may take implicit leaps.
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Advances the simulation by one leap or, when the populations are
+     * too small for leaping to be efficient, by one exact event.
+     */
+    @Override public void advance() {
+        if (exactRemaining > 0) {
+            --exactRemaining;
+            super.advance();
+            return;
+        }
+
+        double totalRate = network.readRates(rates);
+
+        if (totalRate <= 0.0)
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        network.readCounts(counts);
+        identifyCritical();
+
+        double tau1 = computeLeapInterval(false);
+        boolean implicit = false;
+
+        if (adaptive) {
+            double tauIm = computeLeapInterval(true);
+
+            if (preferImplicit(tau1, tauIm)) {
+                tau1 = Math.min(tauIm, MAX_IMPLICIT_RATIO * tau1);
+                implicit = true;
+            }
+        }
+
+        if (tau1 < EXACT_EVENT_THRESHOLD / totalRate) {
+            exactRemaining = EXACT_STEP_COUNT - 1;
+            super.advance();
+            return;
+        }
+
+        double criticalRate = 0.0;
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot)
+            if (critical[procSlot])
+                criticalRate += rates[procSlot];
+
+        while (!tryLeap(tau1, criticalRate, implicit))
+            tau1 *= 0.5;
+
+        ++leapCount;
+
+        if (implicit)
+            ++implicitCount;
+    }
+
+    private boolean preferImplicit(double tauEx, double tauIm) {
+        if (!(tauIm > STIFFNESS_RATIO * tauEx))
+            return false;
+
+        //
+        // Compare the simulated time advanced per unit of work: an
+        // explicit leap visits every process once; an implicit leap
+        // also factors a dense Jacobian matrix in each Newton step...
+        //
+        double agentCount = counts.length;
+        double explicitWork = rates.length;
+        double implicitWork = rates.length + agentCount * agentCount * agentCount / 3.0;
+
+        return Math.min(tauIm, MAX_IMPLICIT_RATIO * tauEx) / implicitWork > tauEx / explicitWork;
+    }
+
+    private boolean isEquilibrated(int procSlot) {
+        int reverseSlot = network.reverseSlot(procSlot);
+
+        if (reverseSlot == AgentNetwork.NO_SLOT || critical[reverseSlot])
+            return false;
+
+        double forward = rates[procSlot];
+        double reverse = rates[reverseSlot];
+
+        return forward > 0.0
+            && reverse > 0.0
+            && Math.abs(forward - reverse) <= EQUILIBRIUM_TOLERANCE * Math.min(forward, reverse);
+    }
+
+    private void identifyCritical() {
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot)
+            critical[procSlot] = rates[procSlot] > 0.0 && countFirings(procSlot) < CRITICAL_THRESHOLD;
+    }
+
+    private double countFirings(int procSlot) {
+        //
+        // The number of times that a process may occur before one of
+        // its reactant populations is exhausted...
+        //
+        double result = Double.POSITIVE_INFINITY;
+        int[] slots = network.changeSlots(procSlot);
+        int[] deltas = network.changeDeltas(procSlot);
+
+        for (int index = 0; index < slots.length; ++index)
+            if (deltas[index] < 0)
+                result = Math.min(result, Math.floor(counts[slots[index]] / -deltas[index]));
+
+        return result;
+    }
+
+    private double computeLeapInterval(boolean implicit) {
+        Arrays.fill(drift, 0.0);
+        Arrays.fill(variance, 0.0);
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            if (critical[procSlot] || rates[procSlot] <= 0.0)
+                continue;
+
+            // Processes in partial equilibrium do not limit the
+            // implicit leap interval...
+            if (implicit && isEquilibrated(procSlot))
+                continue;
+
+            int[] slots = network.changeSlots(procSlot);
+            int[] deltas = network.changeDeltas(procSlot);
+
+            for (int index = 0; index < slots.length; ++index) {
+                drift[slots[index]] += deltas[index] * rates[procSlot];
+                variance[slots[index]] += deltas[index] * deltas[index] * rates[procSlot];
+            }
+        }
+
+        double tau = Double.POSITIVE_INFINITY;
+
+        for (int agentSlot = 0; agentSlot < counts.length; ++agentSlot) {
+            //
+            // Only the populations of reactive agents affect the
+            // process rates...
+            //
+            if (variance[agentSlot] <= 0.0 || !network.isReactant(agentSlot))
+                continue;
+
+            double factor = network.computeOrderFactor(agentSlot, counts[agentSlot]);
+            double bound = Math.max(epsilon * counts[agentSlot] / factor, 1.0);
+
+            if (drift[agentSlot] != 0.0)
+                tau = Math.min(tau, bound / Math.abs(drift[agentSlot]));
+
+            tau = Math.min(tau, bound * bound / variance[agentSlot]);
+        }
+
+        return tau;
+    }
+
+    private boolean tryLeap(double tau1, double criticalRate, boolean implicit) {
+        double tau2 = Double.POSITIVE_INFINITY;
+
+        if (criticalRate > 0.0)
+            tau2 = ExponentialDistribution.sample(criticalRate, random);
+
+        double tau = Math.min(tau1, tau2);
+
+        if (Double.isInfinite(tau))
+            throw JamException.runtime("Leap interval must be finite.");
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            if (critical[procSlot] || rates[procSlot] <= 0.0)
+                firings[procSlot] = 0;
+            else
+                firings[procSlot] = LeapSampler.poisson(rates[procSlot] * tau, random);
+        }
+
+        if (implicit && !solveImplicit(tau))
+            return false;
+
+        if (tau2 <= tau1)
+            ++firings[selectCritical(criticalRate)];
+
+        if (!computeChanges())
+            return false;
+
+        Multiset<AgentProc> fired = HashMultiset.create();
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot)
+            if (firings[procSlot] > 0)
+                fired.add(network.getProc(procSlot), firings[procSlot]);
+
+        agentSystem.updateState(agentSystem.lastEventTime().plus(tau), fired);
+        return true;
+    }
+
+    private boolean solveImplicit(double tau) {
+        //
+        // The implicit leap solves
+        //
+        //     y = x + sum_j v_j * (P_j - a_j(x) * tau + a_j(y) * tau)
+        //
+        // for the post-leap populations y by Newton iteration, where P_j
+        // is the Poisson firing count drawn for non-critical process j
+        // and the rate constants are frozen at their current values.
+        // The firing counts are then recovered by rounding the terms in
+        // parentheses to the nearest non-negative integer...
+        //
+        System.arraycopy(counts, 0, base, 0, counts.length);
+        System.arraycopy(counts, 0, state, 0, counts.length);
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            if (critical[procSlot])
+                continue;
+
+            rateConsts[procSlot] = network.getProc(procSlot).getRateConstant(agentSystem);
+            poisson[procSlot] = firings[procSlot];
+
+            int[] slots = network.changeSlots(procSlot);
+            int[] deltas = network.changeDeltas(procSlot);
+
+            for (int index = 0; index < slots.length; ++index) {
+                base[slots[index]] += deltas[index] * (poisson[procSlot] - rates[procSlot] * tau);
+                state[slots[index]] += deltas[index] * poisson[procSlot];
+            }
+        }
+
+        // The explicit leap provides the initial estimate...
+        for (int agentSlot = 0; agentSlot < state.length; ++agentSlot)
+            state[agentSlot] = Math.max(0.0, state[agentSlot]);
+
+        if (!iterateNewton(tau))
+            return false;
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            if (critical[procSlot])
+                continue;
+
+            double implicitRate = network.computeRate(procSlot, rateConsts[procSlot], state);
+            double firingCount = Math.rint(poisson[procSlot] + (implicitRate - rates[procSlot]) * tau);
+
+            firings[procSlot] = (int) Math.max(0.0, firingCount);
+        }
+
+        return true;
+    }
+
+    private boolean iterateNewton(double tau) {
+        for (int iteration = 0; iteration < MAX_NEWTON_ITERATIONS; ++iteration) {
+            for (int agentSlot = 0; agentSlot < state.length; ++agentSlot) {
+                residual[agentSlot] = base[agentSlot] - state[agentSlot];
+
+                Arrays.fill(jacobian[agentSlot], 0.0);
+                jacobian[agentSlot][agentSlot] = 1.0;
+            }
+
+            for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+                if (critical[procSlot])
+                    continue;
+
+                double implicitRate = network.computeRate(procSlot, rateConsts[procSlot], state);
+                network.addRateGradient(procSlot, rateConsts[procSlot], state, tau, gradient);
+
+                int[] slots = network.changeSlots(procSlot);
+                int[] deltas = network.changeDeltas(procSlot);
+
+                for (int index = 0; index < slots.length; ++index)
+                    residual[slots[index]] += deltas[index] * implicitRate * tau;
+
+                for (int reactantSlot : network.reactantSlots(procSlot)) {
+                    //
+                    // Reactants with multiplicity appear more than once,
+                    // but their gradient is consumed the first time...
+                    //
+                    double partial = gradient[reactantSlot];
+
+                    if (partial == 0.0)
+                        continue;
+
+                    for (int index = 0; index < slots.length; ++index)
+                        jacobian[slots[index]][reactantSlot] -= deltas[index] * partial;
+
+                    gradient[reactantSlot] = 0.0;
+                }
+            }
+
+            //
+            // The residual now holds the negated Newton function, so the
+            // solution of the linear system is the Newton step...
+            //
+            if (!solveLinear(jacobian, residual))
+                return false;
+
+            boolean converged = true;
+
+            for (int agentSlot = 0; agentSlot < state.length; ++agentSlot) {
+                double step = residual[agentSlot];
+
+                if (!Double.isFinite(step))
+                    return false;
+
+                state[agentSlot] += step;
+                converged &= Math.abs(step) <= NEWTON_TOLERANCE * (1.0 + Math.abs(state[agentSlot]));
+            }
+
+            if (converged)
+                return true;
+        }
+
+        return false;
+    }
+
+    private static boolean solveLinear(double[][] matrix, double[] vector) {
+        //
+        // Gaussian elimination with partial pivoting; the solution
+        // overwrites the right-hand side vector...
+        //
+        int size = vector.length;
+
+        for (int col = 0; col < size; ++col) {
+            int pivot = col;
+
+            for (int row = col + 1; row < size; ++row)
+                if (Math.abs(matrix[row][col]) > Math.abs(matrix[pivot][col]))
+                    pivot = row;
+
+            if (matrix[pivot][col] == 0.0)
+                return false;
+
+            if (pivot != col) {
+                double[] rowSwap = matrix[pivot];
+                matrix[pivot] = matrix[col];
+                matrix[col] = rowSwap;
+
+                double valueSwap = vector[pivot];
+                vector[pivot] = vector[col];
+                vector[col] = valueSwap;
+            }
+
+            for (int row = col + 1; row < size; ++row) {
+                double factor = matrix[row][col] / matrix[col][col];
+
+                if (factor == 0.0)
+                    continue;
+
+                for (int k = col; k < size; ++k)
+                    matrix[row][k] -= factor * matrix[col][k];
+
+                vector[row] -= factor * vector[col];
+            }
+        }
+
+        for (int row = size - 1; row >= 0; --row) {
+            double sum = vector[row];
+
+            for (int k = row + 1; k < size; ++k)
+                sum -= matrix[row][k] * vector[k];
+
+            vector[row] = sum / matrix[row][row];
+        }
+
+        return true;
+    }
+
+    private int selectCritical(double criticalRate) {
+        double threshold = random.nextDouble() * criticalRate;
+        int selected = -1;
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            if (critical[procSlot]) {
+                selected = procSlot;
+                threshold -= rates[procSlot];
+
+                if (threshold < 0.0)
+                    break;
+            }
+        }
+
+        return selected;
+    }
+
+    private boolean computeChanges() {
+        //
+        // Accumulate the net population changes and reject the leap if
+        // any population would become negative...
+        //
+        Arrays.fill(changes, 0L);
+
+        for (int procSlot = 0; procSlot < firings.length; ++procSlot) {
+            if (firings[procSlot] == 0)
+                continue;
+
+            int[] slots = network.changeSlots(procSlot);
+            int[] deltas = network.changeDeltas(procSlot);
+
+            for (int index = 0; index < slots.length; ++index)
+                changes[slots[index]] += (long) deltas[index] * firings[procSlot];
+        }
+
+        for (int agentSlot = 0; agentSlot < counts.length; ++agentSlot)
+            if (counts[agentSlot] + changes[agentSlot] < 0.0)
+                return false;
+
+        return true;
+    }
+
+    @Override protected StochEvent nextEvent() {
+        //
+        // Exact steps use the direct method of Gillespie...
+        //
+        double totalRate = network.readRates(rates);
+        double threshold = random.nextDouble() * totalRate;
+
+        if (totalRate <= 0.0)
+            throw JamException.runtime("Total transition rate must be positive.");
+
+        int selected = -1;
+
+        for (int procSlot = 0; procSlot < rates.length; ++procSlot) {
+            if (rates[procSlot] > 0.0) {
+                selected = procSlot;
+                threshold -= rates[procSlot];
+
+                if (threshold < 0.0)
+                    break;
+            }
+        }
+
+        StochTime time = StochRate.of(totalRate).sampleTime(system.lastEventTime(), random);
+        return StochEvent.mark(network.getProc(selected), time);
+    }
+
+    @Override protected void updateState(StochEvent event, Collection<? extends StochProc> dependents) {
+        //
+        // The agent system maintains the process rates, so there is
+        // nothing to update...
+        //
+    }
+}
@@ -38,6 +38,9 @@ public abstract class TransitionProc extends FirstOrderProc {
      */
     protected final StochAgent product;
 
+    // The product as a multiset (created once)...
+    private final Multiset<StochAgent> products;
+
     /**
      * Creates a new transition process with a fixed reactant and
      * product.
@@ -56,6 +59,7 @@ public abstract class TransitionProc extends FirstOrderProc {
             throw JamException.runtime("Reactant and product must be distinct.");
 
         this.product = product;
+        this.products = ImmutableMultiset.of(product);
     }
 
     /**
@@ -68,11 +72,6 @@ public abstract class TransitionProc extends FirstOrderProc {
     }
 
     @Override public Multiset<StochAgent> getProducts() {
-        return ImmutableMultiset.of(product);
-    }
-
-    @Override public void updatePopulation(AgentPopulation population) {
-        population.remove(reactant);
-        population.add(product);
+        return products;
     }
 }
@@ -114,7 +114,11 @@ public final class DecayProc extends StochProc {
     }
 
     @Override public StochRate getStochRate() {
-        return StochRate.of(population * rateConst);
+        return StochRate.of(getRateValue());
+    }
+
+    @Override public double getRateValue() {
+        return population * rateConst;
     }
 
     @Override public String toString() {
@@ -21,6 +21,7 @@ import java.util.List;
 
 import com.tipplerow.jam.lang.JamException;
 import com.tipplerow.jam.stoch.StochEvent;
+import com.tipplerow.jam.stoch.StochProc;
 import com.tipplerow.jam.stoch.StochSystem;
 
 /**
@@ -78,10 +79,18 @@ public final class DecaySystem extends StochSystem {
     }
 
     @Override public void updateState() {
+        updateComponentState(lastEventProcess());
+    }
+
+    @Override protected void updateComponentState(StochProc proc) {
         //
         // All decay processes are independent...
         //
-        lastEventProcess().decay();
+        ((DecayProc) proc).decay();
+    }
+
+    @Override protected boolean supportsComponentSimulation() {
+        return true;
     }
 
     @SuppressWarnings("unchecked")
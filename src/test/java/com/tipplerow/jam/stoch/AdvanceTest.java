@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.List;
+import java.util.function.BiFunction;
+
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.decay.DecayProc;
+import com.tipplerow.jam.stoch.decay.DecaySystem;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class AdvanceTest {
+    private static final List<BiFunction<JamRandom, StochSystem, StochAlgo>> factories =
+        List.of(DirectAlgo::create,
+                LogDirectAlgo::create,
+                CompositionRejectionAlgo::create,
+                NextReactionAlgo::create,
+                NextReactionAlgo::createCalendar,
+                ModifiedNextReactionAlgo::create,
+                ReferenceAlgo::create);
+
+    private static DecaySystem createSystem() {
+        return DecaySystem.create(new int[] { 1000, 2000, 500 }, new double[] { 1.0, 0.5, 2.0 });
+    }
+
+    @Test public void testAdvanceCount() {
+        for (BiFunction<JamRandom, StochSystem, StochAlgo> factory : factories) {
+            DecaySystem system = createSystem();
+            StochAlgo algorithm = factory.apply(JamRandom.generator(20210501), system);
+
+            algorithm.advance(100);
+            assertEquals(system.countEvents(), 100L);
+
+            algorithm.advance(0);
+            assertEquals(system.countEvents(), 100L);
+        }
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testAdvanceCountInvalid() {
+        DirectAlgo.create(JamRandom.generator(20210501), createSystem()).advance(-1);
+    }
+
+    @Test public void testAdvanceHorizon() {
+        for (BiFunction<JamRandom, StochSystem, StochAlgo> factory : factories) {
+            DecaySystem system = createSystem();
+            StochAlgo algorithm = factory.apply(JamRandom.generator(20210501), system);
+
+            long count1 = algorithm.advanceUntil(StochTime.of(0.25));
+
+            assertEquals(system.countEvents(), count1);
+            assertEquals(system.lastEventTimeValue(), 0.25, 0.0);
+            assertNull(system.lastEvent());
+
+            long count2 = algorithm.advanceUntil(0.5);
+
+            assertEquals(system.countEvents(), count1 + count2);
+            assertEquals(system.lastEventTimeValue(), 0.5, 0.0);
+
+            for (DecayProc proc : system.viewProcesses()) {
+                double expected = proc.getExpectedPopulation(StochTime.of(0.5));
+                assertEquals(proc.getPopulation(), expected, 0.1 * expected);
+            }
+
+            //
+            // The first event after the horizon was not committed, so
+            // the simulation continues from the horizon...
+            //
+            algorithm.advance();
+            assertTrue(system.lastEventTimeValue() > 0.5);
+        }
+    }
+
+    @Test public void testAdvanceExtinct() {
+        for (BiFunction<JamRandom, StochSystem, StochAlgo> factory : factories) {
+            DecaySystem system = DecaySystem.create(new int[] { 10, 20 }, new double[] { 1.0, 2.0 });
+            StochAlgo algorithm = factory.apply(JamRandom.generator(20210501), system);
+
+            assertEquals(algorithm.advanceUntil(Double.POSITIVE_INFINITY), 30L);
+
+            for (DecayProc proc : system.viewProcesses())
+                assertEquals(proc.getPopulation(), 0);
+        }
+    }
+
+    @Test public void testAdvancePredicate() {
+        for (BiFunction<JamRandom, StochSystem, StochAlgo> factory : factories) {
+            DecaySystem system = createSystem();
+            StochAlgo algorithm = factory.apply(JamRandom.generator(20210501), system);
+
+            DecayProc proc = system.viewProcesses().iterator().next();
+            long count = algorithm.advanceUntil(sys -> proc.getPopulation() <= 900);
+
+            assertEquals(system.countEvents(), count);
+            assertEquals(proc.getPopulation(), 900);
+        }
+    }
+}
@@ -17,8 +17,13 @@ package com.tipplerow.jam.stoch;
 
 import com.google.common.base.Stopwatch;
 
+import java.util.List;
+import java.util.function.BiFunction;
+
 import com.tipplerow.jam.math.DoubleUtil;
 import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.agent.LeapTestSystem;
+import com.tipplerow.jam.stoch.agent.TestAgent;
 import com.tipplerow.jam.stoch.decay.DecayProc;
 import com.tipplerow.jam.stoch.decay.DecaySystem;
 
@@ -93,6 +98,59 @@ public abstract class AlgoTestBase {
         System.out.println(stopwatch);
     }
 
+    public void runEventPathTest(BiFunction<JamRandom, StochSystem, StochAlgo> factory) {
+        //
+        // The per-event methods (nextEvent and updateState) and the
+        // slot-indexed fast path (advance) must produce the same
+        // trajectory from the same seed on a coupled system...
+        //
+        LeapTestSystem system1 = LeapTestSystem.reversible(100, 100, 1.0, 3.0);
+        LeapTestSystem system2 = LeapTestSystem.reversible(100, 100, 1.0, 3.0);
+
+        StochAlgo algo1 = factory.apply(JamRandom.generator(20210517), system1);
+        StochAlgo algo2 = factory.apply(JamRandom.generator(20210517), system2);
+
+        for (int step = 0; step < 2000; ++step) {
+            algo1.advance();
+
+            StochEvent event = algo2.nextEvent();
+            system2.updateState(event);
+            algo2.updateState(event, system2.viewDependents(event.getProc()));
+
+            assertEquals(system2.lastEventTimeValue(), system1.lastEventTimeValue(), 0.0);
+
+            for (TestAgent agent : List.of(TestAgent.A, TestAgent.B))
+                assertEquals(system2.countAgent(agent), system1.countAgent(agent));
+        }
+    }
+
+    public void runFrozenTest(BiFunction<JamRandom, StochSystem, StochAlgo> factory) {
+        //
+        // Creating an algorithm must not freeze the system, and the
+        // compiled graph of a system frozen by the caller must produce
+        // the same trajectory as the mutable dependency graph...
+        //
+        LeapTestSystem system1 = LeapTestSystem.reversible(100, 100, 1.0, 3.0);
+        LeapTestSystem system2 = LeapTestSystem.reversible(100, 100, 1.0, 3.0);
+
+        system2.freeze();
+
+        StochAlgo algo1 = factory.apply(JamRandom.generator(20210517), system1);
+        StochAlgo algo2 = factory.apply(JamRandom.generator(20210517), system2);
+
+        assertFalse(system1.isFrozen());
+
+        for (int step = 0; step < 2000; ++step) {
+            algo1.advance();
+            algo2.advance();
+
+            assertEquals(system2.lastEventTimeValue(), system1.lastEventTimeValue(), 0.0);
+
+            for (TestAgent agent : List.of(TestAgent.A, TestAgent.B))
+                assertEquals(system2.countAgent(agent), system1.countAgent(agent));
+        }
+    }
+
     private void assertPopulation(StochTime eventTime, DecayProc decayProc, double tolerance) {
         int actual = decayProc.getPopulation();
         int expected = decayProc.getExpectedPopulation(eventTime);
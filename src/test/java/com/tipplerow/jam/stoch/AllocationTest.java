@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.BiFunction;
+
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.decay.DecaySystem;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class AllocationTest {
+    private static final int PROC_COUNT = 100;
+    private static final int WARMUP_COUNT = 200000;
+    private static final int STEP_COUNT = 100000;
+
+    private static DecaySystem createSystem() {
+        int[] pops = new int[PROC_COUNT];
+        double[] rates = new double[PROC_COUNT];
+
+        for (int index = 0; index < PROC_COUNT; ++index) {
+            pops[index] = 100000;
+            rates[index] = 0.5 + index % 3;
+        }
+
+        DecaySystem system = DecaySystem.create(pops, rates);
+        system.freeze();
+
+        return system;
+    }
+
+    // Returns the average number of bytes allocated by the current
+    // thread in each step, after the compiler has warmed up...
+    private static double measure(BiFunction<JamRandom, StochSystem, StochAlgo> factory) {
+        com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        StochAlgo algo = factory.apply(JamRandom.generator(20210501), createSystem());
+        algo.advance(WARMUP_COUNT);
+
+        long threadId = Thread.currentThread().getId();
+        long initBytes = threadBean.getThreadAllocatedBytes(threadId);
+
+        algo.advance(STEP_COUNT);
+
+        return (threadBean.getThreadAllocatedBytes(threadId) - initBytes) / (double) STEP_COUNT;
+    }
+
+    @Test public void testPrimitivePath() {
+        //
+        // The direct methods select events and update rates on the
+        // primitive path; allow for a few incidental allocations (by
+        // the compiler or the measurement itself) but not one object
+        // per step...
+        //
+        assertTrue(measure(DirectAlgo::create) < 1.0);
+        assertTrue(measure(LogDirectAlgo::create) < 1.0);
+        assertTrue(measure(CompositionRejectionAlgo::create) < 1.0);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import com.tipplerow.jam.math.JamRandom;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class CalendarQueueTest {
+    private final JamRandom random = JamRandom.generator(20210515);
+    private final double[] times = new double[SLOT_COUNT];
+
+    private static final int SLOT_COUNT = 1000;
+    private static final int NEXT_COUNT = 10000;
+
+    private CalendarQueue createQueue() {
+        CalendarQueue queue = CalendarQueue.create(SLOT_COUNT);
+
+        for (int slot = 0; slot < SLOT_COUNT; ++slot) {
+            times[slot] = 100.0 + random.nextDouble();
+            queue.addEvent(slot, times[slot]);
+        }
+
+        assertEquals(queue.size(), SLOT_COUNT);
+        return queue;
+    }
+
+    private int findNextSlot(TimeQueue queue) {
+        int result = -1;
+
+        for (int slot = 0; slot < SLOT_COUNT; ++slot)
+            if (queue.containsSlot(slot) && (result < 0 || times[slot] < times[result]))
+                result = slot;
+
+        return result;
+    }
+
+    @Test public void testNext() {
+        CalendarQueue queue = createQueue();
+
+        for (int trial = 0; trial < NEXT_COUNT; ++trial) {
+            int slot = findNextSlot(queue);
+
+            assertEquals(queue.nextSlot(), slot);
+            assertEquals(queue.nextTime(), times[slot]);
+
+            times[slot] -= Math.log(random.nextDouble());
+            queue.updateEvent(slot, times[slot]);
+        }
+
+        // The buckets should have resized to match the event spacing...
+        assertTrue(queue.countBuckets() >= SLOT_COUNT / 2);
+        assertTrue(queue.getBucketWidth() < 0.1);
+    }
+
+    @Test public void testUpdate() {
+        CalendarQueue queue = createQueue();
+
+        for (int trial = 0; trial < NEXT_COUNT; ++trial) {
+            int slot = (int) (random.nextDouble() * SLOT_COUNT);
+
+            if (random.nextDouble() < 0.1)
+                times[slot] = Double.POSITIVE_INFINITY;
+            else
+                times[slot] = 1000.0 * random.nextDouble();
+
+            queue.updateEvent(slot, times[slot]);
+
+            assertEquals(queue.findTime(slot), times[slot]);
+            assertEquals(queue.nextTime(), times[findNextSlot(queue)]);
+        }
+    }
+
+    @Test public void testRemove() {
+        CalendarQueue queue = createQueue();
+
+        for (int slot = 0; slot < SLOT_COUNT; slot += 2) {
+            queue.removeSlot(slot);
+
+            assertFalse(queue.containsSlot(slot));
+            assertEquals(queue.nextSlot(), findNextSlot(queue));
+        }
+
+        assertEquals(queue.size(), SLOT_COUNT / 2);
+
+        for (int slot = 1; slot < SLOT_COUNT - 1; slot += 2) {
+            queue.removeSlot(slot);
+            assertEquals(queue.nextSlot(), findNextSlot(queue));
+        }
+
+        assertEquals(queue.size(), 1);
+
+        queue.addEvent(0, 0.0);
+        assertEquals(queue.nextSlot(), 0);
+
+        queue.addEvent(2, Double.POSITIVE_INFINITY);
+        queue.removeSlot(0);
+        queue.removeSlot(SLOT_COUNT - 1);
+
+        assertEquals(queue.nextSlot(), 2);
+        assertEquals(queue.nextTime(), Double.POSITIVE_INFINITY);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testDuplicate() {
+        createQueue().addEvent(0, 1.0);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testEmpty() {
+        CalendarQueue.create(SLOT_COUNT).nextSlot();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.agent.LeapTestSystem;
+import com.tipplerow.jam.stoch.decay.DecayProc;
+import com.tipplerow.jam.stoch.decay.DecaySystem;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class ComponentRunnerTest {
+    private static final long MASTER_SEED = 20210501L;
+    private static final int PROC_COUNT = 64;
+    private static final int INIT_POP = 1000;
+    private static final double RATE = 1.0;
+    private static final double HORIZON = 0.5;
+
+    private static DecaySystem createSystem() {
+        int[] pops = new int[PROC_COUNT];
+        double[] rates = new double[PROC_COUNT];
+
+        Arrays.fill(pops, INIT_POP);
+        Arrays.fill(rates, RATE);
+
+        return DecaySystem.create(pops, rates);
+    }
+
+    private static int[] simulate(int binCount, ForkJoinPool pool) {
+        DecaySystem system = createSystem();
+        ComponentRunner runner = ComponentRunner.create(system, MASTER_SEED, NextReactionAlgo::create, binCount, pool);
+
+        assertEquals(runner.countComponents(), PROC_COUNT);
+        assertEquals(runner.countBins(), Math.min(binCount, PROC_COUNT));
+
+        long eventCount = runner.advanceUntil(HORIZON);
+        int[] pops = new int[PROC_COUNT];
+        int index = 0;
+        long decayCount = 0L;
+
+        for (DecayProc proc : system.viewProcesses()) {
+            pops[index++] = proc.getPopulation();
+            decayCount += INIT_POP - proc.getPopulation();
+        }
+
+        assertEquals(decayCount, eventCount);
+        assertEquals(system.countEvents(), eventCount);
+        assertEquals(system.lastEventTimeValue(), HORIZON, 0.0);
+
+        return pops;
+    }
+
+    @Test public void testAdvance() {
+        int[] pops1 = simulate(ComponentRunner.DEFAULT_BIN_COUNT, new ForkJoinPool(1));
+        int[] pops4 = simulate(ComponentRunner.DEFAULT_BIN_COUNT, new ForkJoinPool(4));
+
+        assertEquals(pops1, pops4);
+
+        double total = 0.0;
+
+        for (int pop : pops1)
+            total += pop;
+
+        double expected = INIT_POP * Math.exp(-RATE * HORIZON);
+        assertEquals(total / PROC_COUNT, expected, 0.01 * expected);
+    }
+
+    @Test public void testBins() {
+        // The bins, and therefore the trajectory, are independent of
+        // the number of threads...
+        int[] pops1 = simulate(5, new ForkJoinPool(1));
+        int[] pops4 = simulate(5, new ForkJoinPool(4));
+
+        assertEquals(pops1, pops4);
+    }
+
+    @Test public void testContiguousBins() {
+        // Each bin spans its own range of process ordinals, so the
+        // slot map of each subsystem stays proportional to its size...
+        DecaySystem system = createSystem();
+        ComponentRunner runner = ComponentRunner.create(system, MASTER_SEED, DirectAlgo::create, 5, ForkJoinPool.commonPool());
+
+        int procCount = 0;
+        int prevMax = Integer.MIN_VALUE;
+
+        for (int bin = 0; bin < runner.countBins(); ++bin) {
+            int minIndex = Integer.MAX_VALUE;
+            int maxIndex = Integer.MIN_VALUE;
+            int binSize = 0;
+
+            for (StochProc proc : runner.getSubsystem(bin).viewProcesses()) {
+                minIndex = Math.min(minIndex, proc.getProcIndex());
+                maxIndex = Math.max(maxIndex, proc.getProcIndex());
+                ++binSize;
+            }
+
+            assertTrue(minIndex > prevMax);
+            assertTrue(Math.abs(binSize - PROC_COUNT / 5) <= 1);
+
+            prevMax = maxIndex;
+            procCount += binSize;
+        }
+
+        assertEquals(procCount, PROC_COUNT);
+    }
+
+    @Test public void testMerged() {
+        DecaySystem system = createSystem();
+        ComponentRunner runner = ComponentRunner.create(system, MASTER_SEED, DirectAlgo::create);
+        List<StochEvent> events = new ArrayList<>();
+
+        long count1 = runner.advanceUntil(0.1, events::add);
+        long count2 = runner.advanceUntil(0.2, events::add);
+
+        assertEquals(events.size(), count1 + count2);
+        assertEquals(system.countEvents(), count1 + count2);
+
+        for (int index = 1; index < events.size(); ++index)
+            assertTrue(events.get(index - 1).getTime().doubleValue() <= events.get(index).getTime().doubleValue());
+
+        assertTrue(events.get(events.size() - 1).getTime().doubleValue() <= 0.2);
+    }
+
+    @Test public void testParentClock() {
+        // The components start at the parent clock, not at zero...
+        DecaySystem system = createSystem();
+        long count1 = DirectAlgo.create(JamRandom.generator(MASTER_SEED), system).advanceUntil(0.1);
+
+        ComponentRunner runner = ComponentRunner.create(system, MASTER_SEED, DirectAlgo::create);
+        List<StochEvent> events = new ArrayList<>();
+
+        long count2 = runner.advanceUntil(0.2, events::add);
+
+        assertEquals(events.size(), count2);
+        assertEquals(system.countEvents(), count1 + count2);
+
+        for (StochEvent event : events)
+            assertTrue(event.getTime().doubleValue() > 0.1);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testInvalidBins() {
+        ComponentRunner.create(createSystem(), MASTER_SEED, DirectAlgo::create, 0, ForkJoinPool.commonPool());
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testUnsupported() {
+        ComponentRunner.create(LeapTestSystem.reversible(100, 100, 1.0, 3.0), MASTER_SEED, DirectAlgo::create);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testInvalidHorizon() {
+        ComponentRunner.create(createSystem(), MASTER_SEED, DirectAlgo::create).advanceUntil(Double.POSITIVE_INFINITY);
+    }
+}
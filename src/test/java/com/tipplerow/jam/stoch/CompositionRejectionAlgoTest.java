@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class CompositionRejectionAlgoTest extends AlgoTestBase {
+    private static final class FixedSystem extends StochSystem {
+        private FixedSystem(StochProc... procs) {
+            super(List.of(procs), List.of());
+        }
+
+        @Override protected void updateState() {
+        }
+    }
+
+    @Test
+    public void testAlgorithm() {
+        runAlgorithmTest();
+    }
+
+    @Test
+    public void testHugeRate() {
+        // The upper bound of the top group overflows unless capped...
+        StochProc huge = FixedRateProc.create(1.0E+308);
+        StochSystem fixed = new FixedSystem(huge, FixedRateProc.create(1.0));
+        CompositionRejectionAlgo algo = CompositionRejectionAlgo.create(random, fixed);
+
+        for (int step = 0; step < 10; ++step) {
+            algo.advance();
+            assertSame(fixed.lastEventProcess(), huge);
+        }
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testInfiniteRate() {
+        CompositionRejectionAlgo.create(random, new FixedSystem(FixedRateProc.create(Double.POSITIVE_INFINITY)));
+    }
+
+    @Test
+    public void testFrozen() {
+        runFrozenTest(CompositionRejectionAlgo::create);
+    }
+
+    @Override public StochAlgo createAlgorithm() {
+        return CompositionRejectionAlgo.create(random, system);
+    }
+}
@@ -23,6 +23,11 @@ public class DirectAlgoTest extends AlgoTestBase {
         runAlgorithmTest();
     }
 
+    @Test
+    public void testFrozen() {
+        runFrozenTest(DirectAlgo::create);
+    }
+
     @Override public StochAlgo createAlgorithm() {
         return DirectAlgo.create(random, system);
     }
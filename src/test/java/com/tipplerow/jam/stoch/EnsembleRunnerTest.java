@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.decay.DecayProc;
+import com.tipplerow.jam.stoch.decay.DecaySystem;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class EnsembleRunnerTest {
+    private static final long MASTER_SEED = 20210501L;
+    private static final int REPLICATE_COUNT = 200;
+
+    private static final int INIT_POP = 1000;
+    private static final double RATE = 1.0;
+    private static final double HORIZON = 0.5;
+
+    // Simulates a single decay process until the time horizon and
+    // returns the final population...
+    private static double simulate(int replicate, JamRandom random) {
+        DecaySystem system = DecaySystem.create(new int[] { INIT_POP }, new double[] { RATE });
+        DirectAlgo.create(random, system).advanceUntil(HORIZON);
+
+        return system.viewProcesses().iterator().next().getPopulation();
+    }
+
+    @Test public void testReproducible() {
+        ForkJoinPool pool1 = new ForkJoinPool(1);
+        ForkJoinPool pool4 = new ForkJoinPool(4);
+
+        try {
+            EnsembleRunner runner1 = EnsembleRunner.create(MASTER_SEED, REPLICATE_COUNT, pool1);
+            EnsembleRunner runner4 = EnsembleRunner.create(MASTER_SEED, REPLICATE_COUNT, pool4);
+
+            List<Double> results1 = runner1.run(EnsembleRunnerTest::simulate);
+            List<Double> results4 = runner4.run(EnsembleRunnerTest::simulate);
+
+            assertEquals(results1.size(), REPLICATE_COUNT);
+            assertEquals(results1, results4);
+
+            double total1 = runner1.reduce(EnsembleRunnerTest::simulate, Double::sum);
+            double total4 = runner4.reduce(EnsembleRunnerTest::simulate, Double::sum);
+
+            assertEquals(Double.doubleToLongBits(total1), Double.doubleToLongBits(total4));
+
+            double expected = INIT_POP * Math.exp(-RATE * HORIZON);
+            assertEquals(total1 / REPLICATE_COUNT, expected, 0.01 * expected);
+        }
+        finally {
+            pool1.shutdown();
+            pool4.shutdown();
+        }
+    }
+
+    @Test public void testSeeds() {
+        EnsembleRunner runner = EnsembleRunner.create(MASTER_SEED, REPLICATE_COUNT);
+
+        assertEquals(runner.countReplicates(), REPLICATE_COUNT);
+        assertEquals(runner.replicateSeed(7), EnsembleRunner.create(MASTER_SEED, 10).replicateSeed(7));
+        assertNotEquals(runner.replicateSeed(7), runner.replicateSeed(8));
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testInvalidCount() {
+        EnsembleRunner.create(MASTER_SEED, 0);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.List;
+
+import com.tipplerow.jam.math.JamRandom;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class ModifiedNextReactionAlgoTest extends AlgoTestBase {
+    @Test
+    public void testAlgorithm() {
+        runAlgorithmTest();
+    }
+
+    @Test
+    public void testEventPath() {
+        runEventPathTest(ModifiedNextReactionAlgo::create);
+    }
+
+    @Test
+    public void testFrozen() {
+        runFrozenTest(ModifiedNextReactionAlgo::create);
+    }
+
+    @Override public StochAlgo createAlgorithm() {
+        return ModifiedNextReactionAlgo.create(random, system);
+    }
+
+    // A process with rate 2t, whose expected number of events by time
+    // T is T^2...
+    private static final class RampProc extends StochProc implements TimeVaryingProc {
+        @Override public StochRate getStochRate() {
+            return StochRate.of(0.0);
+        }
+
+        @Override public double integrateRate(double startTime, double endTime) {
+            return endTime * endTime - startTime * startTime;
+        }
+
+        @Override public double solveIntegral(double startTime, double integral) {
+            return Math.sqrt(startTime * startTime + integral);
+        }
+    }
+
+    private static final class RampSystem extends StochSystem {
+        private RampSystem() {
+            super(List.of(new RampProc()), List.of());
+        }
+
+        @Override protected void updateState() {
+        }
+    }
+
+    @Test public void testTimeVarying() {
+        JamRandom random = JamRandom.generator(20210501);
+
+        int trialCount = 200;
+        double meanCount = 0.0;
+
+        for (int trial = 0; trial < trialCount; ++trial) {
+            RampSystem rampSystem = new RampSystem();
+            StochAlgo algo = ModifiedNextReactionAlgo.create(random, rampSystem);
+
+            while (rampSystem.lastEventTime().doubleValue() < 10.0)
+                algo.advance();
+
+            meanCount += (rampSystem.countEvents() - 1) / (double) trialCount;
+        }
+
+        assertEquals(meanCount, 100.0, 3.0);
+    }
+
+    // A population X that decays at rate X and a process K with rate
+    // 2tX, which depends on both the state and the time; the expected
+    // number of K events by time T is the integral of 2t * X(0) * exp(-t)
+    // from 0 to T...
+    private static final class Population {
+        private int count;
+        private double time;
+    }
+
+    private static final class DecayProc extends StochProc {
+        private final Population pop;
+
+        private DecayProc(Population pop) {
+            this.pop = pop;
+        }
+
+        @Override public StochRate getStochRate() {
+            return StochRate.of(pop.count);
+        }
+    }
+
+    private static final class CoupledProc extends StochProc implements TimeVaryingProc {
+        private final Population pop;
+
+        private CoupledProc(Population pop) {
+            this.pop = pop;
+        }
+
+        @Override public StochRate getStochRate() {
+            return StochRate.of(2.0 * pop.time * pop.count);
+        }
+
+        @Override public double integrateRate(double startTime, double endTime) {
+            return pop.count * (endTime * endTime - startTime * startTime);
+        }
+
+        @Override public double solveIntegral(double startTime, double integral) {
+            if (pop.count > 0)
+                return Math.sqrt(startTime * startTime + integral / pop.count);
+            else
+                return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    private static final class CoupledSystem extends StochSystem {
+        private final Population pop;
+        private int coupledCount = 0;
+
+        private CoupledSystem(Population pop, DecayProc decay, CoupledProc coupled) {
+            super(List.of(decay, coupled), List.of(RateLink.link(decay, coupled)));
+            this.pop = pop;
+        }
+
+        private static CoupledSystem create(int initCount) {
+            Population pop = new Population();
+            pop.count = initCount;
+
+            return new CoupledSystem(pop, new DecayProc(pop), new CoupledProc(pop));
+        }
+
+        @Override protected void updateState() {
+            pop.time = lastEventTimeValue();
+
+            if (lastEventProcess() instanceof DecayProc)
+                --pop.count;
+            else
+                ++coupledCount;
+        }
+    }
+
+    private static double simulateCoupled(boolean eventPath) {
+        JamRandom random = JamRandom.generator(20210501);
+
+        int initCount = 5;
+        int trialCount = 4000;
+        double horizon = 2.0;
+        double meanCount = 0.0;
+
+        for (int trial = 0; trial < trialCount; ++trial) {
+            CoupledSystem coupled = CoupledSystem.create(initCount);
+            ModifiedNextReactionAlgo algo = ModifiedNextReactionAlgo.create(random, coupled);
+
+            if (eventPath) {
+                while (algo.countLive() > 0) {
+                    StochEvent event = algo.nextEvent();
+
+                    if (event.getTime().doubleValue() > horizon)
+                        break;
+
+                    coupled.updateState(event);
+                    algo.updateState(event, coupled.viewDependents(event.getProc()));
+                }
+            }
+            else {
+                algo.advanceUntil(horizon);
+            }
+
+            meanCount += coupled.coupledCount / (double) trialCount;
+        }
+
+        return meanCount;
+    }
+
+    @Test public void testStateDependent() {
+        //
+        // The clock of the coupled process must be integrated over the
+        // interval before each decay event with the population before
+        // the event...
+        //
+        double expected = 2.0 * 5 * (1.0 - 3.0 * Math.exp(-2.0));
+
+        assertEquals(simulateCoupled(false), expected, 0.15);
+        assertEquals(simulateCoupled(true), expected, 0.15);
+    }
+}
@@ -23,6 +23,16 @@ public class NextReactionAlgoTest extends AlgoTestBase {
         runAlgorithmTest();
     }
 
+    @Test
+    public void testEventPath() {
+        runEventPathTest(NextReactionAlgo::create);
+    }
+
+    @Test
+    public void testFrozen() {
+        runFrozenTest(NextReactionAlgo::create);
+    }
+
     @Override public StochAlgo createAlgorithm() {
         return NextReactionAlgo.create(random, system);
     }
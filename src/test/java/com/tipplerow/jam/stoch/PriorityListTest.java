@@ -63,7 +63,7 @@ public class PriorityListTest {
 
         for (int trialIndex = 0; trialIndex < trialCount; ++trialIndex) {
             StochProc proc = procList.select(RANDOM, TOTAL_RATE);
-            ++eventCounts[proc.getProcIndex()];
+            ++eventCounts[proc.getProcIndex() - procs.get(0).getProcIndex()];
         }
 
         for (int eventIndex = 0; eventIndex < SLOW_COUNT; ++eventIndex) {
@@ -74,4 +74,49 @@ public class PriorityListTest {
         assertEquals(0.3, DoubleUtil.ratio(eventCounts[SLOW_COUNT + 1], trialCount), 0.0005);
         assertEquals(0.4, DoubleUtil.ratio(eventCounts[SLOW_COUNT + 2], trialCount), 0.0005);
     }
+
+    // A process whose rate may be changed by the test...
+    private static final class VariableRateProc extends StochProc {
+        private double rate;
+
+        private VariableRateProc(double rate) {
+            this.rate = rate;
+        }
+
+        @Override public StochRate getStochRate() {
+            return StochRate.of(rate);
+        }
+    }
+
+    @Test public void testDormant() {
+        StochProc zero = FixedRateProc.create(0.0);
+        StochProc live = FixedRateProc.create(1.0);
+
+        PriorityList procList = PriorityList.createParking(List.of(zero, live));
+
+        assertEquals(procList.countLive(), 1);
+        assertTrue(procList.isDormant(zero));
+        assertFalse(procList.isDormant(live));
+
+        for (int trialIndex = 0; trialIndex < 1000; ++trialIndex)
+            assertEquals(procList.select(RANDOM, 1.0), live);
+    }
+
+    @Test public void testNotParking() {
+        // Lists that do not park processes see rate changes without
+        // any call to updateRate...
+        VariableRateProc proc1 = new VariableRateProc(0.0);
+        VariableRateProc proc2 = new VariableRateProc(1.0);
+
+        PriorityList procList = PriorityList.create(List.of(proc1, proc2));
+
+        assertEquals(procList.countLive(), 2);
+        assertFalse(procList.isDormant(proc1));
+
+        proc1.rate = 1.0;
+        proc2.rate = 0.0;
+
+        for (int trialIndex = 0; trialIndex < 1000; ++trialIndex)
+            assertEquals(procList.select(RANDOM, 1.0), proc1);
+    }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class ProcComponentsTest {
+    private static final class LinkedSystem extends StochSystem {
+        private LinkedSystem(List<StochProc> procs, List<RateLink> links) {
+            super(procs, links);
+        }
+
+        @Override protected void updateState() {
+        }
+    }
+
+    @Test public void testComponents() {
+        StochProc p0 = FixedRateProc.create(1.0);
+        StochProc p1 = FixedRateProc.create(1.0);
+        StochProc p2 = FixedRateProc.create(1.0);
+        StochProc p3 = FixedRateProc.create(1.0);
+        StochProc p4 = FixedRateProc.create(1.0);
+
+        // Components {p0, p3, p4}, {p1}, {p2}: the link direction
+        // is ignored...
+        StochSystem system =
+            new LinkedSystem(List.of(p0, p1, p2, p3, p4),
+                             List.of(RateLink.link(p4, p3), RateLink.link(p3, p0)));
+
+        ProcComponents components = ProcComponents.create(system);
+
+        assertEquals(components.countComponents(), 3);
+        assertEquals(components.viewComponent(0), List.of(p0, p3, p4));
+        assertEquals(components.viewComponent(1), List.of(p1));
+        assertEquals(components.viewComponent(2), List.of(p2));
+
+        assertEquals(components.getComponentIndex(p0), 0);
+        assertEquals(components.getComponentIndex(p1), 1);
+        assertEquals(components.getComponentIndex(p2), 2);
+        assertEquals(components.getComponentIndex(p3), 0);
+        assertEquals(components.getComponentIndex(p4), 0);
+    }
+}
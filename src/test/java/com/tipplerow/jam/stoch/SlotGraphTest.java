@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class SlotGraphTest {
+    private final FixedRateProc proc0 = FixedRateProc.create(1.0);
+    private final FixedRateProc proc1 = FixedRateProc.create(2.0);
+    private final FixedRateProc proc2 = FixedRateProc.create(3.0);
+    private final FixedRateProc proc3 = FixedRateProc.create(4.0);
+
+    private void assertSuccessors(SlotGraph graph, int slot, int... expected) {
+        assertEquals(graph.countSuccessors(slot), expected.length);
+        assertEquals(graph.edgeEnd(slot) - graph.edgeStart(slot), expected.length);
+
+        for (int index = 0; index < expected.length; ++index)
+            assertEquals(graph.successor(graph.edgeStart(slot) + index), expected[index]);
+    }
+
+    @Test public void testCreate() {
+        ProcGraph procGraph = ProcGraph.create();
+
+        procGraph.add(proc0, proc3, proc1);
+        procGraph.add(proc2, proc0);
+        procGraph.add(proc3, proc0, proc1, proc2);
+
+        ProcSlotMap slotMap = ProcSlotMap.create(List.of(proc0, proc1, proc2, proc3));
+        SlotGraph slotGraph = SlotGraph.create(slotMap, procGraph);
+
+        assertSame(slotGraph.getSlotMap(), slotMap);
+        assertEquals(slotGraph.countEdges(), 6);
+
+        // Successors are listed in ascending slot order...
+        assertSuccessors(slotGraph, 0, 1, 3);
+        assertSuccessors(slotGraph, 1);
+        assertSuccessors(slotGraph, 2, 0);
+        assertSuccessors(slotGraph, 3, 0, 1, 2);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testMissingProcess() {
+        ProcGraph procGraph = ProcGraph.create();
+        procGraph.add(proc0, proc1);
+
+        SlotGraph.create(ProcSlotMap.create(List.of(proc0)), procGraph);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import com.tipplerow.jam.math.JamRandom;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class TimeHeapTest {
+    private final JamRandom random = JamRandom.generator(20210501);
+    private final double[] times = new double[SLOT_COUNT];
+
+    private static final int SLOT_COUNT = 100;
+    private static final int NEXT_COUNT = 1000;
+    private static final int[] ARITIES = new int[] { 2, 4, 8 };
+
+    private TimeHeap createHeap(int arity) {
+        TimeHeap heap = TimeHeap.create(SLOT_COUNT, arity);
+
+        for (int slot = 0; slot < SLOT_COUNT; ++slot) {
+            times[slot] = random.nextDouble();
+            heap.addEvent(slot, times[slot]);
+        }
+
+        assertEquals(heap.getArity(), arity);
+        assertEquals(heap.size(), SLOT_COUNT);
+        heap.validateOrder();
+
+        return heap;
+    }
+
+    private int findNextSlot(TimeHeap heap) {
+        int result = -1;
+
+        for (int slot = 0; slot < SLOT_COUNT; ++slot)
+            if (heap.containsSlot(slot) && (result < 0 || times[slot] < times[result]))
+                result = slot;
+
+        return result;
+    }
+
+    @Test public void testNext() {
+        for (int arity : ARITIES) {
+            TimeHeap heap = createHeap(arity);
+
+            for (int trial = 0; trial < NEXT_COUNT; ++trial) {
+                int slot = findNextSlot(heap);
+
+                assertEquals(heap.nextSlot(), slot);
+                assertEquals(heap.nextTime(), times[slot]);
+
+                times[slot] += random.nextDouble();
+                heap.updateEvent(slot, times[slot]);
+                heap.validateOrder();
+            }
+        }
+    }
+
+    @Test public void testUpdate() {
+        for (int arity : ARITIES) {
+            TimeHeap heap = createHeap(arity);
+
+            for (int trial = 0; trial < NEXT_COUNT; ++trial) {
+                int slot = (int) (random.nextDouble() * SLOT_COUNT);
+
+                times[slot] = random.nextDouble();
+                heap.updateEvent(slot, times[slot]);
+                heap.validateOrder();
+
+                assertEquals(heap.findTime(slot), times[slot]);
+                assertEquals(heap.nextSlot(), findNextSlot(heap));
+            }
+        }
+    }
+
+    @Test public void testUpdateEvents() {
+        for (int arity : ARITIES) {
+            TimeHeap heap = createHeap(arity);
+
+            //
+            // Update a few slots (individually) and then most slots (by
+            // rebuilding the heap)...
+            //
+            for (int count : new int[] { 3, 90 }) {
+                int[] slots = new int[count];
+                double[] updates = new double[count];
+
+                for (int index = 0; index < count; ++index) {
+                    slots[index] = index;
+                    updates[index] = random.nextDouble();
+                    times[index] = updates[index];
+                }
+
+                heap.updateEvents(slots, updates, count);
+                heap.validateOrder();
+
+                for (int slot = 0; slot < SLOT_COUNT; ++slot)
+                    assertEquals(heap.findTime(slot), times[slot]);
+
+                assertEquals(heap.nextSlot(), findNextSlot(heap));
+            }
+        }
+    }
+
+    @Test public void testRemove() {
+        for (int arity : ARITIES) {
+            TimeHeap heap = createHeap(arity);
+
+            for (int slot = 0; slot < SLOT_COUNT; slot += 2) {
+                heap.removeSlot(slot);
+                heap.validateOrder();
+
+                assertFalse(heap.containsSlot(slot));
+                assertEquals(heap.nextSlot(), findNextSlot(heap));
+            }
+
+            assertEquals(heap.size(), SLOT_COUNT / 2);
+
+            heap.addEvent(0, 0.0);
+            assertEquals(heap.nextSlot(), 0);
+        }
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testDuplicate() {
+        createHeap(4).addEvent(0, 1.0);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testInvalidArity() {
+        TimeHeap.create(SLOT_COUNT, 3);
+    }
+}
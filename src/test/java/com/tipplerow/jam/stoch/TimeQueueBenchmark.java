@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Stopwatch;
+
+import com.tipplerow.jam.math.JamRandom;
+
+/**
+ * Times the <em>hold</em> operation that dominates the next reaction
+ * method for the binary heap and calendar queue implementations of
+ * {@link TimeQueue}: advance the earliest event by an exponential
+ * waiting time and update the events for a few dependent processes.
+ *
+ * <p>This benchmark is run by hand (through {@code main}) rather than
+ * as part of the unit test suite.
+ *
+ * @author Scott Shaffer
+ */
+public final class TimeQueueBenchmark {
+    private TimeQueueBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        System.out.println("    size,     heap,  calendar");
+
+        for (int size = 100; size <= 1000000; size *= 10) {
+            long heapTime = runHold(TimeHeap.create(size), size);
+            long calendarTime = runHold(CalendarQueue.create(size), size);
+
+            System.out.printf("%8d, %8d, %8d%n", size, heapTime, calendarTime);
+        }
+    }
+
+    private static long runHold(TimeQueue queue, int size) {
+        JamRandom random = JamRandom.generator(20210516);
+        double[] rates = new double[size];
+
+        for (int slot = 0; slot < size; ++slot) {
+            rates[slot] = 0.5 + random.nextDouble();
+            queue.addEvent(slot, -Math.log(random.nextDouble()) / rates[slot]);
+        }
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+
+        for (int trial = 0; trial < 1000000; ++trial) {
+            int slot = queue.nextSlot();
+            double time = queue.nextTime();
+
+            queue.updateEvent(slot, time - Math.log(random.nextDouble()) / rates[slot]);
+
+            for (int k = 0; k < 2; ++k) {
+                int dependent = (int) (random.nextDouble() * size);
+                double scale = 0.9 + 0.2 * random.nextDouble();
+                double dependentTime = queue.findTime(dependent);
+
+                queue.updateEvent(dependent, time + scale * (dependentTime - time));
+            }
+        }
+
+        return stopwatch.elapsed(TimeUnit.MILLISECONDS);
+    }
+}
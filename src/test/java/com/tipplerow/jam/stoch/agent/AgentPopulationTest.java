@@ -16,8 +16,10 @@
 package com.tipplerow.jam.stoch.agent;
 
 import java.util.List;
+import java.util.Set;
 
 import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Multiset;
 
 import org.testng.annotations.Test;
 import static org.testng.Assert.*;
@@ -86,6 +88,22 @@ public class AgentPopulationTest {
         assertPopulation(population, 3, 0, 1);
     }
 
+    @Test public void testAdjust() {
+        AgentPopulation population = createPopulation(3, 5, 10);
+
+        population.adjust(TestAgent.A, 4);
+        population.adjust(TestAgent.B, -5);
+        population.adjust(TestAgent.C, 0);
+
+        assertPopulation(population, 7, 0, 10);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testAdjustInvalid() {
+        AgentPopulation population = createPopulation(3, 5, 10);
+        population.adjust(TestAgent.A, -4);
+    }
+
     @Test public void testCreateEmpty() {
         AgentPopulation population = AgentPopulation.create();
         assertPopulation(population, 0, 0, 0);
@@ -155,4 +173,90 @@ public class AgentPopulationTest {
         AgentPopulation population = AgentPopulation.create();
         population.set(TestAgent.A, -2);
     }
+
+    @Test public void testSlots() {
+        AgentPopulation population = createPopulation(3, 5, 10);
+
+        int slotA = population.getSlot(TestAgent.A);
+        int slotB = population.getSlot(TestAgent.B);
+        int slotD = population.getSlot(TestAgent.D);
+
+        assertEquals(population.countSlots(), 4);
+        assertEquals(population.getAgent(slotA), TestAgent.A);
+        assertEquals(population.getAgent(slotD), TestAgent.D);
+        assertEquals(population.countSlot(slotB), 5);
+        assertEquals(population.countSlot(slotD), 0);
+
+        population.incrementSlot(slotD);
+        population.decrementSlot(slotA);
+        population.adjustSlot(slotB, -5);
+
+        assertPopulation(population, 2, 0, 10);
+        assertEquals(population.count(TestAgent.D), 1);
+        assertEquals(population.getSlot(TestAgent.D), slotD);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testDecrementSlotInvalid() {
+        AgentPopulation population = createPopulation(0, 5, 10);
+        population.decrementSlot(population.getSlot(TestAgent.A));
+    }
+
+    @Test public void testToMultiset() {
+        AgentPopulation population = createPopulation(3, 0, 10);
+        Multiset<StochAgent> expected =
+            ImmutableMultiset.<StochAgent>builder().addCopies(TestAgent.A, 3).addCopies(TestAgent.C, 10).build();
+
+        assertEquals(population.toMultiset(), expected);
+    }
+
+    @Test public void testSharedStoichiometry() {
+        // Each population compiles a shared process once, against its
+        // own slots...
+        AgentProc proc = FixedRateTransitionProc.create(TestAgent.A, TestAgent.B, 1.0);
+
+        AgentPopulation pop1 = AgentPopulation.create(ImmutableMultiset.of(TestAgent.A, TestAgent.A));
+        AgentPopulation pop2 = AgentPopulation.create(ImmutableMultiset.of(TestAgent.C, TestAgent.A));
+
+        Stoichiometry stoich1 = pop1.getStoichiometry(proc);
+        Stoichiometry stoich2 = pop2.getStoichiometry(proc);
+
+        assertTrue(stoich1 != stoich2);
+
+        proc.updatePopulation(pop1);
+        proc.updatePopulation(pop2);
+        proc.updatePopulation(pop1);
+
+        assertSame(pop1.getStoichiometry(proc), stoich1);
+        assertSame(pop2.getStoichiometry(proc), stoich2);
+
+        assertPopulation(pop1, 0, 2, 0);
+        assertPopulation(pop2, 0, 1, 1);
+    }
+
+    @Test public void testGroups() {
+        AgentPopulation population = createPopulation(3, 5, 10);
+
+        AgentGroup groupAB = AgentGroup.create("AB", Set.of(TestAgent.A, TestAgent.B));
+        AgentGroup groupBD = AgentGroup.create("BD", Set.of(TestAgent.B, TestAgent.D));
+
+        assertEquals(population.countGroup(groupAB), 8L);
+        assertEquals(population.countGroup(groupBD), 5L);
+
+        population.add(TestAgent.A);
+        population.remove(TestAgent.B, 2);
+        population.add(TestAgent.D, 4);
+        population.set(TestAgent.C, 1);
+
+        assertEquals(population.countGroup(groupAB), 7L);
+        assertEquals(population.countGroup(groupBD), 7L);
+
+        population.incrementSlot(population.getSlot(TestAgent.B));
+        population.decrementSlot(population.getSlot(TestAgent.A));
+        population.adjustSlot(population.getSlot(TestAgent.D), -4);
+
+        assertEquals(population.countGroup(groupAB), 7L);
+        assertEquals(population.countGroup(groupBD), 4L);
+        assertEquals(groupAB.getName(), "AB");
+    }
 }
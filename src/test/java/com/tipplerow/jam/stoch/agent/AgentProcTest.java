@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.tipplerow.jam.stoch.StochRate;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class AgentProcTest {
+    @Test public void testMassAction() {
+        AgentProc birth = FixedRateBirthProc.create(TestAgent.A, 1.0);
+        AgentProc capped = CappedProc.create(birth, Set.of(TestAgent.B), 10);
+
+        assertTrue(birth.isMassAction());
+        assertFalse(capped.isMassAction());
+    }
+
+    @Test public void testStoichiometry() {
+        AgentProc birth = FixedRateBirthProc.create(TestAgent.A, TestAgent.B, 1.0);
+        AgentProc trans = FixedRateTransitionProc.create(TestAgent.B, TestAgent.C, 2.0);
+
+        // Reactants, products, and net changes are created once...
+        assertSame(birth.getReactants(), birth.getReactants());
+        assertSame(birth.getProducts(), birth.getProducts());
+        assertSame(trans.getNetChange(), trans.getNetChange());
+
+        assertEquals(birth.getNetChange(), Map.of(TestAgent.B, 1));
+        assertEquals(trans.getNetChange(), Map.of(TestAgent.B, -1, TestAgent.C, 1));
+
+        AgentPopulation population = LeapTestSystem.population(5, 0, 0, 0);
+
+        birth.updatePopulation(population);
+        birth.updatePopulation(population, 2);
+        trans.updatePopulation(population);
+
+        assertEquals(population.count(TestAgent.A), 5);
+        assertEquals(population.count(TestAgent.B), 2);
+        assertEquals(population.count(TestAgent.C), 1);
+
+        // The compiled stoichiometry follows the population...
+        AgentPopulation other = LeapTestSystem.population(0, 1, 0, 0);
+        trans.updatePopulation(other);
+
+        assertEquals(other.count(TestAgent.B), 0);
+        assertEquals(other.count(TestAgent.C), 1);
+        assertEquals(population.count(TestAgent.B), 2);
+    }
+
+    @Test public void testInvalidUpdate() {
+        AgentProc trans = FixedRateTransitionProc.create(TestAgent.A, TestAgent.B, 1.0);
+        AgentPopulation population = LeapTestSystem.population(1, 0, 0, 0);
+
+        try {
+            trans.updatePopulation(population, 2);
+            fail("Expected an exception.");
+        }
+        catch (IllegalArgumentException ex) {
+            // The population must be unchanged...
+            assertEquals(population.count(TestAgent.A), 1);
+            assertEquals(population.count(TestAgent.B), 0);
+        }
+    }
+
+    @Test public void testComputeRate() {
+        LeapTestSystem system = LeapTestSystem.stiff(10, 20, 3.0, 1.0);
+
+        for (AgentProc proc : system.viewProcesses()) {
+            double expected = proc.getRateConstant(system);
+
+            for (StochAgent reactant : proc.getReactants())
+                expected *= system.countAgent(reactant);
+
+            assertEquals(proc.computeRateValue(system), expected, 1.0E-12);
+            assertEquals(proc.getRateValue(), expected, 1.0E-12);
+        }
+    }
+
+    // A process that overrides computeRate() rather than the primitive
+    // computeRateValue()...
+    private static final class CustomRateProc extends DeathProc {
+        private CustomRateProc() {
+            super(TestAgent.A);
+        }
+
+        @Override public double getRateConstant(AgentSystem system) {
+            return 1.0;
+        }
+
+        @Override public StochRate computeRate(AgentSystem system) {
+            return StochRate.of(0.5 * system.countAgent(TestAgent.A));
+        }
+    }
+
+    @Test public void testCustomRate() {
+        AgentProc proc = new CustomRateProc();
+        LeapTestSystem system = LeapTestSystem.create(LeapTestSystem.population(10, 0, 0, 0), List.of(proc), List.of());
+
+        proc.updateRate(system);
+        assertEquals(proc.getRateValue(), 5.0, 1.0E-12);
+
+        // Processes that do not override computeRate() are unaffected...
+        AgentProc death = FixedRateDeathProc.create(TestAgent.A, 1.0);
+        LeapTestSystem other = LeapTestSystem.create(LeapTestSystem.population(10, 0, 0, 0), List.of(death), List.of());
+
+        death.updateRate(other);
+        assertEquals(death.getRateValue(), 10.0, 1.0E-12);
+        assertEquals(death.computeRate(other).doubleValue(), 10.0, 1.0E-12);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.List;
+import java.util.Set;
+
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.EnsembleRunner;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class AgentStateTest {
+    private static final double HORIZON = 0.25;
+
+    @Test public void testShared() {
+        TestSystem template = TestSystem.create();
+        CompiledNetwork network = CompiledNetwork.compile(template);
+
+        assertEquals(network.countProcs(), 3);
+
+        //
+        // Replicates share the network and each allocate only their
+        // own state; the template is never modified...
+        //
+        int replicateCount = 100;
+        EnsembleRunner runner = EnsembleRunner.create(20210501L, replicateCount);
+
+        double totalC =
+            runner.reduce((replicate, random) -> {
+                    AgentState state = network.createState(random);
+                    state.advanceUntil(HORIZON);
+
+                    assertEquals(state.getTime(), HORIZON, 0.0);
+                    return (double) state.countAgent(TestAgent.C);
+                }, Double::sum);
+
+        double expectedC = TestSystem.INIT_POP_C * Math.exp(-TestSystem.C_TRANS_RATE * HORIZON);
+        assertEquals(totalC / replicateCount, expectedC, 0.01 * expectedC);
+
+        assertEquals(template.countEvents(), 0L);
+        assertEquals(template.countAgent(TestAgent.C), TestSystem.INIT_POP_C);
+    }
+
+    @Test public void testConservation() {
+        CompiledNetwork network = CompiledNetwork.compile(TestSystem.create());
+        AgentState state = network.createState(JamRandom.generator(20210501));
+
+        state.advance(1000);
+
+        assertEquals(state.countEvents(), 1000L);
+        assertEquals(state.countAgent(TestAgent.C) + state.countAgent(TestAgent.D), TestSystem.INIT_POP_C);
+    }
+
+    @Test public void testCapped() {
+        AgentProc birth = FixedRateBirthProc.create(TestAgent.A, 1.0);
+        AgentProc capped = CappedProc.create(birth, Set.of(TestAgent.A, TestAgent.B), 1200);
+        List<AgentProc> procs = List.of(capped);
+
+        LeapTestSystem template =
+            LeapTestSystem.create(LeapTestSystem.population(1000, 100, 0, 0), procs, AgentSystem.inferLinks(procs));
+
+        AgentState state = CompiledNetwork.compile(template).createState(JamRandom.generator(20210501));
+
+        assertEquals(state.advanceUntil(Double.POSITIVE_INFINITY), 100L);
+        assertEquals(state.countAgent(TestAgent.A), 1100);
+        assertEquals(state.getTotalRateValue(), 0.0);
+    }
+}
@@ -15,6 +15,18 @@
  */
 package com.tipplerow.jam.stoch.agent;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.DirectAlgo;
+import com.tipplerow.jam.stoch.ModifiedNextReactionAlgo;
+import com.tipplerow.jam.stoch.NextReactionAlgo;
+import com.tipplerow.jam.stoch.RateLink;
 import com.tipplerow.jam.stoch.StochEvent;
 import com.tipplerow.jam.stoch.StochTime;
 
@@ -67,4 +79,129 @@ public class AgentSystemTest {
         system.updateState(event3);
         assertState(system, 3, time3, initA + 1, initB - 1, initC - 1, initD + 1);
     }
+
+    @Test public void testUpdateLeap() {
+        TestSystem system = TestSystem.create();
+        StochTime time = StochTime.of(0.25);
+
+        Multiset<AgentProc> firings = HashMultiset.create();
+
+        firings.add(TestSystem.BIRTH_PROC, 10);
+        firings.add(TestSystem.DEATH_PROC, 20);
+        firings.add(TestSystem.TRANS_PROC, 30);
+
+        system.updateState(time, firings);
+
+        assertState(system, 60, time,
+                    TestSystem.INIT_POP_A + 10,
+                    TestSystem.INIT_POP_B - 20,
+                    TestSystem.INIT_POP_C - 30, 30);
+
+        assertNull(system.lastEvent());
+        assertEquals(TestSystem.A_BIRTH_RATE * (TestSystem.INIT_POP_A + 10),
+                     TestSystem.BIRTH_PROC.getStochRate().doubleValue(), 1.0E-12);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testUpdateLeapInvalid() {
+        TestSystem system = TestSystem.create();
+        Multiset<AgentProc> firings = HashMultiset.create();
+
+        firings.add(TestSystem.DEATH_PROC, TestSystem.INIT_POP_B + 1);
+        system.updateState(StochTime.of(0.25), firings);
+    }
+
+    @Test public void testUpdatePopulation() {
+        TestSystem system = TestSystem.create();
+        StochTime time = StochTime.of(0.5);
+
+        system.updateState(time, 15, Map.of(TestAgent.A, 5, TestAgent.C, -10));
+
+        assertState(system, 15, time,
+                    TestSystem.INIT_POP_A + 5,
+                    TestSystem.INIT_POP_B,
+                    TestSystem.INIT_POP_C - 10, 0);
+
+        assertNull(system.lastEvent());
+        assertEquals(TestSystem.A_BIRTH_RATE * (TestSystem.INIT_POP_A + 5),
+                     TestSystem.BIRTH_PROC.getStochRate().doubleValue(), 1.0E-12);
+    }
+
+    @Test public void testInferLinks() {
+        AgentProc procAB = FixedRateTransitionProc.create(TestAgent.A, TestAgent.B, 1.0);
+        AgentProc procBA = FixedRateTransitionProc.create(TestAgent.B, TestAgent.A, 1.0);
+        AgentProc procBC = FixedRateTransitionProc.create(TestAgent.B, TestAgent.C, 1.0);
+
+        assertEquals(Set.copyOf(AgentSystem.inferLinks(List.of(procAB, procBA, procBC))),
+                     Set.of(RateLink.link(procAB, procBA),
+                             RateLink.link(procAB, procBC),
+                             RateLink.link(procBA, procAB),
+                             RateLink.link(procBA, procBC),
+                             RateLink.link(procBC, procBA)));
+
+        // The stiff test system links are complete and minimal...
+        LeapTestSystem system = LeapTestSystem.stiff(100, 100, 10.0, 1.0);
+
+        assertTrue(system.findMissingLinks().isEmpty());
+        assertEquals(system.countLinks(), AgentSystem.inferLinks(system.viewProcesses()).size());
+    }
+
+    @Test public void testInferModifierLinks() {
+        AgentProc birth = FixedRateBirthProc.create(TestAgent.A, 1.0);
+        AgentProc death = FixedRateDeathProc.create(TestAgent.B, 1.0);
+        AgentProc capped = CappedProc.create(birth, Set.of(TestAgent.B), 100);
+
+        assertEquals(capped.getRateModifiers(), Set.of(TestAgent.B));
+        assertEquals(AgentSystem.inferLinks(List.of(capped, death)), List.of(RateLink.link(death, capped)));
+    }
+
+    @Test public void testMissingLinks() {
+        AgentProc procAB = FixedRateTransitionProc.create(TestAgent.A, TestAgent.B, 1.0);
+        AgentProc procBA = FixedRateTransitionProc.create(TestAgent.B, TestAgent.A, 1.0);
+
+        LeapTestSystem system =
+            LeapTestSystem.create(LeapTestSystem.population(10, 10, 0, 0),
+                                  List.of(procAB, procBA),
+                                  List.of(RateLink.link(procAB, procBA)));
+
+        assertEquals(system.countLinks(), 1);
+        assertEquals(system.countDependents(procAB), 1);
+        assertEquals(system.countDependents(procBA), 0);
+        assertEquals(system.findMissingLinks(), List.of(RateLink.link(procBA, procAB)));
+    }
+
+    @Test public void testDormantChain() {
+        //
+        // The process B -> C is dormant until the process A -> B
+        // gives it a positive rate, and both processes become dormant
+        // when all agents have reached C...
+        //
+        AgentProc procAB = FixedRateTransitionProc.create(TestAgent.A, TestAgent.B, 1.0);
+        AgentProc procBC = FixedRateTransitionProc.create(TestAgent.B, TestAgent.C, 1.0);
+
+        List<AgentProc> procs = List.of(procAB, procBC);
+        JamRandom random = JamRandom.generator(20210501);
+
+        LeapTestSystem system1 = LeapTestSystem.create(LeapTestSystem.population(10, 0, 0, 0), procs, AgentSystem.inferLinks(procs));
+        NextReactionAlgo algo1 = NextReactionAlgo.create(random, system1);
+
+        assertEquals(algo1.countLive(), 1);
+        assertEquals(algo1.advanceUntil(Double.POSITIVE_INFINITY), 20L);
+        assertEquals(algo1.countLive(), 0);
+        assertEquals(system1.countAgent(TestAgent.C), 10);
+
+        LeapTestSystem system2 = LeapTestSystem.create(LeapTestSystem.population(10, 0, 0, 0), procs, AgentSystem.inferLinks(procs));
+        ModifiedNextReactionAlgo algo2 = ModifiedNextReactionAlgo.create(random, system2);
+
+        assertEquals(algo2.countLive(), 1);
+        assertEquals(algo2.advanceUntil(Double.POSITIVE_INFINITY), 20L);
+        assertEquals(algo2.countLive(), 0);
+        assertEquals(system2.countAgent(TestAgent.C), 10);
+
+        LeapTestSystem system3 = LeapTestSystem.create(LeapTestSystem.population(10, 0, 0, 0), procs, AgentSystem.inferLinks(procs));
+        DirectAlgo algo3 = DirectAlgo.create(random, system3);
+
+        assertEquals(algo3.advanceUntil(Double.POSITIVE_INFINITY), 20L);
+        assertEquals(system3.countAgent(TestAgent.C), 10);
+    }
 }
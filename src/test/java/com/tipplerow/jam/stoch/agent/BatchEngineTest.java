@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Multiset;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class BatchEngineTest {
+    private static final int BATCH_SIZE = 256;
+    private static final long MASTER_SEED = 20210501L;
+    private static final double HORIZON = 0.25;
+
+    // Dimerization A + A => B, whose mass-action rate is positive with
+    // a single A...
+    private static final class DimerProc extends AgentProc {
+        @Override public Multiset<StochAgent> getReactants() {
+            return ImmutableMultiset.of(TestAgent.A, TestAgent.A);
+        }
+
+        @Override public Multiset<StochAgent> getProducts() {
+            return ImmutableMultiset.of(TestAgent.B);
+        }
+
+        @Override public double getRateConstant(AgentSystem system) {
+            return 1.0;
+        }
+    }
+
+    @Test public void testHorizon() {
+        CompiledNetwork network = CompiledNetwork.compile(TestSystem.create());
+        BatchEngine engine = BatchEngine.create(network, BATCH_SIZE, MASTER_SEED);
+
+        long eventCount = engine.advanceUntil(HORIZON);
+
+        assertEquals(engine.countEvents(), eventCount);
+        assertTrue(engine.getEventsPerSecond() > 0.0);
+
+        double totalB = 0.0;
+        double totalC = 0.0;
+
+        for (int replicate = 0; replicate < BATCH_SIZE; ++replicate) {
+            assertEquals(engine.getTime(replicate), HORIZON, 0.0);
+            assertEquals(engine.countAgent(replicate, TestAgent.C) + engine.countAgent(replicate, TestAgent.D), TestSystem.INIT_POP_C);
+
+            totalB += engine.countAgent(replicate, TestAgent.B);
+            totalC += engine.countAgent(replicate, TestAgent.C);
+        }
+
+        double expectedB = TestSystem.INIT_POP_B * Math.exp(-TestSystem.B_DEATH_RATE * HORIZON);
+        double expectedC = TestSystem.INIT_POP_C * Math.exp(-TestSystem.C_TRANS_RATE * HORIZON);
+
+        assertEquals(totalB / BATCH_SIZE, expectedB, 0.01 * expectedB);
+        assertEquals(totalC / BATCH_SIZE, expectedC, 0.01 * expectedC);
+
+        System.out.printf("Batch throughput: %.0f events/sec%n", engine.getEventsPerSecond());
+    }
+
+    @Test public void testCapped() {
+        AgentProc birth = FixedRateBirthProc.create(TestAgent.A, 1.0);
+        AgentProc capped = CappedProc.create(birth, Set.of(TestAgent.A), 50);
+        List<AgentProc> procs = List.of(capped);
+
+        LeapTestSystem template =
+            LeapTestSystem.create(LeapTestSystem.population(10, 0, 0, 0), procs, AgentSystem.inferLinks(procs));
+
+        BatchEngine engine = BatchEngine.create(CompiledNetwork.compile(template), 16, MASTER_SEED);
+
+        assertEquals(engine.advanceUntil(Double.POSITIVE_INFINITY), 16L * 40L);
+
+        for (int replicate = 0; replicate < 16; ++replicate)
+            assertEquals(engine.countAgent(replicate, TestAgent.A), 50);
+    }
+
+    @Test public void testOverdraw() {
+        List<AgentProc> procs = List.of(new DimerProc(), FixedRateDeathProc.create(TestAgent.C, 1.0));
+
+        LeapTestSystem template =
+            LeapTestSystem.create(LeapTestSystem.population(1, 0, 10, 0), procs, AgentSystem.inferLinks(procs));
+
+        BatchEngine engine = BatchEngine.create(CompiledNetwork.compile(template), 16, MASTER_SEED);
+
+        try {
+            engine.advance();
+            fail("Dimerization of a single agent must be rejected.");
+        }
+        catch (IllegalArgumentException ex) {
+            // Expected...
+        }
+
+        // No replicate may be partially updated...
+        assertEquals(engine.countEvents(), 0L);
+
+        for (int replicate = 0; replicate < 16; ++replicate) {
+            assertEquals(engine.countAgent(replicate, TestAgent.A), 1);
+            assertEquals(engine.countAgent(replicate, TestAgent.B), 0);
+            assertEquals(engine.countAgent(replicate, TestAgent.C), 10);
+            assertEquals(engine.getTime(replicate), 0.0, 0.0);
+        }
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testInvalidBatch() {
+        BatchEngine.create(CompiledNetwork.compile(TestSystem.create()), 0, MASTER_SEED);
+    }
+}
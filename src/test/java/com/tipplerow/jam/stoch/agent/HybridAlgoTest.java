@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.StochEvent;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+public class HybridAlgoTest {
+    private final JamRandom random = JamRandom.generator(20210501);
+
+    @Test public void testPartition() {
+        // Decay of A is fast and integrated as a continuous flow; the
+        // transition C => D is slow and occurs exactly...
+        int initA = 100000;
+        int initC = 50;
+        int trialCount = 40;
+
+        double meanC = 0.0;
+
+        for (int trial = 0; trial < trialCount; ++trial) {
+            LeapTestSystem system = LeapTestSystem.decay(initA, 1.0, initC, 1.0);
+            HybridAlgo algo = HybridAlgo.create(random, system, 0.01);
+
+            while (system.lastEventTime().doubleValue() < 1.0) {
+                algo.advance();
+
+                assertEquals(algo.countFastProcs(), 1);
+
+                for (AgentProc proc : system.viewProcesses())
+                    assertEquals(algo.isFast(proc), proc.getReactants().contains(TestAgent.A));
+            }
+
+            double time = system.lastEventTime().doubleValue();
+            ContinuousPopulation population = algo.viewPopulation();
+
+            assertEquals(population.count(TestAgent.A) / (initA * Math.exp(-time)), 1.0, 1.0E-06);
+            assertEquals(system.countAgent(TestAgent.A), population.round(TestAgent.A));
+            assertEquals(system.countAgent(TestAgent.C) + system.countAgent(TestAgent.D), initC);
+
+            meanC += system.countAgent(TestAgent.C) / (initC * Math.exp(-time)) / trialCount;
+
+            // The event count includes the integrated decay events...
+            long expected = (initA - system.countAgent(TestAgent.A)) + system.countAgent(TestAgent.D);
+            assertEquals(system.countEvents(), expected, 2);
+        }
+
+        assertEquals(meanC, 1.0, 0.05);
+    }
+
+    @Test public void testRepartition() {
+        // Decay of A is fast until the population falls below the
+        // threshold, after which the remaining events occur exactly...
+        LeapTestSystem system = LeapTestSystem.decay(1000, 1.0, 0, 1.0);
+        HybridAlgo algo = HybridAlgo.create(random, system, 0.01, 5.0, 100.0);
+
+        algo.advance();
+        assertEquals(algo.countFastProcs(), 1);
+
+        while (algo.viewPopulation().count(TestAgent.A) >= 1.0)
+            algo.advance();
+
+        // Only a fraction of an agent may remain after the flows, and
+        // it cannot decay as a discrete event...
+        assertEquals(algo.countFastProcs(), 0);
+        assertTrue(algo.viewPopulation().count(TestAgent.A) >= 0.0);
+        assertTrue(algo.viewPopulation().count(TestAgent.A) < 1.0);
+    }
+
+    @Test public void testSingleEvents() {
+        // The inherited single-event methods take exact steps on the
+        // continuous population...
+        LeapTestSystem system = LeapTestSystem.decay(10, 1.0, 5, 1.0);
+        HybridAlgo algo = HybridAlgo.create(random, system, 0.01);
+
+        for (int step = 0; step < 15; ++step) {
+            StochEvent event = algo.nextEvent();
+            system.updateState(event);
+            algo.updateState(event, system.viewDependents(event.getProc()));
+
+            ContinuousPopulation population = algo.viewPopulation();
+
+            assertEquals(population.round(TestAgent.A), system.countAgent(TestAgent.A));
+            assertEquals(population.round(TestAgent.C), system.countAgent(TestAgent.C));
+            assertEquals(population.round(TestAgent.D), system.countAgent(TestAgent.D));
+        }
+
+        assertEquals(system.countAgent(TestAgent.A), 0);
+        assertEquals(system.countAgent(TestAgent.C), 0);
+        assertEquals(system.countAgent(TestAgent.D), 5);
+        assertEquals(system.countEvents(), 15L);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testInvalidTimeStep() {
+        HybridAlgo.create(random, LeapTestSystem.decay(1000, 1.0, 0, 1.0), 0.0);
+    }
+}
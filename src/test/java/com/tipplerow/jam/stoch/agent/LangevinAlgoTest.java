@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.StochEvent;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+public class LangevinAlgoTest {
+    private final JamRandom random = JamRandom.generator(20210501);
+
+    @Test public void testDecayFixed() {
+        int initA = 100000;
+
+        LeapTestSystem system = LeapTestSystem.decay(initA, 1.0, 0, 1.0);
+        LangevinAlgo algo = LangevinAlgo.create(random, system, 0.001);
+
+        assertFalse(algo.isAdaptive());
+
+        while (system.lastEventTime().doubleValue() < 1.0) {
+            algo.advance();
+            assertEquals(algo.getLastStep(), 0.001, 1.0E-15);
+        }
+
+        double time = system.lastEventTime().doubleValue();
+
+        assertEquals(algo.viewPopulation().count(TestAgent.A) / (initA * Math.exp(-time)), 1.0, 0.01);
+        assertEquals(system.countAgent(TestAgent.A), algo.viewPopulation().round(TestAgent.A));
+        assertEquals(system.countEvents() / (double) (initA - system.countAgent(TestAgent.A)), 1.0, 0.01);
+    }
+
+    @Test public void testDecayAdaptive() {
+        int initA = 100000;
+
+        LeapTestSystem system = LeapTestSystem.decay(initA, 1.0, 0, 1.0);
+        LangevinAlgo algo = LangevinAlgo.createAdaptive(random, system, 0.01);
+
+        assertTrue(algo.isAdaptive());
+
+        int stepCount = 0;
+
+        while (system.lastEventTime().doubleValue() < 1.0) {
+            algo.advance();
+            ++stepCount;
+        }
+
+        double time = system.lastEventTime().doubleValue();
+
+        assertEquals(system.countAgent(TestAgent.A) / (initA * Math.exp(-time)), 1.0, 0.02);
+        assertTrue(stepCount < 1000);
+    }
+
+    @Test public void testBirthDeathVariance() {
+        // With equal birth and death rates b, the population variance
+        // grows as 2 * b * A0 * t...
+        int initA = 10000;
+        int trialCount = 400;
+
+        double sum = 0.0;
+        double sumSq = 0.0;
+
+        for (int trial = 0; trial < trialCount; ++trial) {
+            LeapTestSystem system = LeapTestSystem.birthDeath(initA, 1.0, 1.0);
+            LangevinAlgo algo = LangevinAlgo.create(random, system, 0.01);
+
+            while (system.lastEventTime().doubleValue() < 0.999)
+                algo.advance();
+
+            double count = algo.viewPopulation().count(TestAgent.A);
+
+            sum += count;
+            sumSq += count * count;
+        }
+
+        double mean = sum / trialCount;
+        double variance = sumSq / trialCount - mean * mean;
+
+        assertEquals(mean / initA, 1.0, 0.005);
+        assertEquals(variance / (2.0 * initA), 1.0, 0.2);
+    }
+
+    @Test public void testSingleEvents() {
+        // The inherited single-event methods take exact steps on the
+        // continuous population...
+        LeapTestSystem system = LeapTestSystem.decay(10, 1.0, 5, 1.0);
+        LangevinAlgo algo = LangevinAlgo.create(random, system, 0.01);
+
+        for (int step = 0; step < 15; ++step) {
+            StochEvent event = algo.nextEvent();
+            system.updateState(event);
+            algo.updateState(event, system.viewDependents(event.getProc()));
+
+            ContinuousPopulation population = algo.viewPopulation();
+
+            assertEquals(population.round(TestAgent.A), system.countAgent(TestAgent.A));
+            assertEquals(population.round(TestAgent.C), system.countAgent(TestAgent.C));
+            assertEquals(population.round(TestAgent.D), system.countAgent(TestAgent.D));
+        }
+
+        assertEquals(system.countAgent(TestAgent.A), 0);
+        assertEquals(system.countAgent(TestAgent.C), 0);
+        assertEquals(system.countAgent(TestAgent.D), 5);
+        assertEquals(system.countEvents(), 15L);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testInvalidEpsilon() {
+        LangevinAlgo.createAdaptive(random, LeapTestSystem.decay(1000, 1.0, 0, 1.0), 1.0);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.function.DoubleSupplier;
+
+import com.tipplerow.jam.math.JamRandom;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class LeapSamplerTest {
+    private static final int SAMPLE_COUNT = 100000;
+    private final JamRandom random = JamRandom.generator(20210501);
+
+    private static void assertMoments(DoubleSupplier sampler, double mean, double variance) {
+        double sum1 = 0.0;
+        double sum2 = 0.0;
+
+        for (int index = 0; index < SAMPLE_COUNT; ++index) {
+            double sample = sampler.getAsDouble();
+
+            sum1 += sample;
+            sum2 += sample * sample;
+        }
+
+        double sampleMean = sum1 / SAMPLE_COUNT;
+        double sampleVar = sum2 / SAMPLE_COUNT - sampleMean * sampleMean;
+
+        assertEquals(sampleMean, mean, 5.0 * Math.sqrt(variance / SAMPLE_COUNT));
+        assertEquals(sampleVar, variance, 0.05 * variance);
+    }
+
+    @Test public void testBinomial() {
+        assertMoments(() -> LeapSampler.binomial(10, 0.3, random), 3.0, 2.1);
+        assertMoments(() -> LeapSampler.binomial(1000, 0.2, random), 200.0, 160.0);
+        assertMoments(() -> LeapSampler.binomial(1000000, 0.7, random), 700000.0, 210000.0);
+    }
+
+    @Test public void testGamma() {
+        assertMoments(() -> LeapSampler.gamma(0.5, random), 0.5, 0.5);
+        assertMoments(() -> LeapSampler.gamma(7.0, random), 7.0, 7.0);
+    }
+
+    @Test public void testNormal() {
+        assertMoments(() -> LeapSampler.normal(random), 0.0, 1.0);
+    }
+
+    @Test public void testPoisson() {
+        assertMoments(() -> LeapSampler.poisson(0.5, random), 0.5, 0.5);
+        assertMoments(() -> LeapSampler.poisson(12.0, random), 12.0, 12.0);
+        assertMoments(() -> LeapSampler.poisson(5000.0, random), 5000.0, 5000.0);
+        assertMoments(() -> LeapSampler.poisson(1.0E+08, random), 1.0E+08, 1.0E+08);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.List;
+
+import com.tipplerow.jam.stoch.RateLink;
+
+public final class LeapTestSystem extends AgentSystem {
+    private LeapTestSystem(AgentPopulation population, List<AgentProc> procs, List<RateLink> links) {
+        super(mapAgents(), population, procs, links);
+    }
+
+    public static AgentMap mapAgents() {
+        return AgentMap.create(List.of(TestAgent.A, TestAgent.B, TestAgent.C, TestAgent.D));
+    }
+
+    public static AgentPopulation population(int popA, int popB, int popC, int popD) {
+        AgentPopulation population = AgentPopulation.create();
+
+        population.set(TestAgent.A, popA);
+        population.set(TestAgent.B, popB);
+        population.set(TestAgent.C, popC);
+        population.set(TestAgent.D, popD);
+
+        return population;
+    }
+
+    public static LeapTestSystem create(AgentPopulation population, List<AgentProc> procs, List<RateLink> links) {
+        return new LeapTestSystem(population, procs, links);
+    }
+
+    // Independent decay of A and transition C => D...
+    public static LeapTestSystem decay(int popA, double rateA, int popC, double rateC) {
+        List<AgentProc> procs =
+            List.of(FixedRateDeathProc.create(TestAgent.A, rateA),
+                    FixedRateTransitionProc.create(TestAgent.C, TestAgent.D, rateC));
+
+        return create(population(popA, 0, popC, 0), procs, List.of());
+    }
+
+    // Reversible transitions A <=> B...
+    public static LeapTestSystem reversible(int popA, int popB, double rateAB, double rateBA) {
+        AgentProc procAB = FixedRateTransitionProc.create(TestAgent.A, TestAgent.B, rateAB);
+        AgentProc procBA = FixedRateTransitionProc.create(TestAgent.B, TestAgent.A, rateBA);
+
+        List<AgentProc> procs = List.of(procAB, procBA);
+        List<RateLink> links = List.of(RateLink.link(procAB, procBA), RateLink.link(procBA, procAB));
+
+        return create(population(popA, popB, 0, 0), procs, links);
+    }
+
+    // Fast reversible transitions A <=> B with slow transition B => C...
+    public static LeapTestSystem stiff(int popA, int popB, double fastRate, double slowRate) {
+        AgentProc procAB = FixedRateTransitionProc.create(TestAgent.A, TestAgent.B, fastRate);
+        AgentProc procBA = FixedRateTransitionProc.create(TestAgent.B, TestAgent.A, fastRate);
+        AgentProc procBC = FixedRateTransitionProc.create(TestAgent.B, TestAgent.C, slowRate);
+
+        List<AgentProc> procs = List.of(procAB, procBA, procBC);
+        List<RateLink> links =
+            List.of(RateLink.link(procAB, procBA),
+                    RateLink.link(procAB, procBC),
+                    RateLink.link(procBA, procAB),
+                    RateLink.link(procBA, procBC),
+                    RateLink.link(procBC, procBA));
+
+        return create(population(popA, popB, 0, 0), procs, links);
+    }
+
+    // Linear birth and death of A...
+    public static LeapTestSystem birthDeath(int popA, double birthRate, double deathRate) {
+        AgentProc birth = FixedRateBirthProc.create(TestAgent.A, birthRate);
+        AgentProc death = FixedRateDeathProc.create(TestAgent.A, deathRate);
+
+        List<AgentProc> procs = List.of(birth, death);
+        List<RateLink> links = List.of(RateLink.link(birth, death), RateLink.link(death, birth));
+
+        return create(population(popA, 0, 0, 0), procs, links);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class OrdinalTableTest {
+    @Test public void testEmpty() {
+        OrdinalTable table = OrdinalTable.create();
+
+        assertEquals(table.get(0), OrdinalTable.NO_SLOT);
+        assertEquals(table.get(1000), OrdinalTable.NO_SLOT);
+        assertEquals(table.capacity(), 0);
+    }
+
+    @Test public void testPut() {
+        OrdinalTable table = OrdinalTable.create();
+
+        table.put(1_000_000, 0);
+        table.put(1_000_020, 1);
+        table.put(999_990, 2);
+
+        assertEquals(table.get(1_000_000), 0);
+        assertEquals(table.get(1_000_020), 1);
+        assertEquals(table.get(999_990), 2);
+
+        assertEquals(table.get(1_000_001), OrdinalTable.NO_SLOT);
+        assertEquals(table.get(999_989), OrdinalTable.NO_SLOT);
+        assertEquals(table.get(0), OrdinalTable.NO_SLOT);
+
+        // The table spans the stored ordinals, not the raw ordinals...
+        assertTrue(table.capacity() <= 100);
+    }
+
+    @Test public void testDescending() {
+        OrdinalTable table = OrdinalTable.create();
+
+        for (int slot = 0; slot < 1000; ++slot)
+            table.put(50_000 - slot, slot);
+
+        for (int slot = 0; slot < 1000; ++slot)
+            assertEquals(table.get(50_000 - slot), slot);
+
+        assertTrue(table.capacity() <= 2000);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import com.tipplerow.jam.math.JamRandom;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+public class RLeapAlgoTest {
+    private final JamRandom random = JamRandom.generator(20210501);
+
+    @Test public void testDecay() {
+        int initA = 100000;
+        int initC = 200000;
+
+        LeapTestSystem system = LeapTestSystem.decay(initA, 1.0, initC, 3.0);
+        RLeapAlgo algo = RLeapAlgo.create(random, system, 200);
+
+        assertEquals(algo.getLeapSize(), 200);
+        assertEquals(algo.getLastLeapSize(), 0);
+
+        int leapCount = 0;
+
+        while (system.lastEventTime().doubleValue() < 0.5) {
+            algo.advance();
+            ++leapCount;
+
+            assertEquals(algo.getLastLeapSize(), 200);
+        }
+
+        double time = system.lastEventTime().doubleValue();
+
+        assertEquals(system.countAgent(TestAgent.A) / (initA * Math.exp(-time)), 1.0, 0.02);
+        assertEquals(system.countAgent(TestAgent.C) / (initC * Math.exp(-3.0 * time)), 1.0, 0.02);
+        assertEquals(system.countAgent(TestAgent.C) + system.countAgent(TestAgent.D), initC);
+
+        // Every leap represents exactly 200 events...
+        assertEquals(system.countEvents(), 200L * leapCount);
+    }
+
+    @Test public void testBirthDeath() {
+        // The mean population is stationary when the birth and death
+        // rates are equal...
+        int initA = 10000;
+        int trialCount = 20;
+        double meanA = 0.0;
+
+        for (int trial = 0; trial < trialCount; ++trial) {
+            LeapTestSystem system = LeapTestSystem.birthDeath(initA, 1.0, 1.0);
+            RLeapAlgo algo = RLeapAlgo.create(random, system);
+
+            while (system.lastEventTime().doubleValue() < 1.0)
+                algo.advance();
+
+            meanA += system.countAgent(TestAgent.A) / (double) trialCount;
+        }
+
+        assertEquals(meanA / initA, 1.0, 0.01);
+    }
+
+    @Test public void testExtinction() {
+        // Leaps larger than the population must be rejected and the
+        // leap size reduced...
+        LeapTestSystem system = LeapTestSystem.decay(50, 1.0, 0, 1.0);
+        RLeapAlgo algo = RLeapAlgo.create(random, system, 64);
+
+        while (system.countAgent(TestAgent.A) > 0) {
+            algo.advance();
+            assertTrue(algo.getLastLeapSize() <= 50);
+        }
+
+        assertEquals(system.countEvents(), 50);
+    }
+
+    @Test public void testReversible() {
+        // Each leap must update the rates of the processes that fired
+        // and their dependents exactly as the exact methods do...
+        LeapTestSystem system = LeapTestSystem.reversible(5000, 1000, 1.0, 2.0);
+        RLeapAlgo algo = RLeapAlgo.create(random, system, 50);
+
+        for (int leap = 0; leap < 1000; ++leap) {
+            algo.advance();
+
+            assertEquals(system.countAgent(TestAgent.A) + system.countAgent(TestAgent.B), 6000);
+
+            for (AgentProc proc : system.viewProcesses())
+                assertEquals(proc.getRateValue(), proc.computeRateValue(system), 1.0E-12);
+        }
+
+        // The equilibrium population of A is two-thirds of the total...
+        assertEquals(system.countAgent(TestAgent.A) / 4000.0, 1.0, 0.05);
+        assertEquals(system.countEvents(), 50L * 1000);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testInvalidLeapSize() {
+        RLeapAlgo.create(random, LeapTestSystem.decay(50, 1.0, 0, 1.0), 0);
+    }
+}
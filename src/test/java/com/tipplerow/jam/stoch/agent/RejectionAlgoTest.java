@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import java.util.List;
+import java.util.Set;
+
+import com.tipplerow.jam.math.JamRandom;
+import com.tipplerow.jam.stoch.RateLink;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+public class RejectionAlgoTest {
+    private final JamRandom random = JamRandom.generator(20210501);
+
+    @Test public void testEquilibrium() {
+        // The stationary mean population of A is 2000 * 3 / 4 = 1500...
+        LeapTestSystem system = LeapTestSystem.reversible(1000, 1000, 1.0, 3.0);
+        RejectionAlgo algo = RejectionAlgo.create(random, system);
+
+        for (int event = 0; event < 20000; ++event)
+            algo.advance();
+
+        int eventCount = 200000;
+        double meanA = 0.0;
+
+        for (int event = 0; event < eventCount; ++event) {
+            algo.advance();
+            meanA += system.countAgent(TestAgent.A) / (double) eventCount;
+        }
+
+        assertEquals(meanA, 1500.0, 15.0);
+        assertEquals(system.countAgent(TestAgent.A) + system.countAgent(TestAgent.B), 2000);
+
+        // A direct method evaluates two rates after every event; the
+        // rejection method evaluates exact rates only for candidates
+        // between the bounds...
+        assertTrue(algo.countRateEvaluations() + algo.countBoundUpdates() < system.countEvents() / 4);
+        assertTrue(algo.countBoundUpdates() < system.countEvents() / 1000);
+    }
+
+    @Test public void testCapped() {
+        AgentProc birth = CappedProc.create(FixedRateBirthProc.create(TestAgent.A, 1.0), Set.of(TestAgent.A), 500);
+        AgentProc death = FixedRateDeathProc.create(TestAgent.A, 0.1);
+
+        LeapTestSystem system =
+            LeapTestSystem.create(LeapTestSystem.population(10, 0, 0, 0),
+                                  List.of(birth, death),
+                                  List.of(RateLink.link(birth, death), RateLink.link(death, birth)));
+
+        RejectionAlgo algo = RejectionAlgo.create(random, system);
+        int maxA = 0;
+
+        while (system.lastEventTime().doubleValue() < 20.0) {
+            algo.advance();
+            maxA = Math.max(maxA, system.countAgent(TestAgent.A));
+        }
+
+        assertEquals(maxA, 500);
+        assertTrue(system.countAgent(TestAgent.A) > 400);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testCapacityReached() {
+        // Once the population reaches capacity, the upper bound of the
+        // birth process remains positive but its exact rate is zero, so
+        // the next step must fail rather than reject candidates forever...
+        AgentProc birth = CappedProc.create(FixedRateBirthProc.create(TestAgent.A, 1.0), Set.of(TestAgent.A), 50);
+        List<AgentProc> procs = List.of(birth);
+
+        LeapTestSystem system =
+            LeapTestSystem.create(LeapTestSystem.population(10, 0, 0, 0), procs, AgentSystem.inferLinks(procs));
+
+        RejectionAlgo algo = RejectionAlgo.create(random, system);
+        algo.advance(40);
+
+        assertEquals(system.countAgent(TestAgent.A), 50);
+        algo.advance();
+    }
+
+    @Test public void testCapacityHorizon() {
+        // The candidates are all rejected at capacity, but the candidate
+        // clock still passes the horizon...
+        AgentProc birth = CappedProc.create(FixedRateBirthProc.create(TestAgent.A, 1.0), Set.of(TestAgent.A), 50);
+        List<AgentProc> procs = List.of(birth);
+
+        LeapTestSystem system =
+            LeapTestSystem.create(LeapTestSystem.population(10, 0, 0, 0), procs, AgentSystem.inferLinks(procs));
+
+        RejectionAlgo algo = RejectionAlgo.create(random, system);
+
+        assertEquals(algo.advanceUntil(1000.0), 40L);
+        assertEquals(system.countAgent(TestAgent.A), 50);
+        assertEquals(system.lastEventTime().doubleValue(), 1000.0, 0.0);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testInvalidDelta() {
+        RejectionAlgo.create(random, LeapTestSystem.decay(1000, 1.0, 0, 1.0), 0.0);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2021 Scott Shaffer - All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tipplerow.jam.stoch.agent;
+
+import com.tipplerow.jam.math.JamRandom;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class TauLeapAlgoTest {
+    private final JamRandom random = JamRandom.generator(20210501);
+
+    @Test public void testDecay() {
+        int initA = 100000;
+        int initC = 200000;
+
+        // The explicit method is first-order accurate, so the relative
+        // bias is roughly proportional to epsilon...
+        LeapTestSystem system = LeapTestSystem.decay(initA, 1.0, initC, 3.0);
+        TauLeapAlgo algo = TauLeapAlgo.create(random, system, 0.01);
+
+        int stepCount = 0;
+
+        while (system.lastEventTime().doubleValue() < 0.5) {
+            algo.advance();
+            ++stepCount;
+        }
+
+        double time = system.lastEventTime().doubleValue();
+
+        assertEquals(system.countAgent(TestAgent.A) / (initA * Math.exp(-time)), 1.0, 0.02);
+        assertEquals(system.countAgent(TestAgent.C) / (initC * Math.exp(-3.0 * time)), 1.0, 0.02);
+        assertEquals(system.countAgent(TestAgent.C) + system.countAgent(TestAgent.D), initC);
+
+        // Each leap should cover many events...
+        long eventCount = (initA - system.countAgent(TestAgent.A)) + system.countAgent(TestAgent.D);
+
+        assertEquals(system.countEvents(), eventCount);
+        assertTrue(system.countEvents() > 100 * stepCount);
+    }
+
+    @Test public void testExtinction() {
+        int initA = 50;
+
+        LeapTestSystem system = LeapTestSystem.decay(initA, 1.0, 1, 1.0);
+        TauLeapAlgo algo = TauLeapAlgo.create(random, system);
+
+        while (system.countAgent(TestAgent.A) > 0 || system.countAgent(TestAgent.C) > 0)
+            algo.advance();
+
+        assertEquals(system.countEvents(), initA + 1);
+        assertEquals(system.countAgent(TestAgent.D), 1);
+    }
+
+    @Test public void testStiff() {
+        int initA = 50000;
+        int initB = 50000;
+
+        // The fast pair remains in partial equilibrium with A = B, so
+        // the total population of A and B decays at one-half the slow
+        // rate...
+        LeapTestSystem system = LeapTestSystem.stiff(initA, initB, 1.0E+05, 1.0);
+        TauLeapAlgo algo = TauLeapAlgo.createAdaptive(random, system);
+
+        assertTrue(algo.isAdaptive());
+
+        while (system.lastEventTime().doubleValue() < 2.0)
+            algo.advance();
+
+        double time = system.lastEventTime().doubleValue();
+        double remaining = (initA + initB) * Math.exp(-0.5 * time);
+
+        int countA = system.countAgent(TestAgent.A);
+        int countB = system.countAgent(TestAgent.B);
+        int countC = system.countAgent(TestAgent.C);
+
+        assertEquals(countA + countB + countC, initA + initB);
+        assertEquals((countA + countB) / remaining, 1.0, 0.03);
+        assertEquals(countA / (double) countB, 1.0, 0.05);
+
+        // The explicit interval is limited by the fast pair to roughly
+        // 2.0E-04, so implicit leaps are essential...
+        assertTrue(algo.countImplicitLeaps() > 0);
+        assertTrue(algo.countLeaps() < 1000);
+    }
+
+    @Test public void testNonStiff() {
+        LeapTestSystem system = LeapTestSystem.decay(100000, 1.0, 200000, 3.0);
+        TauLeapAlgo algo = TauLeapAlgo.createAdaptive(random, system);
+
+        while (system.lastEventTime().doubleValue() < 0.5)
+            algo.advance();
+
+        assertTrue(algo.countLeaps() > 0);
+        assertEquals(algo.countImplicitLeaps(), 0);
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.tipplerow.jam.stoch.decay;
 
+import com.tipplerow.jam.stoch.ProcSlotMap;
 import com.tipplerow.jam.stoch.StochEvent;
 import com.tipplerow.jam.stoch.StochRate;
 import com.tipplerow.jam.stoch.StochTime;
@@ -71,4 +72,61 @@ public class DecaySystemTest extends NumericTestBase {
         assertPopulation(system, 99, 198, 297);
         assertRates(system, 99.0, 396.0, 891.0);
     }
+
+    @Test public void testPrimitiveEvent() {
+        DecaySystem system = createSystem();
+        List<DecayProc> procs = List.copyOf(system.viewProcesses());
+
+        DecayProc proc0 = procs.get(0);
+        DecayProc proc2 = procs.get(2);
+
+        system.updateState(proc0, 0.1);
+        system.updateState(proc2, 0.2);
+
+        assertPopulation(system, 99, 200, 299);
+        assertRates(system, 99.0, 400.0, 897.0);
+
+        assertEquals(system.countEvents(), 2);
+        assertEquals(system.lastEventProcess(), proc2);
+        assertEquals(system.lastEventTimeValue(), 0.2);
+        assertEquals(system.lastEventTime(), StochTime.of(0.2));
+
+        // The event is created on demand with the rate before it
+        // occurred...
+        StochEvent event = system.lastEvent();
+
+        assertEquals(event.getProc(), proc2);
+        assertEquals(event.getTime(), StochTime.of(0.2));
+        assertEquals(event.getRate(), StochRate.of(900.0));
+        assertSame(system.lastEvent(), event);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testPrimitiveEventOrder() {
+        DecaySystem system = createSystem();
+        DecayProc proc = system.viewProcesses().iterator().next();
+
+        system.updateState(proc, 0.2);
+        system.updateState(proc, 0.1);
+    }
+
+    @Test public void testFreeze() {
+        DecaySystem system = createSystem();
+        assertFalse(system.isFrozen());
+
+        system.freeze();
+        system.freeze();
+
+        assertTrue(system.isFrozen());
+        assertEquals(system.getSlotGraph().countEdges(), 0);
+        assertSame(ProcSlotMap.create(system), system.getSlotMap());
+
+        for (DecayProc proc : system.viewProcesses())
+            assertEquals(system.getSlotMap().getProc(system.getSlotMap().getSlot(proc)), proc);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testNotFrozen() {
+        createSystem().getSlotGraph();
+    }
 }